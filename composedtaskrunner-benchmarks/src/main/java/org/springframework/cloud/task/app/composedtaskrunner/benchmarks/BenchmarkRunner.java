@@ -0,0 +1,129 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler and reports the time and the
+ * allocations of each benchmark per node of the graph.  For the
+ * {@link TaskLauncherTaskletBenchmark} the overhead and the job repository
+ * writes per step and the allocations per poll are reported, and for the
+ * {@link SplitTaskExecutorBenchmark} the threads, the memory and the start
+ * latency of the flows of a split.  Accepts the same
+ * arguments as the JMH command line, for instance a regular expression to
+ * select the benchmarks to run.
+ */
+public final class BenchmarkRunner {
+
+	private static final String ALLOCATION_RESULT = "·gc.alloc.rate.norm";
+
+	private BenchmarkRunner() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build();
+		Collection<RunResult> results = new Runner(options).run();
+
+		List<RunResult> graphResults = new ArrayList<>();
+		List<RunResult> orchestrationResults = new ArrayList<>();
+		List<RunResult> splitResults = new ArrayList<>();
+		for (RunResult result : results) {
+			if (result.getSecondaryResults().containsKey("overheadMicros")) {
+				orchestrationResults.add(result);
+			}
+			else if (result.getSecondaryResults().containsKey("liveThreads")) {
+				splitResults.add(result);
+			}
+			else {
+				graphResults.add(result);
+			}
+		}
+
+		if (!graphResults.isEmpty()) {
+			System.out.println();
+			System.out.println(String.format("%-60s %-13s %7s %14s %14s", "Benchmark",
+					"Shape", "Nodes", "Time/node", "Alloc/node"));
+			for (RunResult result : graphResults) {
+				int nodes = Integer.parseInt(result.getParams().getParam("nodes"));
+				Result time = result.getPrimaryResult();
+				Result allocation = result.getSecondaryResults().get(ALLOCATION_RESULT);
+				System.out.println(String.format("%-60s %-13s %7d %10.3f %-3s %12.0f B",
+						getName(result), result.getParams().getParam("shape"), nodes,
+						time.getScore() / nodes, time.getScoreUnit().replace("/op", ""),
+						(allocation != null) ? allocation.getScore() / nodes : Double.NaN));
+			}
+		}
+
+		if (!orchestrationResults.isEmpty()) {
+			System.out.println();
+			System.out.println(String.format("%-40s %-13s %7s %9s %10s %16s %16s %14s", "Benchmark",
+					"Shape", "Nodes", "Latency", "Outside tx", "Overhead/step", "Writes/step",
+					"Alloc/poll"));
+			for (RunResult result : orchestrationResults) {
+				Map<String, Result> metrics = result.getSecondaryResults();
+				double steps = metrics.get("nodes").getScore();
+				double polls = metrics.get("polls").getScore();
+				System.out.println(String.format("%-40s %-13s %7s %6s ms %10s %13.3f ms %16.1f %12.0f B",
+						getName(result), result.getParams().getParam("shape"),
+						result.getParams().getParam("nodes"),
+						result.getParams().getParam("completionLatency"),
+						result.getParams().getParam("checksOutsideTransactionEnabled"),
+						metrics.get("overheadMicros").getScore() / steps / 1000,
+						metrics.get("repositoryWrites").getScore() / steps,
+						(polls > 0) ? metrics.get("pollAllocatedBytes").getScore() / polls : Double.NaN));
+			}
+		}
+
+		if (!splitResults.isEmpty()) {
+			System.out.println();
+			System.out.println(String.format("%-40s %-9s %7s %9s %12s %16s %16s", "Benchmark",
+					"Executor", "Width", "Threads", "RSS", "Start latency", "p99 latency"));
+			for (RunResult result : splitResults) {
+				Map<String, Result> metrics = result.getSecondaryResults();
+				double splits = metrics.get("splits").getScore();
+				System.out.println(String.format("%-40s %-9s %7s %9.0f %9.0f KB %13.0f us %13.0f us",
+						getName(result), result.getParams().getParam("executor"),
+						result.getParams().getParam("width"),
+						metrics.get("liveThreads").getScore() / splits,
+						metrics.get("rssKilobytes").getScore() / splits,
+						metrics.get("startLatencyMicros").getScore() / metrics.get("flows").getScore(),
+						metrics.get("p99StartLatencyMicros").getScore() / splits));
+			}
+		}
+	}
+
+	private static String getName(RunResult result) {
+		String benchmark = result.getParams().getBenchmark();
+		return benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1);
+	}
+
+}
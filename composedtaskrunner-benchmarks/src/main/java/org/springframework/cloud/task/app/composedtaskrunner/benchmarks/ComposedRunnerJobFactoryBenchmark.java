@@ -0,0 +1,145 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedRunnerJobFactory;
+import org.springframework.cloud.task.app.composedtaskrunner.properties.ComposedTaskProperties;
+import org.springframework.cloud.task.repository.TaskNameResolver;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+
+/**
+ * Measures the creation of the Spring Batch job of a composed task, which
+ * includes parsing and compiling the graph and building its flows.  The steps
+ * of the task apps are registered once, as they are not created by the job
+ * factory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss16m")
+public class ComposedRunnerJobFactoryBenchmark {
+
+	@Param({"SEQUENCE", "WIDE_SPLIT", "NESTED_SPLIT", "TRANSITIONS"})
+	private GraphShape shape;
+
+	@Param({"10", "100", "1000", "10000"})
+	private int nodes;
+
+	private AnnotationConfigApplicationContext context;
+
+	private ComposedTaskProperties properties;
+
+	@Setup
+	public void setup() {
+		this.context = new AnnotationConfigApplicationContext();
+		this.context.register(BenchmarkConfiguration.class);
+		for (String taskName : this.shape.taskNames(this.nodes)) {
+			String beanName = taskName + "_0";
+			this.context.getBeanFactory().registerSingleton(beanName, new NoOpStep(beanName));
+		}
+		this.context.refresh();
+		this.properties = new ComposedTaskProperties();
+		this.properties.setGraph(this.shape.graph(this.nodes));
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.context.close();
+	}
+
+	@Benchmark
+	public Job getObject() throws Exception {
+		ComposedRunnerJobFactory jobFactory = new ComposedRunnerJobFactory(this.properties);
+		this.context.getAutowireCapableBeanFactory().autowireBean(jobFactory);
+		return jobFactory.getObject();
+	}
+
+	@Configuration
+	@EnableBatchProcessing
+	static class BenchmarkConfiguration {
+
+		@Bean
+		public TaskExecutor taskExecutor() {
+			return new SimpleAsyncTaskExecutor();
+		}
+
+		@Bean
+		public TaskNameResolver taskNameResolver() {
+			return () -> "composed-task-runner";
+		}
+
+	}
+
+	/**
+	 * Step that is never executed, the benchmark only builds the job.
+	 */
+	static class NoOpStep implements Step {
+
+		private final String name;
+
+		NoOpStep(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String getName() {
+			return this.name;
+		}
+
+		@Override
+		public boolean isAllowStartIfComplete() {
+			return false;
+		}
+
+		@Override
+		public int getStartLimit() {
+			return Integer.MAX_VALUE;
+		}
+
+		@Override
+		public void execute(StepExecution stepExecution) {
+			throw new UnsupportedOperationException("Benchmark steps are not executed");
+		}
+
+	}
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shapes of the composed task graphs generated for the benchmarks.  Every task
+ * app of a generated graph has a distinct name, so that each node of the graph
+ * is launched by its own step.
+ */
+public enum GraphShape {
+
+	/**
+	 * {@code T0 && T1 && ... && Tn}.
+	 */
+	SEQUENCE {
+		@Override
+		public String graph(int nodes) {
+			return String.join(" && ", taskNames(nodes));
+		}
+	},
+
+	/**
+	 * {@code <T0 || T1 || ... || Tn>}.
+	 */
+	WIDE_SPLIT {
+		@Override
+		public String graph(int nodes) {
+			return "<" + String.join(" || ", taskNames(nodes)) + ">";
+		}
+	},
+
+	/**
+	 * Splits nested up to {@link #MAX_NESTING_DEPTH} levels deep, each level
+	 * being a split of a sequence of task apps and of the next level.
+	 */
+	NESTED_SPLIT {
+		@Override
+		public String graph(int nodes) {
+			int depth = Math.max(1, Math.min(MAX_NESTING_DEPTH, nodes - 1));
+			int nodesPerLevel = nodes / (depth + 1);
+			int next = nodes - (nodesPerLevel * depth);
+			String graph = String.join(" && ", taskNames(next));
+			for (int level = 0; level < depth; level++) {
+				graph = "<" + String.join(" && ", names(next, nodesPerLevel))
+						+ " || " + graph + ">";
+				next += nodesPerLevel;
+			}
+			return graph;
+		}
+	},
+
+	/**
+	 * {@code T0 'FAILED' -> T1 && T2 'FAILED' -> T3 && ...}, every other task app
+	 * being the target of a transition.
+	 */
+	TRANSITIONS {
+		@Override
+		public String graph(int nodes) {
+			List<String> taskNames = taskNames(nodes);
+			List<String> elements = new ArrayList<>();
+			for (int i = 0; i + 1 < nodes; i += 2) {
+				elements.add(taskNames.get(i) + " 'FAILED' -> " + taskNames.get(i + 1));
+			}
+			if (nodes % 2 == 1) {
+				elements.add(taskNames.get(nodes - 1));
+			}
+			return String.join(" && ", elements);
+		}
+	};
+
+	/**
+	 * The maximum depth of nested splits.  Deeper graphs are not realistic and
+	 * would require a large pool of split threads to run.
+	 */
+	public static final int MAX_NESTING_DEPTH = 64;
+
+	/**
+	 * @param nodes the number of task apps in the graph.
+	 * @return the DSL of the graph.
+	 */
+	public abstract String graph(int nodes);
+
+	/**
+	 * @param nodes the number of task apps in the graph.
+	 * @return the names of the task apps of the graph.
+	 */
+	public List<String> taskNames(int nodes) {
+		return names(0, nodes);
+	}
+
+	private static List<String> names(int first, int count) {
+		List<String> taskNames = new ArrayList<>(count);
+		for (int i = first; i < first + count; i++) {
+			taskNames.add("task" + i);
+		}
+		return taskNames;
+	}
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner.benchmarks;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.cloud.task.app.composedtaskrunner.support.VirtualThreadTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Compares the split {@link TaskExecutor}s for splits 10, 100 and 1000 wide,
+ * where every split flow waits on its task execution as the tasklet of a step
+ * does.  The platform thread pool is sized to the width of the split so that
+ * all the flows run at once.  Virtual threads require Java 21 or later.
+ *
+ * Besides the time to run a split, the benchmark reports:
+ * <ul>
+ * <li>{@code liveThreads}, {@code rssKilobytes}: the live threads and the
+ * resident set size of the JVM while all the flows of a split are waiting.</li>
+ * <li>{@code startLatencyMicros}, {@code p99StartLatencyMicros}: the time
+ * between submitting a flow and the flow starting, summed over the flows and
+ * the 99th percentile of each split.</li>
+ * <li>{@code splits}, {@code flows}: the splits and the flows run.</li>
+ * </ul>
+ * {@link BenchmarkRunner} reports these per split and per flow.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SplitTaskExecutorBenchmark {
+
+	@Param({"PLATFORM", "VIRTUAL"})
+	private String executor;
+
+	@Param({"10", "100", "1000"})
+	private int width;
+
+	/**
+	 * The time in millis each flow waits on its task execution.
+	 */
+	@Param({"200"})
+	private long waitMillis;
+
+	private TaskExecutor taskExecutor;
+
+	@Setup
+	public void setup() {
+		if ("VIRTUAL".equals(this.executor)) {
+			this.taskExecutor = new VirtualThreadTaskExecutor(this.width, false);
+		}
+		else {
+			ThreadPoolTaskExecutor platformExecutor = new ThreadPoolTaskExecutor();
+			platformExecutor.setCorePoolSize(this.width);
+			platformExecutor.initialize();
+			this.taskExecutor = platformExecutor;
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (this.taskExecutor instanceof ThreadPoolTaskExecutor) {
+			((ThreadPoolTaskExecutor) this.taskExecutor).shutdown();
+		}
+	}
+
+	@Benchmark
+	public void runSplit(Metrics metrics) throws Exception {
+		long[] latencies = new long[this.width];
+		CountDownLatch started = new CountDownLatch(this.width);
+		CountDownLatch completed = new CountDownLatch(this.width);
+		for (int i = 0; i < this.width; i++) {
+			int flow = i;
+			long submitted = System.nanoTime();
+			this.taskExecutor.execute(() -> {
+				latencies[flow] = System.nanoTime() - submitted;
+				started.countDown();
+				try {
+					Thread.sleep(this.waitMillis);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				completed.countDown();
+			});
+		}
+		started.await();
+		metrics.liveThreads += ManagementFactory.getThreadMXBean().getThreadCount();
+		metrics.rssKilobytes += residentSetSize();
+		completed.await();
+
+		Arrays.sort(latencies);
+		for (long latency : latencies) {
+			metrics.startLatencyMicros += TimeUnit.NANOSECONDS.toMicros(latency);
+		}
+		metrics.p99StartLatencyMicros += TimeUnit.NANOSECONDS.toMicros(
+				latencies[(int) (this.width * 0.99)]);
+		metrics.splits++;
+		metrics.flows += this.width;
+	}
+
+	/**
+	 * @return the resident set size of the JVM in KB, or 0 if not available on
+	 * this platform.
+	 */
+	private static long residentSetSize() throws IOException {
+		Path status = Paths.get("/proc/self/status");
+		if (!Files.exists(status)) {
+			return 0;
+		}
+		for (String line : Files.readAllLines(status)) {
+			if (line.startsWith("VmRSS:")) {
+				return Long.parseLong(line.replaceAll("[^0-9]", ""));
+			}
+		}
+		return 0;
+	}
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Metrics {
+
+		public long splits;
+
+		public long flows;
+
+		public long liveThreads;
+
+		public long rssKilobytes;
+
+		public long startLatencyMicros;
+
+		public long p99StartLatencyMicros;
+
+	}
+
+}
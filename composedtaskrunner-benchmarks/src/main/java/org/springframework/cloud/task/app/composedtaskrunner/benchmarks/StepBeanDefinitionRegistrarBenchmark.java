@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.SimpleBeanDefinitionRegistry;
+import org.springframework.cloud.task.app.composedtaskrunner.StepBeanDefinitionRegistrar;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+/**
+ * Measures the registration of the step bean definitions of a composed task,
+ * which includes parsing the graph and resolving the deployment properties of
+ * each task app.  Each task app of the graph has a deployment property.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss16m")
+public class StepBeanDefinitionRegistrarBenchmark {
+
+	@Param({"SEQUENCE", "WIDE_SPLIT", "NESTED_SPLIT", "TRANSITIONS"})
+	private GraphShape shape;
+
+	@Param({"10", "100", "1000", "10000"})
+	private int nodes;
+
+	private StepBeanDefinitionRegistrar registrar;
+
+	@Setup
+	public void setup() {
+		StringBuilder composedTaskProperties = new StringBuilder();
+		for (String taskName : this.shape.taskNames(this.nodes)) {
+			if (composedTaskProperties.length() > 0) {
+				composedTaskProperties.append(", ");
+			}
+			composedTaskProperties.append("app.").append(taskName).append(".format=yyyy");
+		}
+		Map<String, Object> properties = new HashMap<>();
+		properties.put("graph", this.shape.graph(this.nodes));
+		properties.put("composed-task-properties", composedTaskProperties.toString());
+		properties.put("composed-task-arguments", "--increment-instance-enabled=true");
+		StandardEnvironment environment = new StandardEnvironment();
+		environment.getPropertySources().addFirst(
+				new MapPropertySource("benchmark", properties));
+		this.registrar = new StepBeanDefinitionRegistrar();
+		this.registrar.setEnvironment(environment);
+	}
+
+	@Benchmark
+	public BeanDefinitionRegistry registerBeanDefinitions() {
+		BeanDefinitionRegistry registry = new SimpleBeanDefinitionRegistry();
+		this.registrar.registerBeanDefinitions(null, registry);
+		return registry;
+	}
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.cloud.dataflow.rest.client.TaskOperations;
+import org.springframework.cloud.task.configuration.TaskConfigurer;
+import org.springframework.cloud.task.repository.TaskExecution;
+import org.springframework.cloud.task.repository.TaskExplorer;
+
+/**
+ * Stands in for Spring Cloud Data Flow and the task repository.  A launched
+ * task completes successfully once the completion latency has elapsed, without
+ * running anything.  Only the operations used by the tasklets and the step
+ * listener are supported.
+ */
+public class StubTaskPlatform {
+
+	private final long completionLatencyNanos;
+
+	private final AtomicLong executionIds = new AtomicLong();
+
+	private final AtomicLong statusQueries = new AtomicLong();
+
+	private final Map<Long, TaskExecution> taskExecutions = new ConcurrentHashMap<>();
+
+	private final Map<Long, Long> completionTimes = new ConcurrentHashMap<>();
+
+	/**
+	 * @param completionLatency the time in millis a launched task takes to complete.
+	 */
+	public StubTaskPlatform(long completionLatency) {
+		this.completionLatencyNanos = TimeUnit.MILLISECONDS.toNanos(completionLatency);
+	}
+
+	/**
+	 * @return the number of times the status of a task execution was queried.
+	 */
+	public long getStatusQueries() {
+		return this.statusQueries.get();
+	}
+
+	public TaskOperations taskOperations() {
+		return (TaskOperations) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] {TaskOperations.class}, (proxy, method, args) -> {
+					if (method.getName().equals("launch")) {
+						return launch((String) args[0]);
+					}
+					return unsupported(proxy, method.getName(), args);
+				});
+	}
+
+	public TaskExplorer taskExplorer() {
+		return (TaskExplorer) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] {TaskExplorer.class}, (proxy, method, args) -> {
+					if (method.getName().equals("getTaskExecution")) {
+						return getTaskExecution((Long) args[0]);
+					}
+					return unsupported(proxy, method.getName(), args);
+				});
+	}
+
+	public TaskConfigurer taskConfigurer() {
+		TaskExplorer taskExplorer = taskExplorer();
+		return (TaskConfigurer) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] {TaskConfigurer.class}, (proxy, method, args) -> {
+					if (method.getName().equals("getTaskExplorer")) {
+						return taskExplorer;
+					}
+					return unsupported(proxy, method.getName(), args);
+				});
+	}
+
+	private long launch(String taskName) {
+		long executionId = this.executionIds.incrementAndGet();
+		TaskExecution taskExecution = new TaskExecution();
+		taskExecution.setExecutionId(executionId);
+		taskExecution.setTaskName(taskName);
+		taskExecution.setStartTime(new Date());
+		this.taskExecutions.put(executionId, taskExecution);
+		this.completionTimes.put(executionId, System.nanoTime() + this.completionLatencyNanos);
+		return executionId;
+	}
+
+	private TaskExecution getTaskExecution(long executionId) {
+		this.statusQueries.incrementAndGet();
+		TaskExecution taskExecution = this.taskExecutions.get(executionId);
+		if (taskExecution != null && taskExecution.getEndTime() == null &&
+				System.nanoTime() >= this.completionTimes.get(executionId)) {
+			TaskExecution completedExecution = new TaskExecution();
+			completedExecution.setExecutionId(executionId);
+			completedExecution.setTaskName(taskExecution.getTaskName());
+			completedExecution.setStartTime(taskExecution.getStartTime());
+			completedExecution.setEndTime(new Date());
+			completedExecution.setExitCode(0);
+			this.taskExecutions.put(executionId, completedExecution);
+			taskExecution = completedExecution;
+		}
+		return taskExecution;
+	}
+
+	private Object unsupported(Object proxy, String methodName, Object[] args) {
+		if (methodName.equals("equals")) {
+			return proxy == args[0];
+		}
+		if (methodName.equals("toString")) {
+			return getClass().getSimpleName();
+		}
+		if (methodName.equals("hashCode")) {
+			return System.identityHashCode(proxy);
+		}
+		throw new UnsupportedOperationException(methodName + " is not supported by the benchmark");
+	}
+
+}
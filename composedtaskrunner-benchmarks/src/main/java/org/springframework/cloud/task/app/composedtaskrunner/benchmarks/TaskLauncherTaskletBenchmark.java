@@ -0,0 +1,404 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.configuration.annotation.BatchConfigurer;
+import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.TaskletStep;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.batch.BatchProperties;
+import org.springframework.cloud.dataflow.rest.client.TaskOperations;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedBatchConfigurer;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedRunnerJobFactory;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskStepExecutionListener;
+import org.springframework.cloud.task.app.composedtaskrunner.StepBeanDefinitionRegistrar;
+import org.springframework.cloud.task.app.composedtaskrunner.TaskExecutionCompletionNotifier;
+import org.springframework.cloud.task.app.composedtaskrunner.TaskExecutionStatusCache;
+import org.springframework.cloud.task.app.composedtaskrunner.properties.ComposedTaskProperties;
+import org.springframework.cloud.task.configuration.TaskConfigurer;
+import org.springframework.cloud.task.configuration.TaskProperties;
+import org.springframework.cloud.task.repository.TaskNameResolver;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Measures the overhead of the Composed Task Runner itself while it launches
+ * task apps and waits for them to complete.  The job is created by the
+ * {@link StepBeanDefinitionRegistrar} and the {@link ComposedRunnerJobFactory}
+ * as in the Composed Task Runner, and runs against a Spring Batch job repository
+ * backed by an embedded database.  Task apps are launched on a
+ * {@link StubTaskPlatform} where they complete after the completion latency.
+ *
+ * Besides the time per job, the benchmark reports:
+ * <ul>
+ * <li>{@code overheadMicros}: the wall clock time of the jobs minus the time
+ * spent waiting for task apps on the critical path of the graph.</li>
+ * <li>{@code repositoryWrites}: the step executions and step execution
+ * contexts written to the job repository.</li>
+ * <li>{@code pollAllocatedBytes}: the bytes allocated by the step threads
+ * while checking for the completion of a task app, including the commit of the
+ * chunk.  When the checks happen outside of the step transaction, a poll is a
+ * chunk that follows the wait for the task app.</li>
+ * <li>{@code nodes}, {@code polls}: the steps executed and the checks for the
+ * completion of a task app.</li>
+ * </ul>
+ * {@link BenchmarkRunner} reports these per step and per poll.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskLauncherTaskletBenchmark {
+
+	@Param({"SEQUENCE", "WIDE_SPLIT"})
+	private GraphShape shape;
+
+	@Param({"10", "100"})
+	private int nodes;
+
+	/**
+	 * The time in millis a launched task app takes to complete.
+	 */
+	@Param({"0", "200"})
+	private long completionLatency;
+
+	@Param({"50"})
+	private int intervalTimeBetweenChecks;
+
+	@Param({"false", "true"})
+	private boolean checksOutsideTransactionEnabled;
+
+	private Map<String, Object> properties;
+
+	private AnnotationConfigApplicationContext context;
+
+	private JobLauncher jobLauncher;
+
+	private Job job;
+
+	private CountingBatchConfigurer batchConfigurer;
+
+	private PollAllocationListener pollAllocationListener;
+
+	@Setup
+	public void setup() {
+		this.properties = new HashMap<>();
+		this.properties.put("graph", this.shape.graph(this.nodes));
+		this.properties.put("interval-time-between-checks", this.intervalTimeBetweenChecks);
+		this.properties.put("split-thread-core-pool-size", this.nodes);
+		this.properties.put("checks-outside-transaction-enabled",
+				this.checksOutsideTransactionEnabled);
+	}
+
+	/**
+	 * The tasklets keep the state of the task app they launch, so as in the
+	 * Composed Task Runner a job is only run once.  The job and its context are
+	 * created for each invocation, outside of the measured time.
+	 */
+	@Setup(Level.Invocation)
+	public void createJob() {
+		StubTaskPlatform taskPlatform = new StubTaskPlatform(this.completionLatency);
+		this.context = new AnnotationConfigApplicationContext();
+		this.context.getEnvironment().getPropertySources().addFirst(
+				new MapPropertySource("benchmark", this.properties));
+		this.context.registerBean(StubTaskPlatform.class, () -> taskPlatform);
+		this.context.register(BenchmarkConfiguration.class);
+		this.context.refresh();
+		this.jobLauncher = this.context.getBean(JobLauncher.class);
+		this.job = this.context.getBean(Job.class);
+		this.batchConfigurer = this.context.getBean(CountingBatchConfigurer.class);
+		this.pollAllocationListener = this.context.getBean(PollAllocationListener.class);
+	}
+
+	@TearDown(Level.Invocation)
+	public void closeJob() {
+		this.context.close();
+	}
+
+	@Benchmark
+	public JobExecution runJob(Metrics metrics) throws Exception {
+		long start = System.nanoTime();
+
+		JobExecution jobExecution = this.jobLauncher.run(this.job, new JobParameters());
+
+		long elapsed = System.nanoTime() - start;
+		if (jobExecution.getStatus() != BatchStatus.COMPLETED) {
+			throw new IllegalStateException("Job failed " + jobExecution.getAllFailureExceptions());
+		}
+		long criticalPath = (this.shape == GraphShape.SEQUENCE ? this.nodes : 1) *
+				TimeUnit.MILLISECONDS.toNanos(this.completionLatency);
+		metrics.overheadMicros += TimeUnit.NANOSECONDS.toMicros(elapsed - criticalPath);
+		metrics.nodes += this.nodes;
+		metrics.repositoryWrites += this.batchConfigurer.getWrites();
+		metrics.polls += this.pollAllocationListener.getPolls();
+		metrics.pollAllocatedBytes += this.pollAllocationListener.getAllocatedBytes();
+		return jobExecution;
+	}
+
+	/**
+	 * Totals of the measured jobs, reported by JMH for each iteration.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Metrics {
+
+		public long nodes;
+
+		public long overheadMicros;
+
+		public long repositoryWrites;
+
+		public long polls;
+
+		public long pollAllocatedBytes;
+
+	}
+
+	@Configuration
+	@EnableBatchProcessing
+	@Import(StepBeanDefinitionRegistrar.class)
+	static class BenchmarkConfiguration {
+
+		@Bean
+		public DataSource dataSource() {
+			return new EmbeddedDatabaseBuilder()
+					.generateUniqueName(true)
+					.setType(EmbeddedDatabaseType.H2)
+					.addScript("classpath:org/springframework/batch/core/schema-h2.sql")
+					.build();
+		}
+
+		@Bean
+		public BatchConfigurer batchConfigurer(DataSource dataSource) {
+			return new CountingBatchConfigurer(dataSource);
+		}
+
+		@Bean
+		public ComposedTaskProperties composedTaskProperties(Environment environment) {
+			ComposedTaskProperties properties = new ComposedTaskProperties();
+			properties.setGraph(environment.getProperty("graph"));
+			properties.setIntervalTimeBetweenChecks(
+					environment.getProperty("interval-time-between-checks", Integer.class));
+			properties.setSplitThreadCorePoolSize(
+					environment.getProperty("split-thread-core-pool-size", Integer.class));
+			return properties;
+		}
+
+		@Bean
+		public ComposedRunnerJobFactory composedTaskJob(ComposedTaskProperties properties) {
+			return new ComposedRunnerJobFactory(properties);
+		}
+
+		@Bean
+		public TaskExecutor taskExecutor(ComposedTaskProperties properties) {
+			ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+			taskExecutor.setCorePoolSize(properties.getSplitThreadCorePoolSize());
+			taskExecutor.setDaemon(true);
+			return taskExecutor;
+		}
+
+		@Bean
+		public TaskOperations taskOperations(StubTaskPlatform taskPlatform) {
+			return taskPlatform.taskOperations();
+		}
+
+		@Bean
+		public TaskConfigurer taskConfigurer(StubTaskPlatform taskPlatform) {
+			return taskPlatform.taskConfigurer();
+		}
+
+		@Bean
+		public TaskProperties taskProperties() {
+			return new TaskProperties();
+		}
+
+		@Bean
+		public TaskNameResolver taskNameResolver() {
+			return () -> "composed-task-runner";
+		}
+
+		@Bean
+		public TaskExecutionStatusCache taskExecutionStatusCache() {
+			return new TaskExecutionStatusCache();
+		}
+
+		@Bean
+		public TaskExecutionCompletionNotifier taskExecutionCompletionNotifier() {
+			return new TaskExecutionCompletionNotifier();
+		}
+
+		@Bean
+		public StepExecutionListener composedTaskStepExecutionListener(
+				StubTaskPlatform taskPlatform) {
+			ComposedTaskStepExecutionListener listener =
+					new ComposedTaskStepExecutionListener(taskPlatform.taskExplorer());
+			listener.setStatusCache(taskExecutionStatusCache());
+			return listener;
+		}
+
+		@Bean
+		public static PollAllocationListener pollAllocationListener() {
+			return new PollAllocationListener();
+		}
+
+	}
+
+	/**
+	 * Measures the bytes allocated by a step thread for each chunk that checks
+	 * for the completion of a task app, the first chunk of a step launching it.
+	 * Registers itself with the steps of the task apps.
+	 */
+	static class PollAllocationListener implements ChunkListener, BeanPostProcessor {
+
+		private static final com.sun.management.ThreadMXBean threadMXBean =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+		private final ThreadLocal<Long> chunkStart = new ThreadLocal<>();
+
+		private final AtomicLong polls = new AtomicLong();
+
+		private final AtomicLong allocatedBytes = new AtomicLong();
+
+		@Override
+		public Object postProcessAfterInitialization(Object bean, String beanName) {
+			if (bean instanceof TaskletStep) {
+				((TaskletStep) bean).registerChunkListener(this);
+			}
+			return bean;
+		}
+
+		@Override
+		public void beforeChunk(ChunkContext context) {
+			boolean launched = context.getStepContext().getStepExecution()
+					.getExecutionContext().containsKey("task-execution-id");
+			this.chunkStart.set(launched ?
+					threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId()) : null);
+		}
+
+		@Override
+		public void afterChunk(ChunkContext context) {
+			Long start = this.chunkStart.get();
+			if (start != null) {
+				this.polls.incrementAndGet();
+				this.allocatedBytes.addAndGet(threadMXBean.getThreadAllocatedBytes(
+						Thread.currentThread().getId()) - start);
+				this.chunkStart.remove();
+			}
+		}
+
+		@Override
+		public void afterChunkError(ChunkContext context) {
+			this.chunkStart.remove();
+		}
+
+		long getPolls() {
+			return this.polls.get();
+		}
+
+		long getAllocatedBytes() {
+			return this.allocatedBytes.get();
+		}
+
+	}
+
+	/**
+	 * Batch configurer of the Composed Task Runner counting the writes of step
+	 * executions to the job repository.
+	 */
+	static class CountingBatchConfigurer extends ComposedBatchConfigurer {
+
+		private final AtomicLong writes = new AtomicLong();
+
+		CountingBatchConfigurer(DataSource dataSource) {
+			super(new BatchProperties(), dataSource, null);
+		}
+
+		long getWrites() {
+			return this.writes.get();
+		}
+
+		@Override
+		protected JobRepository createJobRepository() throws Exception {
+			JobRepository jobRepository = super.createJobRepository();
+			return (JobRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+					new Class<?>[] {JobRepository.class}, (proxy, method, args) -> {
+						if (args != null && args.length == 1) {
+							if (args[0] instanceof StepExecution) {
+								this.writes.incrementAndGet();
+							}
+							else if (args[0] instanceof Collection) {
+								this.writes.addAndGet(((Collection<?>) args[0]).size());
+							}
+						}
+						try {
+							return method.invoke(jobRepository, args);
+						}
+						catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					});
+		}
+
+	}
+
+}
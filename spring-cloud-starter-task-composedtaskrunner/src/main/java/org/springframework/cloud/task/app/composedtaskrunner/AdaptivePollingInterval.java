@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.cloud.task.repository.TaskExecution;
+import org.springframework.cloud.task.repository.TaskExplorer;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.util.Assert;
+
+/**
+ * Computes the time a {@link TaskLauncherTasklet} waits between checks of its
+ * task execution.  Checks start at the initial interval and back off
+ * exponentially, with jitter, up to the maximum interval.  If the expected
+ * duration of the task is known the tasklet first waits until the task is
+ * expected to complete before starting the fast checks.
+ *
+ * Note: This class is not thread-safe, one instance is used per task execution.
+ */
+public class AdaptivePollingInterval {
+
+	/**
+	 * The maximum fraction by which an interval is randomly shortened or lengthened.
+	 */
+	static final double JITTER = 0.1;
+
+	private final long initialInterval;
+
+	private final long maxInterval;
+
+	private final double multiplier;
+
+	private final long expectedDuration;
+
+	private long currentInterval;
+
+	/**
+	 * @param initialInterval the interval in millis of the first checks.
+	 * @param maxInterval the maximum interval in millis between checks.
+	 * @param multiplier the factor applied to the interval after each check.
+	 * @param expectedDuration the expected duration in millis of the task, zero if unknown.
+	 */
+	public AdaptivePollingInterval(long initialInterval, long maxInterval,
+			double multiplier, long expectedDuration) {
+		Assert.isTrue(initialInterval > 0, "initialInterval must be greater than zero.");
+		Assert.isTrue(maxInterval >= initialInterval,
+				"maxInterval must be equal or greater than initialInterval.");
+		Assert.isTrue(multiplier >= 1, "multiplier must be equal or greater than 1.");
+
+		this.initialInterval = initialInterval;
+		this.maxInterval = maxInterval;
+		this.multiplier = multiplier;
+		this.expectedDuration = expectedDuration;
+		this.currentInterval = initialInterval;
+	}
+
+	/**
+	 * @param elapsedTime the time in millis since the task was launched.
+	 * @return the time in millis to wait before the next check.
+	 */
+	public long nextInterval(long elapsedTime) {
+		long interval;
+		if (this.expectedDuration > elapsedTime + this.initialInterval) {
+			interval = this.expectedDuration - elapsedTime;
+		}
+		else {
+			interval = this.currentInterval;
+			this.currentInterval = Math.min(this.maxInterval,
+					(long) (this.currentInterval * this.multiplier));
+		}
+		interval = Math.min(interval, this.maxInterval);
+		double jitter = ThreadLocalRandom.current().nextDouble(-JITTER, JITTER);
+		return Math.max(1, interval + (long) (interval * jitter));
+	}
+
+	/**
+	 * Computes the median duration of the most recent successful executions of
+	 * the task.
+	 * @param taskExplorer the explorer used to retrieve the previous executions.
+	 * @param taskName the name of the task definition.
+	 * @param historySize the number of most recent executions to consider.
+	 * @return the median duration in millis, or zero if there is no history.
+	 */
+	public static long medianDuration(TaskExplorer taskExplorer, String taskName,
+			int historySize) {
+		if (historySize <= 0) {
+			return 0;
+		}
+		List<Long> durations = new ArrayList<>(historySize);
+		for (TaskExecution taskExecution : taskExplorer.findTaskExecutionsByName(taskName,
+				PageRequest.of(0, historySize))) {
+			if (taskExecution.getStartTime() != null && taskExecution.getEndTime() != null
+					&& taskExecution.getExitCode() != null && taskExecution.getExitCode() == 0) {
+				durations.add(taskExecution.getEndTime().getTime() -
+						taskExecution.getStartTime().getTime());
+			}
+		}
+		if (durations.isEmpty()) {
+			return 0;
+		}
+		Collections.sort(durations);
+		return durations.get(durations.size() / 2);
+	}
+
+}
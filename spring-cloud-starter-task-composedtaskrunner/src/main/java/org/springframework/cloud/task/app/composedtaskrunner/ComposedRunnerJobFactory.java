@@ -17,30 +17,34 @@
 package org.springframework.cloud.task.app.composedtaskrunner;
 
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.LinkedList;
-import java.util.Map;
+import java.util.List;
+import java.util.ListIterator;
 import java.util.UUID;
 
 import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecutionListener;
 import org.springframework.batch.core.Step;
 import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
 import org.springframework.batch.core.job.builder.FlowBuilder;
 import org.springframework.batch.core.job.builder.FlowJobBuilder;
 import org.springframework.batch.core.job.flow.Flow;
 import org.springframework.batch.core.launch.support.RunIdIncrementer;
+import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cloud.dataflow.core.dsl.FlowNode;
-import org.springframework.cloud.dataflow.core.dsl.LabelledTaskNode;
-import org.springframework.cloud.dataflow.core.dsl.SplitNode;
-import org.springframework.cloud.dataflow.core.dsl.TaskAppNode;
-import org.springframework.cloud.dataflow.core.dsl.TaskParser;
-import org.springframework.cloud.dataflow.core.dsl.TransitionNode;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskPlan.Element;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskPlan.SequenceElement;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskPlan.SplitElement;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskPlan.StepElement;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskPlan.Transition;
 import org.springframework.cloud.task.app.composedtaskrunner.properties.ComposedTaskProperties;
+import org.springframework.cloud.task.app.composedtaskrunner.support.WorkStealingSplitState;
+import org.springframework.cloud.task.app.composedtaskrunner.support.WorkStealingTaskExecutor;
 import org.springframework.cloud.task.repository.TaskNameResolver;
 import org.springframework.context.ApplicationContext;
 import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.util.Assert;
 
 /**
@@ -65,19 +69,21 @@ public class ComposedRunnerJobFactory implements FactoryBean<Job> {
 	@Autowired
 	private TaskNameResolver taskNameResolver;
 
-	private final ComposedTaskProperties composedTaskProperties;
-
-	private FlowBuilder<Flow> flowBuilder;
+	@Autowired
+	private JobRepository jobRepository;
 
-	private Map<String, Integer> taskBeanSuffixes = new HashMap<>();
+	@Autowired(required = false)
+	private ComposedTaskTracing tracing;
 
-	private Deque<Flow> jobDeque = new LinkedList<>();
+	@Autowired(required = false)
+	private ComposedTaskTimelineListener timelineListener;
 
-	private Deque<LabelledTaskNode> visitorDeque;
+	@Autowired(required = false)
+	private CriticalPathAnalyzer criticalPathAnalyzer;
 
-	private Deque<Flow> executionDeque = new LinkedList<>();
+	private final ComposedTaskProperties composedTaskProperties;
 
-	private String dsl;
+	private FlowBuilder<Flow> flowBuilder;
 
 	private boolean incrementInstanceEnabled;
 
@@ -85,33 +91,42 @@ public class ComposedRunnerJobFactory implements FactoryBean<Job> {
 
 	private boolean hasNestedSplit = false;
 
+	private int splitDepth = 0;
+
 	public ComposedRunnerJobFactory(ComposedTaskProperties properties) {
 		this.composedTaskProperties = properties;
 		Assert.notNull(properties.getGraph(), "The DSL must not be null");
-		this.dsl = properties.getGraph();
 		this.incrementInstanceEnabled = properties.isIncrementInstanceEnabled();
 		this.flowBuilder = new FlowBuilder<>(UUID.randomUUID().toString());
 	}
 
 	@Override
 	public Job getObject() throws Exception {
-		ComposedRunnerVisitor composedRunnerVisitor = new ComposedRunnerVisitor();
-
-		TaskParser taskParser = new TaskParser("composed-task-runner",
-				this.dsl,false,true);
-		taskParser.parse().accept(composedRunnerVisitor);
-
-		this.visitorDeque = composedRunnerVisitor.getFlow();
+		ComposedTaskPlan plan = ComposedTaskPlanCompiler.compile(this.composedTaskProperties);
+		validateLaunchLimit(plan);
 
 		FlowJobBuilder builder = this.jobBuilderFactory
 				.get(this.taskNameResolver.getTaskName())
 				.start(this.flowBuilder
-						.start(createFlow())
+						.start(createFlow(plan))
 						.end())
 				.end();
 		if(this.incrementInstanceEnabled) {
 			builder.incrementer(new RunIdIncrementer());
 		}
+		if (this.composedTaskProperties.isCompactExecutionContextEnabled()) {
+			builder.listener(new ComposedTaskArgumentsListener(this.jobRepository,
+					this.composedTaskProperties.getComposedTaskArguments()));
+		}
+		if (this.tracing != null) {
+			builder.listener((JobExecutionListener) this.tracing);
+		}
+		if (this.timelineListener != null) {
+			builder.listener((JobExecutionListener) this.timelineListener);
+		}
+		if (this.criticalPathAnalyzer != null) {
+			builder.listener(this.criticalPathAnalyzer);
+		}
 		return builder.build();
 	}
 
@@ -125,142 +140,123 @@ public class ComposedRunnerJobFactory implements FactoryBean<Job> {
 		return true;
 	}
 
-	private Flow createFlow() {
+	/**
+	 * A step waiting for a permit of the {@link TaskLaunchGovernor} holds its
+	 * split thread, so with fewer permits than split flows a thread pool smaller
+	 * than the flows can fill up with waiting steps and with flows waiting for
+	 * their nested split, while the flows queued for a thread wait forever.
+	 */
+	private void validateLaunchLimit(ComposedTaskPlan plan) {
+		int maxConcurrentTasks = this.composedTaskProperties.getMaxConcurrentTasks();
+		if (maxConcurrentTasks > 0 && this.taskExecutor instanceof ThreadPoolTaskExecutor &&
+				!this.composedTaskProperties.isSplitThreadCallerRunsEnabled() &&
+				!this.composedTaskProperties.isSplitThreadAutoSizeEnabled()) {
+			int maxParallelFlows = plan.getMaxParallelFlows();
+			int threadCorePoolSize = ((ThreadPoolTaskExecutor) this.taskExecutor).getCorePoolSize();
+			Assert.isTrue(maxConcurrentTasks >= maxParallelFlows || threadCorePoolSize >= maxParallelFlows,
+					"Split thread core pool size " + threadCorePoolSize + " should be equal or greater "
+							+ "than the " + maxParallelFlows + " split flows when max concurrent tasks "
+							+ maxConcurrentTasks + " is less than the split flows."
+							+ " Try setting the composed task property `splitThreadCorePoolSize`,"
+							+ " `splitThreadCallerRunsEnabled` or `splitThreadWorkStealingEnabled`");
+		}
+	}
 
-		while (!this.visitorDeque.isEmpty()) {
+	private Flow createFlow(ComposedTaskPlan plan) {
+		Flow result = null;
+		List<SequenceElement> sequences = plan.getSequences();
 
-			if (this.visitorDeque.peek() instanceof TaskAppNode) {
-				TaskAppNode taskAppNode = (TaskAppNode) this.visitorDeque.pop();
+		for (ListIterator<SequenceElement> iterator = sequences.listIterator(sequences.size());
+				iterator.hasPrevious();) {
+			Deque<Flow> flows = createFlows(iterator.previous());
 
-				if (taskAppNode.hasTransitions()) {
-					handleTransition(this.executionDeque, taskAppNode);
-				}
-				else {
-					this.executionDeque.push(getTaskAppFlow(taskAppNode));
-				}
-			}
-			//When end marker of a split is found, process the split
-			else if (this.visitorDeque.peek() instanceof SplitNode) {
-				Deque<LabelledTaskNode> splitNodeDeque = new LinkedList<>();
-				SplitNode splitNode = (SplitNode) this.visitorDeque.pop();
-				splitNodeDeque.push(splitNode);
-				while (!this.visitorDeque.isEmpty() && !this.visitorDeque.peek().equals(splitNode)) {
-					splitNodeDeque.push(this.visitorDeque.pop());
-				}
-				splitNodeDeque.push(this.visitorDeque.pop());
-				handleSplit(splitNodeDeque, splitNode);
+			if (!flows.isEmpty()) {
+				this.flowBuilder.start(flows.pop());
 			}
-			//When start marker of a DSL flow is found, process it.
-			else if (this.visitorDeque.peek() instanceof FlowNode) {
-				handleFlow(this.executionDeque);
+
+			while (!flows.isEmpty()) {
+				this.flowBuilder.next(flows.pop());
 			}
+
+			result = this.flowBuilder.end();
 		}
 
-		return this.jobDeque.pop();
+		return result;
 	}
 
-	private void handleFlow(Deque<Flow> executionDeque) {
-		if(!executionDeque.isEmpty()) {
-			this.flowBuilder.start(executionDeque.pop());
-		}
-
-		while (!executionDeque.isEmpty()) {
-				this.flowBuilder.next(executionDeque.pop());
-		}
+	/**
+	 * Creates the flows for the elements of the sequence.  Elements are
+	 * processed from the last to the first, as they were compiled.
+	 */
+	private Deque<Flow> createFlows(SequenceElement sequence) {
+		Deque<Flow> flows = new LinkedList<>();
+		List<Element> elements = sequence.getElements();
 
-		this.visitorDeque.pop();
-		this.jobDeque.push(this.flowBuilder.end());
-	}
+		for (ListIterator<Element> iterator = elements.listIterator(elements.size());
+				iterator.hasPrevious();) {
+			Element element = iterator.previous();
 
-	private void handleSplit(Deque<LabelledTaskNode> visitorDeque, SplitNode splitNode) {
-		this.executionDeque.push(processSplitNode(visitorDeque, splitNode));
+			if (element instanceof StepElement) {
+				flows.push(getTaskAppFlow((StepElement) element));
+			}
+			else if (element instanceof SplitElement) {
+				flows.push(processSplit((SplitElement) element));
+			}
+			else if (element instanceof SequenceElement) {
+				flows.push(handleFlowForSegment((SequenceElement) element));
+			}
+		}
+		return flows;
 	}
 
-	private Flow processSplitNode(Deque<LabelledTaskNode> visitorDeque, SplitNode splitNode) {
+	private Flow processSplit(SplitElement split) {
+		if (this.splitDepth > 0) {
+			this.hasNestedSplit = true;
+		}
+		this.splitDepth++;
 		Deque<Flow> flows = new LinkedList<>();
-		//For each node in the split process it as a DSL flow.
-		for (LabelledTaskNode taskNode : splitNode.getSeries()) {
-			Deque<Flow> resultFlowDeque = new LinkedList<>();
-			flows.addAll(processSplitFlow(taskNode, resultFlowDeque));
+		//For each branch in the split process it as a DSL flow.
+		for (SequenceElement branch : split.getBranches()) {
+			flows.add(handleFlowForSegment(branch));
 		}
-		removeProcessedNodes(visitorDeque, splitNode);
-		Flow nestedSplitFlow = new FlowBuilder.SplitBuilder<>(
-				new FlowBuilder<Flow>("Split" + UUID.randomUUID().toString()),
-				taskExecutor)
-				.add(flows.toArray(new Flow[flows.size()]))
-				.build();
+		this.splitDepth--;
+		Flow nestedSplitFlow = (taskExecutor instanceof WorkStealingTaskExecutor) ?
+				WorkStealingSplitState.createFlow("Split" + UUID.randomUUID().toString(), flows,
+						(WorkStealingTaskExecutor) taskExecutor) :
+				new FlowBuilder.SplitBuilder<>(
+						new FlowBuilder<Flow>("Split" + UUID.randomUUID().toString()),
+						taskExecutor)
+						.add(flows.toArray(new Flow[flows.size()]))
+						.build();
 		FlowBuilder<Flow> taskAppFlowBuilder =
 				new FlowBuilder<>("Flow" + UUID.randomUUID().toString());
-		if (this.hasNestedSplit) {
+		if (this.hasNestedSplit && !this.composedTaskProperties.isSplitThreadCallerRunsEnabled() &&
+				!this.composedTaskProperties.isSplitThreadAutoSizeEnabled() &&
+				!(taskExecutor instanceof WorkStealingTaskExecutor)) {
 			this.splitFlows = flows.size();
-			int threadCorePoolSize = this.composedTaskProperties.getSplitThreadCorePoolSize();
-			Assert.isTrue(threadCorePoolSize >= this.splitFlows,
-					"Split thread core pool size " + threadCorePoolSize + " should be equal or greater "
-							+ "than the depth of split flows " + (this.splitFlows +1) + "."
-							+ " Try setting the composed task property `splitThreadCorePoolSize`");
-		}
-		return taskAppFlowBuilder.start(nestedSplitFlow).end();
-	}
-
-	private void removeProcessedNodes(Deque<LabelledTaskNode> visitorDeque, SplitNode splitNode) {
-		//remove the nodes of the split since it has already been processed
-		while (visitorDeque.peek() != null && !(visitorDeque.peek().equals(splitNode))) {
-			visitorDeque.pop();
-		}
-		// pop the SplitNode that marks the beginning of the split from the deque
-		if (visitorDeque.peek() != null) {
-			visitorDeque.pop();
-		}
-	}
-
-	/**
-	 * Processes each node in split as a  DSL Flow.
-	 * @param node represents a single node in the split.
-	 * @return Deque of Job Flows that was obtained from the Node.
-	 */
-	private Deque<Flow> processSplitFlow(LabelledTaskNode node, Deque<Flow> resultFlowDeque) {
-		TaskParser taskParser = new TaskParser("split_flow" + UUID.randomUUID().toString(), node.stringify(),
-				false, true);
-		ComposedRunnerVisitor splitElementVisitor = new ComposedRunnerVisitor();
-		taskParser.parse().accept(splitElementVisitor);
-
-		Deque splitElementDeque = splitElementVisitor.getFlow();
-		Deque<Flow> elementFlowDeque = new LinkedList<>();
-
-		while (!splitElementDeque.isEmpty()) {
-
-			if (splitElementDeque.peek() instanceof TaskAppNode) {
-
-				TaskAppNode taskAppNode = (TaskAppNode) splitElementDeque.pop();
-
-				if (taskAppNode.hasTransitions()) {
-					handleTransition(elementFlowDeque, taskAppNode);
-				}
-				else {
-					elementFlowDeque.push(
-							getTaskAppFlow(taskAppNode));
-				}
-			}
-			else if (splitElementDeque.peek() instanceof FlowNode) {
-				resultFlowDeque.push(handleFlowForSegment(elementFlowDeque));
-				splitElementDeque.pop();
+			if (this.composedTaskProperties.isSplitThreadVirtualThreadsEnabled()) {
+				// virtual threads are not pooled, but a flow waiting for its nested
+				// split holds one of the splitThreadMaxPoolSize permits, so the nested
+				// flows could otherwise wait on their parent forever
+				int threadMaxPoolSize = this.composedTaskProperties.getSplitThreadMaxPoolSize();
+				Assert.isTrue(threadMaxPoolSize >= this.splitFlows,
+						"Split thread max pool size " + threadMaxPoolSize + " should be equal or greater "
+								+ "than the depth of split flows " + (this.splitFlows +1) + "."
+								+ " Try setting the composed task property `splitThreadMaxPoolSize`");
 			}
-			else if (splitElementDeque.peek() instanceof SplitNode) {
-				this.hasNestedSplit = true;
-				Deque splitNodeDeque = new LinkedList<>();
-				SplitNode splitNode = (SplitNode) splitElementDeque.pop();
-				splitNodeDeque.push(splitNode);
-				while (!splitElementDeque.isEmpty() && !splitElementDeque.peek().equals(splitNode)) {
-					splitNodeDeque.push(splitElementDeque.pop());
-				}
-				splitNodeDeque.push(splitElementDeque.pop());
-				elementFlowDeque.push(processSplitNode(splitNodeDeque, splitNode));
+			else {
+				int threadCorePoolSize = this.composedTaskProperties.getSplitThreadCorePoolSize();
+				Assert.isTrue(threadCorePoolSize >= this.splitFlows,
+						"Split thread core pool size " + threadCorePoolSize + " should be equal or greater "
+								+ "than the depth of split flows " + (this.splitFlows +1) + "."
+								+ " Try setting the composed task property `splitThreadCorePoolSize`");
 			}
 		}
-		return resultFlowDeque;
+		return taskAppFlowBuilder.start(nestedSplitFlow).end();
 	}
 
-	private Flow handleFlowForSegment(Deque<Flow> resultFlowDeque) {
+	private Flow handleFlowForSegment(SequenceElement sequence) {
+		Deque<Flow> resultFlowDeque = createFlows(sequence);
 		FlowBuilder<Flow> localTaskAppFlowBuilder =
 				new FlowBuilder<>("Flow" + UUID.randomUUID().toString());
 
@@ -276,82 +272,31 @@ public class ComposedRunnerJobFactory implements FactoryBean<Job> {
 		return localTaskAppFlowBuilder.end();
 	}
 
-	private void handleTransition(Deque<Flow> resultFlowDeque,
-			TaskAppNode taskAppNode) {
-		String beanName = getBeanName(taskAppNode);
+	/**
+	 * Creates the flow for the step of a task app.  If no transition matches
+	 * the exit status of the step the elements that follow the task app in its
+	 * sequence are executed.
+	 */
+	private Flow getTaskAppFlow(StepElement stepElement) {
+		Flow otherwise = (stepElement.getOtherwise() != null) ?
+				handleFlowForSegment(stepElement.getOtherwise()) : null;
+
+		String beanName = stepElement.getBeanName();
 		Step currentStep = this.context.getBean(beanName, Step.class);
 		FlowBuilder<Flow> builder = new FlowBuilder<Flow>(beanName)
 				.from(currentStep);
 
-		boolean wildCardPresent = false;
-
-		for (TransitionNode transitionNode : taskAppNode.getTransitions()) {
-			String transitionBeanName = getBeanName(transitionNode);
-
-			wildCardPresent = transitionNode.getStatusToCheck().equals(WILD_CARD);
-
-			Step transitionStep = this.context.getBean(transitionBeanName,
+		for (Transition transition : stepElement.getTransitions()) {
+			Step transitionStep = this.context.getBean(transition.getTargetBeanName(),
 					Step.class);
-			builder.on(transitionNode.getStatusToCheck()).to(transitionStep)
+			builder.on(transition.getStatusToCheck()).to(transitionStep)
 					.from(currentStep);
 		}
 
-		if (wildCardPresent && !resultFlowDeque.isEmpty()) {
-			throw new IllegalStateException(
-					"Invalid flow following '*' specifier.");
+		if (otherwise != null) {
+			builder.on(WILD_CARD).to(otherwise).from(currentStep);
 		}
-		else {
-			//if there are nodes are in the execution Deque.  Make sure that
-			//they are processed as a target of the wildcard instead of the
-			//whole transition.
-			if (!resultFlowDeque.isEmpty()) {
-				builder.on(WILD_CARD).to(handleFlowForSegment(resultFlowDeque)).from(currentStep);
-			}
-		}
-
-		resultFlowDeque.push(builder.end());
-	}
-
-	private String getBeanName(TransitionNode transition) {
-		if (transition.getTargetLabel() != null) {
-			return transition.getTargetLabel();
-		}
-
-		return getBeanName(transition.getTargetApp());
-	}
-
-
-	private String getBeanName(TaskAppNode taskApp) {
-		if (taskApp.getLabel() != null) {
-			return taskApp.getLabel().stringValue();
-		}
-
-		String taskName = taskApp.getName();
-
-		if (taskName.contains("->")) {
-			taskName = taskName.substring(taskName.indexOf("->") + 2);
-		}
-
-		return getBeanName(taskName);
-	}
-
-	private String getBeanName(String taskName) {
-		int taskSuffix = 0;
-
-		if (this.taskBeanSuffixes.containsKey(taskName)) {
-			taskSuffix = this.taskBeanSuffixes.get(taskName);
-		}
-
-		String result = String.format("%s_%s", taskName, taskSuffix++);
-		this.taskBeanSuffixes.put(taskName, taskSuffix);
-
-		return result;
-	}
-
-	private Flow getTaskAppFlow(TaskAppNode taskApp) {
-		String beanName = getBeanName(taskApp);
-		Step currentStep = this.context.getBean(beanName, Step.class);
 
-		return new FlowBuilder<Flow>(beanName).from(currentStep).end();
+		return builder.end();
 	}
 }
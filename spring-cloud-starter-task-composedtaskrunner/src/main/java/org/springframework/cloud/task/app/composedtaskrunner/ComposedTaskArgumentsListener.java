@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.listener.JobExecutionListenerSupport;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.util.Assert;
+
+/**
+ * Stores the composed task arguments in the job execution context before the
+ * first step runs, so that the {@link TaskLauncherTasklet} of each step only
+ * stores the arguments that differ from them in the step execution context.
+ * When a job is restarted the arguments of the previous job execution are kept.
+ */
+public class ComposedTaskArgumentsListener extends JobExecutionListenerSupport {
+
+	/**
+	 * The key of the composed task arguments in the job execution context.
+	 */
+	public static final String COMPOSED_TASK_ARGUMENTS = "composed-task-arguments";
+
+	private final JobRepository jobRepository;
+
+	private final List<String> composedTaskArguments;
+
+	/**
+	 * @param jobRepository the repository where the job execution context is updated.
+	 * @param composedTaskArguments the comma delimited arguments used for each of
+	 * the tasks, converted as they are for the steps.
+	 */
+	@SuppressWarnings("unchecked")
+	public ComposedTaskArgumentsListener(JobRepository jobRepository,
+			String composedTaskArguments) {
+		Assert.notNull(jobRepository, "jobRepository must not be null");
+		this.jobRepository = jobRepository;
+		List<String> arguments = (List<String>) DefaultConversionService.getSharedInstance()
+				.convert(composedTaskArguments, TypeDescriptor.valueOf(String.class),
+						TypeDescriptor.collection(List.class, TypeDescriptor.valueOf(String.class)));
+		this.composedTaskArguments = (arguments != null) ?
+				new ArrayList<>(arguments) : new ArrayList<>(0);
+	}
+
+	@Override
+	public void beforeJob(JobExecution jobExecution) {
+		ExecutionContext executionContext = jobExecution.getExecutionContext();
+		if (!executionContext.containsKey(COMPOSED_TASK_ARGUMENTS)) {
+			executionContext.put(COMPOSED_TASK_ARGUMENTS, this.composedTaskArguments);
+			this.jobRepository.updateExecutionContext(jobExecution);
+		}
+	}
+
+}
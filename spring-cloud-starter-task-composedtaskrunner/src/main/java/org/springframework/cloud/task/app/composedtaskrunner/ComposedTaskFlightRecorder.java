@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.function.Supplier;
+
+import org.springframework.batch.core.StepExecution;
+import org.springframework.cloud.task.repository.TaskExecution;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Records the parse and compile of the graph, the registration of the steps,
+ * the launches of the tasks, the polls of their status and the flows of the
+ * splits as Java Flight Recorder events, so that the latency of the runner
+ * can be lined up with the GC, thread and socket activity of the JVM.  The
+ * events are only recorded when enabled by a recording, such as one started
+ * with {@code -XX:StartFlightRecording}, and have no cost otherwise.
+ *
+ * The events are defined with the {@code jdk.jfr} API by
+ * {@code ComposedTaskEvents}, which is compiled for Java 11 apart from the
+ * rest of the runner and loaded only when the running JVM supports it, the
+ * operations are run without recording any event on other JVMs.
+ */
+public final class ComposedTaskFlightRecorder {
+
+	private static final String EVENTS_CLASS_NAME =
+			"org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskEvents";
+
+	private static final Events EVENTS = loadEvents();
+
+	private ComposedTaskFlightRecorder() {
+	}
+
+	/**
+	 * @return true if the running JVM supports the Java Flight Recorder.
+	 */
+	public static boolean isSupported() {
+		return EVENTS != null;
+	}
+
+	/**
+	 * @param graph the graph of the composed task.
+	 * @param compile parses and compiles the graph.
+	 * @return the result of the compile.
+	 */
+	public static <T> T recordGraphCompile(String graph, Supplier<T> compile) {
+		return (EVENTS != null) ? EVENTS.graphCompile(graph, compile) : compile.get();
+	}
+
+	/**
+	 * @param taskName the name of the task app of the step.
+	 * @param stepName the name of the step bean.
+	 * @param register registers the bean definition of the step.
+	 */
+	public static void recordStepRegistration(String taskName, String stepName,
+			Runnable register) {
+		if (EVENTS != null) {
+			EVENTS.stepRegistration(taskName, stepName, register);
+		}
+		else {
+			register.run();
+		}
+	}
+
+	/**
+	 * @param taskName the name of the task launched.
+	 * @param stepName the name of the step launching the task.
+	 * @param launch launches the task.
+	 * @return the id of the task execution launched.
+	 */
+	public static Long recordTaskLaunch(String taskName, String stepName,
+			Supplier<Long> launch) {
+		return (EVENTS != null) ? EVENTS.taskLaunch(taskName, stepName, launch) :
+				launch.get();
+	}
+
+	/**
+	 * @param taskName the name of the task whose status is polled.
+	 * @param executionId the id of the task execution.
+	 * @param poll retrieves the task execution.
+	 * @return the task execution, or null if not known.
+	 */
+	public static TaskExecution recordStatusPoll(String taskName, Long executionId,
+			Supplier<TaskExecution> poll) {
+		return (EVENTS != null) ? EVENTS.statusPoll(taskName, executionId, poll) :
+				poll.get();
+	}
+
+	/**
+	 * Decorates a flow of a split submitted to the task executor so that it is
+	 * recorded from its start to its finish.
+	 * @param flow the flow of the split.
+	 * @return the decorated flow.
+	 */
+	public static Runnable recordSplitFlow(Runnable flow) {
+		return (EVENTS != null) ? EVENTS.splitFlow(flow) : flow;
+	}
+
+	/**
+	 * Adds a step to the flow of the split running on the current thread, if any.
+	 * @param stepExecution the step execution starting.
+	 */
+	public static void recordSplitFlowStep(StepExecution stepExecution) {
+		if (EVENTS != null) {
+			EVENTS.splitFlowStep(stepExecution.getStepName(),
+					stepExecution.getJobExecutionId());
+		}
+	}
+
+	private static Events loadEvents() {
+		ClassLoader classLoader = ComposedTaskFlightRecorder.class.getClassLoader();
+		if (!ClassUtils.isPresent("jdk.jfr.Event", classLoader)) {
+			return null;
+		}
+		try {
+			return (Events) ReflectionUtils.accessibleConstructor(
+					ClassUtils.forName(EVENTS_CLASS_NAME, classLoader)).newInstance();
+		}
+		catch (ReflectiveOperationException | LinkageError e) {
+			// the events are not built, or are built for a later JVM
+			return null;
+		}
+	}
+
+	/**
+	 * The operations recorded as Java Flight Recorder events.
+	 */
+	interface Events {
+
+		<T> T graphCompile(String graph, Supplier<T> compile);
+
+		void stepRegistration(String taskName, String stepName, Runnable register);
+
+		Long taskLaunch(String taskName, String stepName, Supplier<Long> launch);
+
+		TaskExecution statusPoll(String taskName, Long executionId, Supplier<TaskExecution> poll);
+
+		Runnable splitFlow(Runnable flow);
+
+		void splitFlowStep(String stepName, Long jobExecutionId);
+
+	}
+
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.cloud.task.app.composedtaskrunner.support.VirtualThreadTaskExecutor;
+import org.springframework.cloud.task.app.composedtaskrunner.support.WorkStealingTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.Assert;
+
+/**
+ * Records the Micrometer metrics of the steps of a composed task.  The metrics
+ * of a step are tagged with the name of the task it launches and with the
+ * label of the step, which distinguishes multiple occurrences of a task in
+ * the graph.
+ * <ul>
+ * <li>{@value #LAUNCH}: the time taken to launch a task.</li>
+ * <li>{@value #START_DELAY}: the time from the launch of a task to the start
+ * time of its task execution.</li>
+ * <li>{@value #DETECTION_DELAY}: the time from the end time of a task
+ * execution to the detection of its completion by the step.</li>
+ * <li>{@value #STEP}: the duration of a step.</li>
+ * <li>{@value #POLLS}: the checks for the completion of a task.</li>
+ * <li>{@value #REPOSITORY_READS}: the reads of a task execution from the task
+ * repository.</li>
+ * <li>{@value #STATUS_CACHE_SAVED_READS}: the reads of a task execution from
+ * the task repository saved by the {@link TaskExecutionStatusCache}.</li>
+ * <li>{@value #SPLIT_ACTIVE} and {@value #SPLIT_QUEUED}: the split flows
+ * running and waiting to run.</li>
+ * <li>{@value #LAUNCH_WAIT}: the time a step waited for the permits of the
+ * {@link TaskLaunchGovernor} before launching its task.</li>
+ * <li>{@value #LAUNCH_QUEUED} and {@value #LAUNCH_PERMITS}: the steps waiting
+ * for permits and the permits not taken by a task.</li>
+ * <li>{@value #LAUNCH_GROUP_QUEUED} and {@value #LAUNCH_GROUP_PERMITS}: the same
+ * for each concurrency group that has a limit, tagged with the group.</li>
+ * </ul>
+ */
+public class ComposedTaskMetrics {
+
+	public static final String LAUNCH = "composed.task.launch";
+
+	public static final String START_DELAY = "composed.task.start.delay";
+
+	public static final String DETECTION_DELAY = "composed.task.detection.delay";
+
+	public static final String STEP = "composed.task.step";
+
+	public static final String POLLS = "composed.task.polls";
+
+	public static final String REPOSITORY_READS = "composed.task.repository.reads";
+
+	public static final String STATUS_CACHE_SAVED_READS = "composed.task.status.cache.saved.reads";
+
+	public static final String SPLIT_ACTIVE = "composed.task.split.active";
+
+	public static final String SPLIT_QUEUED = "composed.task.split.queued";
+
+	public static final String LAUNCH_WAIT = "composed.task.launch.wait";
+
+	public static final String LAUNCH_QUEUED = "composed.task.launch.queued";
+
+	public static final String LAUNCH_PERMITS = "composed.task.launch.permits";
+
+	public static final String LAUNCH_GROUP_QUEUED = "composed.task.launch.group.queued";
+
+	public static final String LAUNCH_GROUP_PERMITS = "composed.task.launch.group.permits";
+
+	private final MeterRegistry meterRegistry;
+
+	public ComposedTaskMetrics(MeterRegistry meterRegistry) {
+		Assert.notNull(meterRegistry, "meterRegistry must not be null");
+		this.meterRegistry = meterRegistry;
+	}
+
+	/**
+	 * Registers the counter of the task repository reads saved by the cache.
+	 * @param statusCache the cache of the completed task executions.
+	 */
+	public void bindStatusCache(TaskExecutionStatusCache statusCache) {
+		FunctionCounter.builder(STATUS_CACHE_SAVED_READS, statusCache,
+				TaskExecutionStatusCache::getSavedReads)
+				.description("The task repository reads saved by the task execution status cache")
+				.register(this.meterRegistry);
+	}
+
+	/**
+	 * Registers the gauges of the split flows for the executor if it reports
+	 * its running and waiting flows.
+	 * @param taskExecutor the executor of the split flows.
+	 */
+	public void bindSplitExecutor(TaskExecutor taskExecutor) {
+		if (taskExecutor instanceof ThreadPoolTaskExecutor) {
+			ThreadPoolTaskExecutor threadPoolTaskExecutor = (ThreadPoolTaskExecutor) taskExecutor;
+			Gauge.builder(SPLIT_ACTIVE, threadPoolTaskExecutor, ThreadPoolTaskExecutor::getActiveCount)
+					.description("The split flows running")
+					.register(this.meterRegistry);
+			Gauge.builder(SPLIT_QUEUED, threadPoolTaskExecutor,
+					executor -> executor.getThreadPoolExecutor().getQueue().size())
+					.description("The split flows waiting for a thread")
+					.register(this.meterRegistry);
+		}
+		else if (taskExecutor instanceof VirtualThreadTaskExecutor) {
+			VirtualThreadTaskExecutor virtualThreadTaskExecutor = (VirtualThreadTaskExecutor) taskExecutor;
+			Gauge.builder(SPLIT_ACTIVE, virtualThreadTaskExecutor, VirtualThreadTaskExecutor::getActiveCount)
+					.description("The split flows running")
+					.register(this.meterRegistry);
+			Gauge.builder(SPLIT_QUEUED, virtualThreadTaskExecutor, VirtualThreadTaskExecutor::getQueuedCount)
+					.description("The split flows waiting for a permit")
+					.register(this.meterRegistry);
+		}
+		else if (taskExecutor instanceof WorkStealingTaskExecutor) {
+			WorkStealingTaskExecutor workStealingTaskExecutor = (WorkStealingTaskExecutor) taskExecutor;
+			Gauge.builder(SPLIT_ACTIVE, workStealingTaskExecutor, WorkStealingTaskExecutor::getActiveCount)
+					.description("The split flows running")
+					.register(this.meterRegistry);
+			Gauge.builder(SPLIT_QUEUED, workStealingTaskExecutor, WorkStealingTaskExecutor::getQueuedCount)
+					.description("The split flows waiting for a thread")
+					.register(this.meterRegistry);
+		}
+	}
+
+	/**
+	 * Registers the gauges of the steps waiting to launch their task.
+	 * @param launchGovernor the governor limiting the tasks running at the same time.
+	 */
+	public void bindLaunchGovernor(TaskLaunchGovernor launchGovernor) {
+		if (launchGovernor.getMaxConcurrentTasks() > 0) {
+			Gauge.builder(LAUNCH_QUEUED, launchGovernor, TaskLaunchGovernor::getQueueLength)
+					.description("The steps waiting for permits to launch their task")
+					.register(this.meterRegistry);
+			Gauge.builder(LAUNCH_PERMITS, launchGovernor, TaskLaunchGovernor::getAvailablePermits)
+					.description("The permits not taken by a running task")
+					.register(this.meterRegistry);
+		}
+		for (String group : launchGovernor.getGroups()) {
+			Gauge.builder(LAUNCH_GROUP_QUEUED, launchGovernor, governor -> governor.getQueueLength(group))
+					.tag("group", group)
+					.description("The steps waiting for permits of the group to launch their task")
+					.register(this.meterRegistry);
+			Gauge.builder(LAUNCH_GROUP_PERMITS, launchGovernor,
+					governor -> governor.getAvailablePermits(group))
+					.tag("group", group)
+					.description("The permits of the group not taken by a running task")
+					.register(this.meterRegistry);
+		}
+	}
+
+	public void recordLaunch(String taskName, String label, long nanos) {
+		timer(LAUNCH, taskName, label).record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	public void recordLaunchWait(String taskName, String label, long nanos) {
+		timer(LAUNCH_WAIT, taskName, label).record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	public void recordStartDelay(String taskName, String label, long millis) {
+		timer(START_DELAY, taskName, label).record(Math.max(0, millis), TimeUnit.MILLISECONDS);
+	}
+
+	public void recordDetectionDelay(String taskName, String label, long millis) {
+		timer(DETECTION_DELAY, taskName, label).record(Math.max(0, millis), TimeUnit.MILLISECONDS);
+	}
+
+	public void recordStep(String taskName, String label, long millis) {
+		timer(STEP, taskName, label).record(Math.max(0, millis), TimeUnit.MILLISECONDS);
+	}
+
+	public void incrementPolls(String taskName, String label) {
+		Counter.builder(POLLS).tags(tags(taskName, label)).register(this.meterRegistry).increment();
+	}
+
+	public void incrementRepositoryReads(String taskName, String label) {
+		Counter.builder(REPOSITORY_READS).tags(tags(taskName, label))
+				.register(this.meterRegistry).increment();
+	}
+
+	private Timer timer(String name, String taskName, String label) {
+		return Timer.builder(name).tags(tags(taskName, label)).register(this.meterRegistry);
+	}
+
+	private static Tags tags(String taskName, String label) {
+		return Tags.of("task", taskName, "label", label);
+	}
+
+}
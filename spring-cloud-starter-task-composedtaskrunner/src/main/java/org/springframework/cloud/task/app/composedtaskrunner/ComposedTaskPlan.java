@@ -0,0 +1,262 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.util.Assert;
+
+/**
+ * Intermediate representation of a composed task graph, produced by the
+ * {@link ComposedTaskPlanCompiler} and used by the {@link ComposedRunnerJobFactory}
+ * to create the Spring Batch flows.  Each task app of the graph is identified by
+ * the name of the step bean that launches it.
+ */
+public class ComposedTaskPlan {
+
+	/**
+	 * The prefix of the names of the splits.
+	 */
+	public static final String SPLIT_NAME_PREFIX = "split_";
+
+	private final List<SequenceElement> sequences;
+
+	public ComposedTaskPlan(List<SequenceElement> sequences) {
+		Assert.notEmpty(sequences, "sequences must not be empty");
+		this.sequences = Collections.unmodifiableList(sequences);
+	}
+
+	/**
+	 * @return the sequences of the graph, the first being the one that is executed.
+	 */
+	public List<SequenceElement> getSequences() {
+		return this.sequences;
+	}
+
+	/**
+	 * @return the maximum number of split flows that can run at once, including
+	 * the flows of nested splits.  Each flow runs on its own split thread while
+	 * the thread that started its split waits for it, so this is the number of
+	 * split threads for no flow to wait for a thread.
+	 */
+	public int getMaxParallelFlows() {
+		int maxParallelFlows = 0;
+		for (SequenceElement sequence : this.sequences) {
+			maxParallelFlows = Math.max(maxParallelFlows, getParallelFlows(sequence));
+		}
+		return maxParallelFlows;
+	}
+
+	private static int getParallelFlows(Element element) {
+		int parallelFlows = 0;
+		if (element instanceof StepElement) {
+			SequenceElement otherwise = ((StepElement) element).getOtherwise();
+			if (otherwise != null) {
+				parallelFlows = getParallelFlows(otherwise);
+			}
+		}
+		else if (element instanceof SequenceElement) {
+			for (Element child : ((SequenceElement) element).getElements()) {
+				parallelFlows = Math.max(parallelFlows, getParallelFlows(child));
+			}
+		}
+		else if (element instanceof SplitElement) {
+			for (SequenceElement branch : ((SplitElement) element).getBranches()) {
+				parallelFlows += 1 + getParallelFlows(branch);
+			}
+		}
+		return parallelFlows;
+	}
+
+	/**
+	 * Names the splits of the graph {@value #SPLIT_NAME_PREFIX}0,
+	 * {@value #SPLIT_NAME_PREFIX}1 and so on, in the order they appear in the
+	 * graph, and lists the splits each step runs in.
+	 * @return the names of the splits enclosing each step, the outermost first,
+	 * keyed by step bean name.  Steps outside of any split are not listed.
+	 */
+	public Map<String, List<String>> getStepSplits() {
+		Map<String, List<String>> stepSplits = new HashMap<>();
+		int[] splitCount = new int[1];
+		for (SequenceElement sequence : this.sequences) {
+			collectStepSplits(sequence, Collections.emptyList(), splitCount, stepSplits);
+		}
+		return stepSplits;
+	}
+
+	private static void collectStepSplits(Element element, List<String> splits,
+			int[] splitCount, Map<String, List<String>> stepSplits) {
+		if (element instanceof StepElement) {
+			StepElement step = (StepElement) element;
+			if (!splits.isEmpty()) {
+				stepSplits.putIfAbsent(step.getBeanName(), splits);
+				// the targets of the transitions run in the flow of the step
+				for (Transition transition : step.getTransitions()) {
+					stepSplits.putIfAbsent(transition.getTargetBeanName(), splits);
+				}
+			}
+			if (step.getOtherwise() != null) {
+				collectStepSplits(step.getOtherwise(), splits, splitCount, stepSplits);
+			}
+		}
+		else if (element instanceof SequenceElement) {
+			for (Element child : ((SequenceElement) element).getElements()) {
+				collectStepSplits(child, splits, splitCount, stepSplits);
+			}
+		}
+		else if (element instanceof SplitElement) {
+			List<String> enclosingSplits = new ArrayList<>(splits);
+			enclosingSplits.add(SPLIT_NAME_PREFIX + splitCount[0]++);
+			enclosingSplits = Collections.unmodifiableList(enclosingSplits);
+			for (SequenceElement branch : ((SplitElement) element).getBranches()) {
+				collectStepSplits(branch, enclosingSplits, splitCount, stepSplits);
+			}
+		}
+	}
+
+	/**
+	 * An element of a composed task graph.
+	 */
+	public abstract static class Element {
+	}
+
+	/**
+	 * A task app to be launched by a step, with the transitions to follow based
+	 * on the exit status of the step.
+	 */
+	public static class StepElement extends Element {
+
+		private final String beanName;
+
+		private final List<Transition> transitions;
+
+		private final SequenceElement otherwise;
+
+		public StepElement(String beanName) {
+			this(beanName, Collections.emptyList(), null);
+		}
+
+		/**
+		 * @param beanName the name of the step bean.
+		 * @param transitions the transitions based on the step's exit status.
+		 * @param otherwise the elements to execute if no transition matches, may be null.
+		 */
+		public StepElement(String beanName, List<Transition> transitions,
+				SequenceElement otherwise) {
+			Assert.hasText(beanName, "beanName must not be empty nor null");
+			Assert.notNull(transitions, "transitions must not be null");
+			this.beanName = beanName;
+			this.transitions = Collections.unmodifiableList(transitions);
+			this.otherwise = otherwise;
+		}
+
+		public String getBeanName() {
+			return this.beanName;
+		}
+
+		public List<Transition> getTransitions() {
+			return this.transitions;
+		}
+
+		public SequenceElement getOtherwise() {
+			return this.otherwise;
+		}
+
+		@Override
+		public String toString() {
+			return "Step[" + this.beanName + "]";
+		}
+
+	}
+
+	/**
+	 * Transition to the step of a task app when a step exits with the status to check.
+	 */
+	public static class Transition {
+
+		private final String statusToCheck;
+
+		private final String targetBeanName;
+
+		public Transition(String statusToCheck, String targetBeanName) {
+			Assert.hasText(statusToCheck, "statusToCheck must not be empty nor null");
+			Assert.hasText(targetBeanName, "targetBeanName must not be empty nor null");
+			this.statusToCheck = statusToCheck;
+			this.targetBeanName = targetBeanName;
+		}
+
+		public String getStatusToCheck() {
+			return this.statusToCheck;
+		}
+
+		public String getTargetBeanName() {
+			return this.targetBeanName;
+		}
+
+	}
+
+	/**
+	 * Elements that are executed one after the other.
+	 */
+	public static class SequenceElement extends Element {
+
+		private final List<Element> elements;
+
+		public SequenceElement(List<Element> elements) {
+			Assert.notNull(elements, "elements must not be null");
+			this.elements = Collections.unmodifiableList(elements);
+		}
+
+		public List<Element> getElements() {
+			return this.elements;
+		}
+
+		@Override
+		public String toString() {
+			return "Sequence" + this.elements;
+		}
+
+	}
+
+	/**
+	 * Sequences that are executed in parallel.
+	 */
+	public static class SplitElement extends Element {
+
+		private final List<SequenceElement> branches;
+
+		public SplitElement(List<SequenceElement> branches) {
+			Assert.notEmpty(branches, "branches must not be empty");
+			this.branches = Collections.unmodifiableList(branches);
+		}
+
+		public List<SequenceElement> getBranches() {
+			return this.branches;
+		}
+
+		@Override
+		public String toString() {
+			return "Split" + this.branches;
+		}
+
+	}
+
+}
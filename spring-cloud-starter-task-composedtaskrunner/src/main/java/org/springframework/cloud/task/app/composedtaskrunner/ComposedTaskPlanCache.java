@@ -0,0 +1,305 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskPlan.Element;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskPlan.SequenceElement;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskPlan.SplitElement;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskPlan.StepElement;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskPlan.Transition;
+import org.springframework.cloud.task.app.composedtaskrunner.properties.ComposedTaskProperties;
+import org.springframework.util.Assert;
+
+/**
+ * Caches the result of parsing and compiling a composed task graph in a file,
+ * so that subsequent launches of the same composed task do not need to parse
+ * the DSL again.  The file is keyed by a hash of the graph, the composed task
+ * properties and the composed task arguments.
+ *
+ * A cache file that cannot be read is ignored and the graph is compiled again.
+ * The deployment properties of the task apps, which may hold credentials, are
+ * not stored: they are resolved again from the composed task properties when
+ * the file is loaded.
+ */
+public class ComposedTaskPlanCache {
+
+	private static final int MAGIC = 0x43545250;
+
+	private static final int FORMAT_VERSION = 2;
+
+	private static final byte STEP = 0;
+
+	private static final byte SEQUENCE = 1;
+
+	private static final byte SPLIT = 2;
+
+	private static final Log logger = LogFactory.getLog(ComposedTaskPlanCache.class);
+
+	private final Path directory;
+
+	/**
+	 * @param directory the directory where the cache files are stored.
+	 */
+	public ComposedTaskPlanCache(String directory) {
+		Assert.hasText(directory, "directory must not be empty nor null");
+		this.directory = Paths.get(directory);
+	}
+
+	/**
+	 * @param properties the properties of the composed task.
+	 * @return the cached entry for the composed task or null if there is none.
+	 */
+	public Entry load(ComposedTaskProperties properties) {
+		Path file = getFile(properties);
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				return null;
+			}
+			Map<String, Integer> taskApps = new LinkedHashMap<>();
+			for (int i = in.readInt(); i > 0; i--) {
+				taskApps.put(readString(in), in.readInt());
+			}
+			List<SequenceElement> sequences = new ArrayList<>();
+			for (int i = in.readInt(); i > 0; i--) {
+				sequences.add(readSequence(in));
+			}
+			logger.debug("Loaded compiled composed task plan from " + file);
+			Map<String, Map<String, String>> taskProperties = new TaskDeploymentPropertiesIndex(
+					properties.getComposedTaskProperties(), taskApps.keySet()).getTaskProperties();
+			return new Entry(taskApps, taskProperties, new ComposedTaskPlan(sequences));
+		}
+		catch (IOException | RuntimeException e) {
+			logger.warn("Ignoring unreadable compiled composed task plan " + file, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Stores the task apps and the plan of the entry for the composed task.
+	 * Failures are logged but do not prevent the composed task from running.
+	 * @param properties the properties of the composed task.
+	 * @param entry the compiled composed task.
+	 */
+	public void store(ComposedTaskProperties properties, Entry entry) {
+		Assert.notNull(entry.getPlan(), "plan must not be null");
+		Path file = getFile(properties);
+		try {
+			Files.createDirectories(this.directory);
+			Path tempFile = Files.createTempFile(this.directory, "plan", ".tmp");
+			try {
+				try (DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+					out.writeInt(MAGIC);
+					out.writeInt(FORMAT_VERSION);
+					out.writeInt(entry.getTaskApps().size());
+					for (Map.Entry<String, Integer> taskApp : entry.getTaskApps().entrySet()) {
+						writeString(out, taskApp.getKey());
+						out.writeInt(taskApp.getValue());
+					}
+					out.writeInt(entry.getPlan().getSequences().size());
+					for (SequenceElement sequence : entry.getPlan().getSequences()) {
+						writeSequence(out, sequence);
+					}
+				}
+				try {
+					Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE);
+				}
+				catch (AtomicMoveNotSupportedException e) {
+					Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+			finally {
+				Files.deleteIfExists(tempFile);
+			}
+			logger.debug("Stored compiled composed task plan in " + file);
+		}
+		catch (IOException | RuntimeException e) {
+			logger.warn("Failed to store compiled composed task plan in " + file, e);
+		}
+	}
+
+	private Path getFile(ComposedTaskProperties properties) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(intBytes(FORMAT_VERSION));
+			for (String value : new String[] {properties.getGraph(),
+					properties.getComposedTaskProperties(), properties.getComposedTaskArguments()}) {
+				byte[] bytes = (value != null) ?
+						value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+				digest.update(intBytes((value != null) ? bytes.length : -1));
+				digest.update(bytes);
+			}
+			StringBuilder fileName = new StringBuilder();
+			for (byte b : digest.digest()) {
+				fileName.append(String.format("%02x", b));
+			}
+			return this.directory.resolve(fileName.append(".plan").toString());
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+	}
+
+	private static void writeSequence(DataOutputStream out, SequenceElement sequence) throws IOException {
+		out.writeInt(sequence.getElements().size());
+		for (Element element : sequence.getElements()) {
+			if (element instanceof StepElement) {
+				StepElement stepElement = (StepElement) element;
+				out.writeByte(STEP);
+				writeString(out, stepElement.getBeanName());
+				out.writeInt(stepElement.getTransitions().size());
+				for (Transition transition : stepElement.getTransitions()) {
+					writeString(out, transition.getStatusToCheck());
+					writeString(out, transition.getTargetBeanName());
+				}
+				out.writeBoolean(stepElement.getOtherwise() != null);
+				if (stepElement.getOtherwise() != null) {
+					writeSequence(out, stepElement.getOtherwise());
+				}
+			}
+			else if (element instanceof SplitElement) {
+				SplitElement splitElement = (SplitElement) element;
+				out.writeByte(SPLIT);
+				out.writeInt(splitElement.getBranches().size());
+				for (SequenceElement branch : splitElement.getBranches()) {
+					writeSequence(out, branch);
+				}
+			}
+			else {
+				out.writeByte(SEQUENCE);
+				writeSequence(out, (SequenceElement) element);
+			}
+		}
+	}
+
+	private static SequenceElement readSequence(DataInputStream in) throws IOException {
+		int size = in.readInt();
+		List<Element> elements = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			byte type = in.readByte();
+			if (type == STEP) {
+				String beanName = readString(in);
+				int transitionCount = in.readInt();
+				List<Transition> transitions = (transitionCount == 0) ?
+						Collections.emptyList() : new ArrayList<>(transitionCount);
+				for (int j = 0; j < transitionCount; j++) {
+					transitions.add(new Transition(readString(in), readString(in)));
+				}
+				SequenceElement otherwise = in.readBoolean() ? readSequence(in) : null;
+				elements.add(new StepElement(beanName, transitions, otherwise));
+			}
+			else if (type == SPLIT) {
+				int branchCount = in.readInt();
+				List<SequenceElement> branches = new ArrayList<>(branchCount);
+				for (int j = 0; j < branchCount; j++) {
+					branches.add(readSequence(in));
+				}
+				elements.add(new SplitElement(branches));
+			}
+			else if (type == SEQUENCE) {
+				elements.add(readSequence(in));
+			}
+			else {
+				throw new IOException("Unknown plan element type " + type);
+			}
+		}
+		return new SequenceElement(elements);
+	}
+
+	private static byte[] intBytes(int value) {
+		return ByteBuffer.allocate(Integer.BYTES).putInt(value).array();
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * The result of parsing and compiling a composed task graph.
+	 */
+	public static class Entry {
+
+		private final Map<String, Integer> taskApps;
+
+		private final Map<String, Map<String, String>> taskProperties;
+
+		private final ComposedTaskPlan plan;
+
+		/**
+		 * @param taskApps the task app names and the highest suffix of their step beans.
+		 * @param taskProperties the deployment properties of each task app.
+		 * @param plan the compiled plan of the graph, null if the graph has not been compiled.
+		 */
+		public Entry(Map<String, Integer> taskApps,
+				Map<String, Map<String, String>> taskProperties, ComposedTaskPlan plan) {
+			Assert.notNull(taskApps, "taskApps must not be null");
+			Assert.notNull(taskProperties, "taskProperties must not be null");
+			this.taskApps = taskApps;
+			this.taskProperties = taskProperties;
+			this.plan = plan;
+		}
+
+		public Map<String, Integer> getTaskApps() {
+			return this.taskApps;
+		}
+
+		public Map<String, Map<String, String>> getTaskProperties() {
+			return this.taskProperties;
+		}
+
+		public ComposedTaskPlan getPlan() {
+			return this.plan;
+		}
+
+	}
+
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+
+import org.springframework.cloud.dataflow.core.dsl.FlowNode;
+import org.springframework.cloud.dataflow.core.dsl.LabelledTaskNode;
+import org.springframework.cloud.dataflow.core.dsl.SplitNode;
+import org.springframework.cloud.dataflow.core.dsl.TaskAppNode;
+import org.springframework.cloud.dataflow.core.dsl.TaskNode;
+import org.springframework.cloud.dataflow.core.dsl.TaskParser;
+import org.springframework.cloud.dataflow.core.dsl.TransitionNode;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskPlan.Element;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskPlan.SequenceElement;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskPlan.SplitElement;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskPlan.StepElement;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskPlan.Transition;
+import org.springframework.cloud.task.app.composedtaskrunner.properties.ComposedTaskProperties;
+
+/**
+ * Compiles the AST of a composed task DSL into a {@link ComposedTaskPlan} in a
+ * single walk of the AST.
+ *
+ * Sequences are walked from their last element to their first, since all the
+ * elements that follow a task app with transitions become the target of its
+ * wildcard transition.  Split branches are walked in order.  Step bean names
+ * are assigned in this order, each occurrence of a task app receiving the next
+ * suffix for its name.
+ *
+ * Note: This class is not thread-safe, an instance is used for a single graph.
+ */
+public class ComposedTaskPlanCompiler {
+
+	private static final String WILD_CARD = "*";
+
+	private final Map<String, Integer> taskBeanSuffixes = new HashMap<>();
+
+	/**
+	 * @param taskNode the AST of the composed task DSL.
+	 * @return the plan for the composed task graph.
+	 */
+	public static ComposedTaskPlan compile(TaskNode taskNode) {
+		return new ComposedTaskPlanCompiler().compileTaskNode(taskNode);
+	}
+
+	/**
+	 * Retrieves the plan of the graph from the plan cache if available, else
+	 * parses and compiles the graph.
+	 * @param properties the properties of the composed task.
+	 * @return the plan for the composed task graph.
+	 */
+	public static ComposedTaskPlan compile(ComposedTaskProperties properties) {
+		return ComposedTaskFlightRecorder.recordGraphCompile(properties.getGraph(), () -> {
+			if (properties.getPlanCacheDirectory() != null) {
+				ComposedTaskPlanCache.Entry compiledTask = new ComposedTaskPlanCache(
+						properties.getPlanCacheDirectory()).load(properties);
+				if (compiledTask != null) {
+					return compiledTask.getPlan();
+				}
+			}
+			TaskParser taskParser = new TaskParser("composed-task-runner",
+					properties.getGraph(), false, true);
+			return compile(taskParser.parse());
+		});
+	}
+
+	private ComposedTaskPlan compileTaskNode(TaskNode taskNode) {
+		List<LabelledTaskNode> taskSequences = taskNode.getSequences();
+		LinkedList<SequenceElement> sequences = new LinkedList<>();
+		for (ListIterator<LabelledTaskNode> iterator =
+				taskSequences.listIterator(taskSequences.size()); iterator.hasPrevious();) {
+			sequences.addFirst(compileSequence(iterator.previous()));
+		}
+		return new ComposedTaskPlan(sequences);
+	}
+
+	private SequenceElement compileSequence(LabelledTaskNode node) {
+		List<LabelledTaskNode> series = (node instanceof FlowNode) ?
+				((FlowNode) node).getSeries() : Collections.singletonList(node);
+		LinkedList<Element> elements = new LinkedList<>();
+
+		for (ListIterator<LabelledTaskNode> iterator = series.listIterator(series.size());
+				iterator.hasPrevious();) {
+			LabelledTaskNode element = iterator.previous();
+
+			if (element instanceof TaskAppNode) {
+				TaskAppNode taskAppNode = (TaskAppNode) element;
+
+				if (taskAppNode.hasTransitions()) {
+					StepElement stepElement = compileTransition(taskAppNode, elements);
+					elements = new LinkedList<>();
+					elements.addFirst(stepElement);
+				}
+				else {
+					elements.addFirst(new StepElement(getBeanName(taskAppNode)));
+				}
+			}
+			else if (element instanceof SplitNode) {
+				elements.addFirst(compileSplit((SplitNode) element));
+			}
+			else if (element instanceof FlowNode) {
+				elements.addFirst(compileSequence(element));
+			}
+		}
+		return new SequenceElement(elements);
+	}
+
+	private SplitElement compileSplit(SplitNode splitNode) {
+		List<SequenceElement> branches = new ArrayList<>(splitNode.getSeries().size());
+		for (LabelledTaskNode branch : splitNode.getSeries()) {
+			branches.add(compileSequence(branch));
+		}
+		return new SplitElement(branches);
+	}
+
+	/**
+	 * @param taskAppNode the task app with transitions.
+	 * @param following the elements that follow the task app in its sequence,
+	 * these are executed if none of the transitions match.
+	 */
+	private StepElement compileTransition(TaskAppNode taskAppNode, List<Element> following) {
+		String beanName = getBeanName(taskAppNode);
+		List<Transition> transitions = new ArrayList<>(taskAppNode.getTransitions().size());
+
+		boolean wildCardPresent = false;
+
+		for (TransitionNode transitionNode : taskAppNode.getTransitions()) {
+			wildCardPresent = transitionNode.getStatusToCheck().equals(WILD_CARD);
+			transitions.add(new Transition(transitionNode.getStatusToCheck(),
+					getBeanName(transitionNode)));
+		}
+
+		if (wildCardPresent && !following.isEmpty()) {
+			throw new IllegalStateException(
+					"Invalid flow following '*' specifier.");
+		}
+		return new StepElement(beanName, transitions,
+				following.isEmpty() ? null : new SequenceElement(following));
+	}
+
+	private String getBeanName(TransitionNode transition) {
+		if (transition.getTargetLabel() != null) {
+			return transition.getTargetLabel();
+		}
+
+		return getBeanName(transition.getTargetApp());
+	}
+
+	private String getBeanName(TaskAppNode taskApp) {
+		if (taskApp.getLabel() != null) {
+			return taskApp.getLabel().stringValue();
+		}
+
+		String taskName = taskApp.getName();
+
+		if (taskName.contains("->")) {
+			taskName = taskName.substring(taskName.indexOf("->") + 2);
+		}
+
+		return getBeanName(taskName);
+	}
+
+	private String getBeanName(String taskName) {
+		int taskSuffix = 0;
+
+		if (this.taskBeanSuffixes.containsKey(taskName)) {
+			taskSuffix = this.taskBeanSuffixes.get(taskName);
+		}
+
+		String result = String.format("%s_%s", taskName, taskSuffix++);
+		this.taskBeanSuffixes.put(taskName, taskSuffix);
+
+		return result;
+	}
+
+	/**
+	 * @param stepName the name of a step, made of the label of the task and of
+	 * a suffix distinguishing its occurrences in the graph.
+	 * @return the name of the task launched by the step.
+	 */
+	static String getTaskName(String stepName) {
+		return stepName.substring(0, stepName.lastIndexOf('_'));
+	}
+
+}
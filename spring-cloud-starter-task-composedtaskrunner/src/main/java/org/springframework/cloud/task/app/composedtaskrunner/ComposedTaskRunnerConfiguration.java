@@ -18,19 +18,33 @@ package org.springframework.cloud.task.app.composedtaskrunner;
 
 import javax.sql.DataSource;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
 import org.springframework.batch.core.StepExecutionListener;
 import org.springframework.batch.core.configuration.annotation.BatchConfigurer;
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.batch.BatchProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
 import org.springframework.cloud.task.app.composedtaskrunner.properties.ComposedTaskProperties;
+import org.springframework.cloud.task.app.composedtaskrunner.support.SplitFlowCallerRunsPolicy;
+import org.springframework.cloud.task.app.composedtaskrunner.support.VirtualThreadTaskExecutor;
+import org.springframework.cloud.task.app.composedtaskrunner.support.WorkStealingTaskExecutor;
 import org.springframework.cloud.task.configuration.EnableTask;
+import org.springframework.cloud.task.configuration.TaskConfigurer;
+import org.springframework.cloud.task.configuration.TaskProperties;
 import org.springframework.cloud.task.repository.TaskExplorer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.env.Environment;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
@@ -43,15 +57,110 @@ import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 @EnableTask
 @EnableConfigurationProperties(ComposedTaskProperties.class)
 @Configuration
-@Import(StepBeanDefinitionRegistrar.class)
+@Import({StepBeanDefinitionRegistrar.class, TaskEventsConfiguration.class,
+		ComposedTaskTracingConfiguration.class})
 public class ComposedTaskRunnerConfiguration {
 
+	private static final Log logger = LogFactory.getLog(ComposedTaskRunnerConfiguration.class);
+
 	@Autowired
 	private ComposedTaskProperties properties;
 
 	@Bean
-	public StepExecutionListener composedTaskStepExecutionListener(TaskExplorer taskExplorer){
-		return new ComposedTaskStepExecutionListener(taskExplorer);
+	public StepExecutionListener composedTaskStepExecutionListener(TaskExplorer taskExplorer,
+			ObjectProvider<ComposedTaskMetrics> composedTaskMetrics,
+			TaskExecutionStatusCache taskExecutionStatusCache){
+		ComposedTaskStepExecutionListener listener =
+				new ComposedTaskStepExecutionListener(taskExplorer);
+		listener.setStatusCache(taskExecutionStatusCache);
+		listener.setMetrics(composedTaskMetrics.getIfAvailable());
+		return listener;
+	}
+
+	@Bean
+	public TaskExecutionStatusCache taskExecutionStatusCache(
+			ObjectProvider<ComposedTaskMetrics> composedTaskMetrics) {
+		TaskExecutionStatusCache statusCache = new TaskExecutionStatusCache();
+		composedTaskMetrics.ifAvailable(metrics -> metrics.bindStatusCache(statusCache));
+		return statusCache;
+	}
+
+	@Bean
+	public TaskExecutionCompletionNotifier taskExecutionCompletionNotifier() {
+		return new TaskExecutionCompletionNotifier();
+	}
+
+	/**
+	 * The poller queries the read replica of the status task explorer, if any.
+	 */
+	@Bean
+	@ConditionalOnProperty(name = "shared-status-poller-enabled", havingValue = "true")
+	public TaskExecutionStatusPoller taskExecutionStatusPoller(TaskConfigurer taskConfigurer,
+			TaskProperties taskProperties, BeanFactory beanFactory) {
+		TaskExecutionStatusPoller statusPoller = new TaskExecutionStatusPoller(
+				taskConfigurer.getTaskDataSource(), taskProperties.getTablePrefix(),
+				taskExecutionCompletionNotifier(), this.properties.getIntervalTimeBetweenChecks());
+		if (beanFactory.containsBean(ComposedTaskRunnerStepFactory.STATUS_TASK_EXPLORER)) {
+			ReplicaRoutingTaskExplorer statusTaskExplorer = beanFactory.getBean(
+					ComposedTaskRunnerStepFactory.STATUS_TASK_EXPLORER, ReplicaRoutingTaskExplorer.class);
+			statusPoller.setReplica(statusTaskExplorer.getReplicaDataSource(),
+					statusTaskExplorer.getLagTolerance());
+		}
+		return statusPoller;
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "result-cache-enabled", havingValue = "true")
+	public TaskLaunchResultCache taskLaunchResultCache(TaskExplorer taskExplorer) {
+		return new TaskLaunchResultCache(taskExplorer, this.properties.getResultCacheTimeToLive());
+	}
+
+	@Bean
+	@ConditionalOnExpression("${max-concurrent-tasks:0} > 0 or '${concurrency-group-limits:}' != ''")
+	public TaskLaunchGovernor taskLaunchGovernor(
+			ObjectProvider<ComposedTaskMetrics> composedTaskMetrics) {
+		TaskLaunchGovernor launchGovernor = new TaskLaunchGovernor(
+				this.properties.getMaxConcurrentTasks(),
+				TaskLaunchGovernor.parseGroupLimits(this.properties.getConcurrencyGroupLimits()),
+				ComposedTaskPlanCompiler.compile(this.properties).getStepSplits());
+		composedTaskMetrics.ifAvailable(metrics -> metrics.bindLaunchGovernor(launchGovernor));
+		return launchGovernor;
+	}
+
+	/**
+	 * The last report is available from this bean once a job execution completes.
+	 */
+	@Bean
+	@ConditionalOnProperty(name = "critical-path-report-enabled", havingValue = "true")
+	public CriticalPathAnalyzer criticalPathAnalyzer(TaskExplorer taskExplorer) {
+		return new CriticalPathAnalyzer(this.properties, taskExplorer);
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "timeline-directory")
+	public ComposedTaskTimelineListener composedTaskTimelineListener(TaskExplorer taskExplorer) {
+		return new ComposedTaskTimelineListener(new ComposedTaskTimeline(taskExplorer),
+				this.properties.getTimelineDirectory());
+	}
+
+	/**
+	 * The explorer is not an autowire candidate, so that the task explorer of the
+	 * task repository remains the only one injected by type.
+	 */
+	@Bean(name = ComposedTaskRunnerStepFactory.STATUS_TASK_EXPLORER, autowireCandidate = false)
+	@ConditionalOnProperty(name = "status-datasource-url")
+	public ReplicaRoutingTaskExplorer statusTaskExplorer(TaskExplorer taskExplorer,
+			TaskProperties taskProperties) {
+		DataSourceBuilder<?> dataSourceBuilder = DataSourceBuilder.create()
+				.url(this.properties.getStatusDatasourceUrl())
+				.username(this.properties.getStatusDatasourceUsername())
+				.password(this.properties.getStatusDatasourcePassword());
+		if (this.properties.getStatusDatasourceDriverClassName() != null) {
+			dataSourceBuilder.driverClassName(this.properties.getStatusDatasourceDriverClassName());
+		}
+		return new ReplicaRoutingTaskExplorer(dataSourceBuilder.build(),
+				taskProperties.getTablePrefix(), taskExplorer,
+				this.properties.getStatusDatasourceLagTolerance());
 	}
 
 	@Bean
@@ -61,14 +170,56 @@ public class ComposedTaskRunnerConfiguration {
 	}
 
 	@Bean
-	public TaskExecutor taskExecutor() {
+	public TaskExecutor taskExecutor(ObjectProvider<ComposedTaskMetrics> composedTaskMetrics) {
+		TaskExecutor taskExecutor = splitTaskExecutor();
+		composedTaskMetrics.ifAvailable(metrics -> metrics.bindSplitExecutor(taskExecutor));
+		return taskExecutor;
+	}
+
+	private TaskExecutor splitTaskExecutor() {
+		int corePoolSize = properties.getSplitThreadCorePoolSize();
+		int maxPoolSize = properties.getSplitThreadMaxPoolSize();
+		boolean callerRuns = properties.isSplitThreadCallerRunsEnabled();
+		if (properties.isSplitThreadAutoSizeEnabled()) {
+			int maxParallelFlows = ComposedTaskPlanCompiler.compile(properties).getMaxParallelFlows();
+			maxPoolSize = Math.max(1, Math.min(maxParallelFlows, maxPoolSize));
+			corePoolSize = maxPoolSize;
+			// the flows that do not fit in the pool are run by the threads that
+			// started their split so nested splits cannot wait on each other
+			callerRuns |= maxPoolSize < maxParallelFlows;
+			logger.info(String.format("Sizing the split thread pool to %s threads for %s " +
+					"parallel split flows", maxPoolSize, maxParallelFlows));
+		}
+		if (properties.isSplitThreadWorkStealingEnabled()) {
+			WorkStealingTaskExecutor taskExecutor = new WorkStealingTaskExecutor(corePoolSize);
+			taskExecutor.setTaskDecorator(ComposedTaskFlightRecorder::recordSplitFlow);
+			return taskExecutor;
+		}
+		if (properties.isSplitThreadVirtualThreadsEnabled()) {
+			VirtualThreadTaskExecutor taskExecutor = new VirtualThreadTaskExecutor(
+					maxPoolSize, callerRuns);
+			taskExecutor.setTaskDecorator(ComposedTaskFlightRecorder::recordSplitFlow);
+			return taskExecutor;
+		}
+		if (callerRuns && maxPoolSize == ComposedTaskProperties.SPLIT_THREAD_MAX_POOL_SIZE_DEFAULT) {
+			// an unbounded pool never rejects a flow, so the flows would never
+			// run on the threads that started their split
+			maxPoolSize = corePoolSize;
+		}
 		ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
-		taskExecutor.setCorePoolSize(properties.getSplitThreadCorePoolSize());
-		taskExecutor.setMaxPoolSize(properties.getSplitThreadMaxPoolSize());
+		taskExecutor.setTaskDecorator(ComposedTaskFlightRecorder::recordSplitFlow);
+		taskExecutor.setCorePoolSize(corePoolSize);
+		taskExecutor.setMaxPoolSize(maxPoolSize);
 		taskExecutor.setKeepAliveSeconds(properties.getSplitThreadKeepAliveSeconds());
 		taskExecutor.setAllowCoreThreadTimeOut(
 				properties.isSplitThreadAllowCoreThreadTimeout());
-		taskExecutor.setQueueCapacity(properties.getSplitThreadQueueCapacity());
+		if (callerRuns) {
+			taskExecutor.setQueueCapacity(0);
+			taskExecutor.setRejectedExecutionHandler(new SplitFlowCallerRunsPolicy());
+		}
+		else {
+			taskExecutor.setQueueCapacity(properties.getSplitThreadQueueCapacity());
+		}
 		taskExecutor.setWaitForTasksToCompleteOnShutdown(
 				properties.isSplitThreadWaitForTasksToCompleteOnShutdown());
 		return taskExecutor;
@@ -17,6 +17,8 @@
 package org.springframework.cloud.task.app.composedtaskrunner;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,12 +27,16 @@ import java.util.UUID;
 import org.springframework.batch.core.Step;
 import org.springframework.batch.core.StepExecutionListener;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.step.builder.AbstractTaskletStepBuilder;
+import org.springframework.batch.core.step.builder.TaskletStepBuilder;
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.dataflow.rest.client.TaskOperations;
 import org.springframework.cloud.task.app.composedtaskrunner.properties.ComposedTaskProperties;
 import org.springframework.cloud.task.configuration.TaskConfigurer;
 import org.springframework.cloud.task.configuration.TaskProperties;
+import org.springframework.cloud.task.repository.TaskExplorer;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.interceptor.DefaultTransactionAttribute;
 import org.springframework.transaction.interceptor.TransactionAttribute;
@@ -45,6 +51,20 @@ import org.springframework.util.Assert;
  */
 public class ComposedTaskRunnerStepFactory implements FactoryBean<Step> {
 
+	/**
+	 * The name of the bean of the task explorer used to check the status of the
+	 * launched tasks, if it differs from the task explorer of the task repository.
+	 */
+	static final String STATUS_TASK_EXPLORER = "statusTaskExplorer";
+
+	/**
+	 * The deployment properties of a task app read by the runner rather than
+	 * passed to the task.
+	 */
+	private static final List<String> RUNNER_PROPERTIES = Arrays.asList(
+			TaskLaunchResultCache.ENABLED_PROPERTY, TaskLaunchGovernor.WEIGHT_PROPERTY,
+			TaskLaunchGovernor.GROUP_PROPERTY);
+
 	private ComposedTaskProperties composedTaskProperties;
 
 	private String taskName;
@@ -68,6 +88,33 @@ public class ComposedTaskRunnerStepFactory implements FactoryBean<Step> {
 	@Autowired
 	private TaskProperties taskProperties;
 
+	@Autowired
+	private BeanFactory beanFactory;
+
+	@Autowired(required = false)
+	private TaskExecutionCompletionNotifier completionNotifier;
+
+	@Autowired(required = false)
+	private TaskExecutionStatusPoller statusPoller;
+
+	@Autowired(required = false)
+	private TaskExecutionStatusCache statusCache;
+
+	@Autowired(required = false)
+	private TaskLaunchResultCache resultCache;
+
+	@Autowired(required = false)
+	private ComposedTaskMetrics metrics;
+
+	@Autowired(required = false)
+	private ComposedTaskTracing tracing;
+
+	@Autowired(required = false)
+	private TaskLaunchGovernor launchGovernor;
+
+	@Autowired(required = false)
+	private ComposedTaskTimelineListener timelineListener;
+
 	public ComposedTaskRunnerStepFactory(
 			ComposedTaskProperties composedTaskProperties, String taskName) {
 		Assert.notNull(composedTaskProperties,
@@ -92,18 +139,56 @@ public class ComposedTaskRunnerStepFactory implements FactoryBean<Step> {
 
 	@Override
 	public Step getObject() throws Exception {
+		TaskExplorer taskExplorer = this.beanFactory.containsBean(STATUS_TASK_EXPLORER) ?
+				this.beanFactory.getBean(STATUS_TASK_EXPLORER, TaskExplorer.class) :
+				taskConfigurer.getTaskExplorer();
 		TaskLauncherTasklet taskLauncherTasklet = new TaskLauncherTasklet(
-				this.taskOperations, taskConfigurer.getTaskExplorer(),
+				this.taskOperations, taskExplorer,
 				this.composedTaskProperties, this.taskName, taskProperties);
 
 		taskLauncherTasklet.setArguments(this.arguments);
-		taskLauncherTasklet.setProperties(this.taskSpecificProps);
+		Map<String, String> properties = this.taskSpecificProps;
+		if (!Collections.disjoint(properties.keySet(), RUNNER_PROPERTIES)) {
+			properties = new HashMap<>(properties);
+			properties.keySet().removeAll(RUNNER_PROPERTIES);
+		}
+		taskLauncherTasklet.setProperties(properties);
+		if (!"false".equalsIgnoreCase(
+				this.taskSpecificProps.get(TaskLaunchResultCache.ENABLED_PROPERTY))) {
+			taskLauncherTasklet.setResultCache(this.resultCache);
+		}
+		taskLauncherTasklet.setCompletionNotifier(this.completionNotifier);
+		taskLauncherTasklet.setStatusPoller(this.statusPoller);
+		taskLauncherTasklet.setStatusCache(this.statusCache);
+		taskLauncherTasklet.setMetrics(this.metrics);
+		taskLauncherTasklet.setTracing(this.tracing);
+		if (this.launchGovernor != null) {
+			List<String> launchGroups = this.launchGovernor.getLaunchGroups(
+					this.taskName, this.taskSpecificProps);
+			if (this.launchGovernor.isLimited(launchGroups)) {
+				taskLauncherTasklet.setLaunchGovernor(this.launchGovernor);
+				taskLauncherTasklet.setLaunchGroups(launchGroups);
+				taskLauncherTasklet.setLaunchWeight(
+						TaskLaunchGovernor.getWeight(this.taskSpecificProps));
+			}
+		}
 
 		String stepName = this.taskName;
 
-		return this.steps.get(stepName)
+		AbstractTaskletStepBuilder<TaskletStepBuilder> stepBuilder = this.steps.get(stepName)
 				.tasklet(taskLauncherTasklet)
-				.transactionAttribute(getTransactionAttribute())
+				.transactionAttribute(getTransactionAttribute());
+		if (this.composedTaskProperties.isChecksOutsideTransactionEnabled()) {
+			stepBuilder.stepOperations(new TaskLauncherRepeatTemplate(taskLauncherTasklet));
+		}
+		if (this.tracing != null) {
+			// registered first so that its afterStep is called last
+			stepBuilder.listener((StepExecutionListener) this.tracing);
+		}
+		if (this.timelineListener != null) {
+			stepBuilder.listener((StepExecutionListener) this.timelineListener);
+		}
+		return stepBuilder
 				.listener(this.composedTaskStepExecutionListener)
 				.build();
 	}
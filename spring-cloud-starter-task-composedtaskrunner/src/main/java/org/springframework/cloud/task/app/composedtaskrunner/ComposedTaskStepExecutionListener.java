@@ -38,6 +38,10 @@ public class ComposedTaskStepExecutionListener extends StepExecutionListenerSupp
 
 	private TaskExplorer taskExplorer;
 
+	private TaskExecutionStatusCache statusCache;
+
+	private ComposedTaskMetrics metrics;
+
 	private static final Log logger = LogFactory.getLog(ComposedTaskStepExecutionListener.class);
 
 	public ComposedTaskStepExecutionListener(TaskExplorer taskExplorer) {
@@ -45,6 +49,34 @@ public class ComposedTaskStepExecutionListener extends StepExecutionListenerSupp
 		this.taskExplorer = taskExplorer;
 	}
 
+	/**
+	 * Establishes the cache holding the task executions whose completion was
+	 * observed by the tasklets.  If not set the task repository is queried for
+	 * the task execution of every step.
+	 * @param statusCache the cache of completed task executions.
+	 */
+	public void setStatusCache(TaskExecutionStatusCache statusCache) {
+		this.statusCache = statusCache;
+	}
+
+	/**
+	 * Establishes the metrics where the duration of each step is recorded.
+	 * If not set no metrics are recorded.
+	 * @param metrics the metrics of the composed task.
+	 */
+	public void setMetrics(ComposedTaskMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Records the step against the flow of the split running it, if any.
+	 * @param stepExecution the step execution starting.
+	 */
+	@Override
+	public void beforeStep(StepExecution stepExecution) {
+		ComposedTaskFlightRecorder.recordSplitFlowStep(stepExecution);
+	}
+
 	/**
 	 * If endTime for task is null then the ExitStatus will be set to  UNKNOWN.
 	 * If an exitMessage is returned by the TaskExecution then the exit status
@@ -66,7 +98,13 @@ public class ComposedTaskStepExecutionListener extends StepExecutionListenerSupp
 				"return a task-execution-id.  Check to see if task " +
 				"exists.");
 
-		TaskExecution resultExecution = this.taskExplorer.getTaskExecution(executionId);
+		TaskExecution resultExecution = null;
+		if (this.statusCache != null) {
+			resultExecution = this.statusCache.remove(executionId);
+		}
+		if (resultExecution == null) {
+			resultExecution = this.taskExplorer.getTaskExecution(executionId);
+		}
 
 		if (!StringUtils.isEmpty(resultExecution.getExitMessage())) {
 			result = new ExitStatus(resultExecution.getExitMessage());
@@ -75,6 +113,12 @@ public class ComposedTaskStepExecutionListener extends StepExecutionListenerSupp
 			result = ExitStatus.FAILED;
 		}
 
+		if (this.metrics != null && stepExecution.getStartTime() != null) {
+			this.metrics.recordStep(ComposedTaskPlanCompiler.getTaskName(stepExecution.getStepName()),
+					stepExecution.getStepName(),
+					System.currentTimeMillis() - stepExecution.getStartTime().getTime());
+		}
+
 		logger.info(String.format("AfterStep processing complete for " +
 						"stepExecution %s with taskExecution %s",
 				stepExecution.getStepName(), executionId));
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.cloud.task.repository.TaskExecution;
+import org.springframework.cloud.task.repository.TaskExplorer;
+import org.springframework.util.Assert;
+
+/**
+ * Builds the timeline of an execution of a composed task in the Chrome Trace
+ * Event format, which can be opened in {@code chrome://tracing} or Perfetto.
+ * Each step is shown on the lane of the thread it ran on, if known, else on
+ * the first lane that is free when the step starts.  Within a step, the time
+ * until its task execution starts, the time the task execution runs and the
+ * time until the step detects its completion are shown as the launch,
+ * waiting and detection phases, as recorded by the step and task executions.
+ */
+public class ComposedTaskTimeline {
+
+	private static final long JOB_LANE = 0;
+
+	private final TaskExplorer taskExplorer;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	/**
+	 * @param taskExplorer the explorer of the task executions launched by the steps.
+	 */
+	public ComposedTaskTimeline(TaskExplorer taskExplorer) {
+		Assert.notNull(taskExplorer, "taskExplorer must not be null");
+		this.taskExplorer = taskExplorer;
+	}
+
+	/**
+	 * Writes the timeline of the job execution to the file.
+	 * @param jobExecution the job execution, along with its step executions.
+	 * @param stepThreads the names of the threads the steps ran on, keyed by the
+	 * id of their step execution.
+	 * @param file the file the timeline is written to.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void write(JobExecution jobExecution, Map<Long, String> stepThreads, File file)
+			throws IOException {
+		File directory = file.getAbsoluteFile().getParentFile();
+		if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Unable to create the directory " + directory);
+		}
+		Map<String, Object> timeline = new LinkedHashMap<>();
+		timeline.put("traceEvents", getTraceEvents(jobExecution, stepThreads));
+		timeline.put("displayTimeUnit", "ms");
+		this.objectMapper.writeValue(file, timeline);
+	}
+
+	/**
+	 * @return the trace events of the job execution, starting with the names of
+	 * the process and of the lanes.
+	 */
+	List<Map<String, Object>> getTraceEvents(JobExecution jobExecution, Map<Long, String> stepThreads) {
+		List<StepExecution> stepExecutions = new ArrayList<>();
+		for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+			if (stepExecution.getStartTime() != null) {
+				stepExecutions.add(stepExecution);
+			}
+		}
+		stepExecutions.sort(Comparator.comparing(StepExecution::getStartTime)
+				.thenComparing(StepExecution::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+
+		long origin = (jobExecution.getStartTime() != null) ? jobExecution.getStartTime().getTime() :
+				(!stepExecutions.isEmpty()) ? stepExecutions.get(0).getStartTime().getTime() : 0;
+		String jobName = (jobExecution.getJobInstance() != null) ?
+				jobExecution.getJobInstance().getJobName() : "composed-task";
+
+		List<Map<String, Object>> metadata = new ArrayList<>();
+		List<Map<String, Object>> events = new ArrayList<>();
+		metadata.add(metadataEvent("process_name", JOB_LANE, jobName));
+		metadata.add(metadataEvent("thread_name", JOB_LANE, "job"));
+		if (jobExecution.getStartTime() != null) {
+			Map<String, Object> args = new LinkedHashMap<>();
+			args.put("jobExecutionId", jobExecution.getId());
+			args.put("status", String.valueOf(jobExecution.getStatus()));
+			events.add(completeEvent(jobName, "job", JOB_LANE, origin, origin,
+					StepTiming.getEndTime(jobExecution.getEndTime(), jobExecution.getLastUpdated(), origin),
+					args));
+		}
+
+		Map<String, Long> lanes = new LinkedHashMap<>();
+		Map<String, Long> laneEndTimes = new LinkedHashMap<>();
+		for (StepExecution stepExecution : stepExecutions) {
+			StepTiming timing = StepTiming.of(stepExecution, this.taskExplorer);
+			String laneName = stepThreads.get(stepExecution.getId());
+			if (laneName == null) {
+				laneName = getFreeLane(laneEndTimes, timing.getStart());
+			}
+			Long lane = lanes.get(laneName);
+			if (lane == null) {
+				lane = (long) lanes.size() + 1;
+				lanes.put(laneName, lane);
+				metadata.add(metadataEvent("thread_name", lane, laneName));
+			}
+			laneEndTimes.put(laneName, Math.max(timing.getEnd(),
+					laneEndTimes.getOrDefault(laneName, Long.MIN_VALUE)));
+			addStepEvents(events, stepExecution, timing, lane, origin);
+		}
+		metadata.addAll(events);
+		return metadata;
+	}
+
+	private void addStepEvents(List<Map<String, Object>> events, StepExecution stepExecution,
+			StepTiming timing, long lane, long origin) {
+		Map<String, Object> args = new LinkedHashMap<>();
+		args.put("status", String.valueOf(stepExecution.getStatus()));
+		args.put("exitCode", stepExecution.getExitStatus().getExitCode());
+		if (timing.getTaskExecutionId() != null) {
+			args.put("taskExecutionId", timing.getTaskExecutionId());
+		}
+		events.add(completeEvent(stepExecution.getStepName(), "step", lane, origin,
+				timing.getStart(), timing.getEnd(), args));
+		TaskExecution taskExecution = timing.getTaskExecution();
+		if (taskExecution == null) {
+			return;
+		}
+		Map<String, Object> taskArgs = new LinkedHashMap<>();
+		taskArgs.put("taskName", taskExecution.getTaskName());
+		taskArgs.put("taskExecutionId", taskExecution.getExecutionId());
+		taskArgs.put("exitCode", taskExecution.getExitCode());
+		events.add(completeEvent("launch", "launch", lane, origin, timing.getStart(),
+				timing.getTaskStart(), Collections.emptyMap()));
+		events.add(completeEvent("waiting", "waiting", lane, origin, timing.getTaskStart(),
+				timing.getTaskEnd(), taskArgs));
+		if (timing.isTaskComplete()) {
+			events.add(completeEvent("detection", "detection", lane, origin, timing.getTaskEnd(),
+					timing.getEnd(), Collections.emptyMap()));
+		}
+	}
+
+	/**
+	 * @return the name of the first lane that is free at the start time, or of a
+	 * new lane if none is.
+	 */
+	private static String getFreeLane(Map<String, Long> laneEndTimes, long start) {
+		for (Map.Entry<String, Long> laneEndTime : laneEndTimes.entrySet()) {
+			if (laneEndTime.getKey().startsWith("lane-") && laneEndTime.getValue() <= start) {
+				return laneEndTime.getKey();
+			}
+		}
+		int lane = 1;
+		while (laneEndTimes.containsKey("lane-" + lane)) {
+			lane++;
+		}
+		return "lane-" + lane;
+	}
+
+	private static Map<String, Object> completeEvent(String name, String category, long lane,
+			long origin, long start, long end, Map<String, Object> args) {
+		Map<String, Object> event = new LinkedHashMap<>();
+		event.put("name", name);
+		event.put("cat", category);
+		event.put("ph", "X");
+		event.put("ts", (start - origin) * 1000);
+		event.put("dur", (end - start) * 1000);
+		event.put("pid", 1);
+		event.put("tid", lane);
+		event.put("args", args);
+		return event;
+	}
+
+	private static Map<String, Object> metadataEvent(String name, long lane, String value) {
+		Map<String, Object> event = new LinkedHashMap<>();
+		event.put("name", name);
+		event.put("ph", "M");
+		event.put("pid", 1);
+		event.put("tid", lane);
+		event.put("args", Collections.singletonMap("name", value));
+		return event;
+	}
+
+}
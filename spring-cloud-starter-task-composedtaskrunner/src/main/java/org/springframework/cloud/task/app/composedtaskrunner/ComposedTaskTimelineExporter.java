@@ -0,0 +1,105 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.Collections;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.explore.support.JobExplorerFactoryBean;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.cloud.task.repository.support.SimpleTaskExplorer;
+import org.springframework.cloud.task.repository.support.TaskExecutionDaoFactoryBean;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertyResolver;
+import org.springframework.core.env.PropertySourcesPropertyResolver;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+
+/**
+ * Writes the {@link ComposedTaskTimeline} of a past execution of a composed
+ * task, read from the job and task repositories.  The threads the steps ran
+ * on are not recorded in the repositories, so each step is shown on the first
+ * lane that is free when it starts.
+ * <p>
+ * Accepts the following arguments:
+ * <ul>
+ * <li>{@code --job-execution-id}: the id of the job execution, required.</li>
+ * <li>{@code --output}: the file the timeline is written to.  Defaults to the
+ * name of the job followed by the id of the job execution.</li>
+ * <li>{@code --spring.datasource.url}, {@code --spring.datasource.username},
+ * {@code --spring.datasource.password} and
+ * {@code --spring.datasource.driver-class-name}: the database of the job and
+ * task repositories.</li>
+ * <li>{@code --spring.batch.table-prefix} and
+ * {@code --spring.cloud.task.table-prefix}: the prefixes of the tables of the
+ * job and task repositories.  Default to {@code BATCH_} and {@code TASK_}.</li>
+ * </ul>
+ */
+public final class ComposedTaskTimelineExporter {
+
+	private static final Log logger = LogFactory.getLog(ComposedTaskTimelineExporter.class);
+
+	private ComposedTaskTimelineExporter() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		MutablePropertySources propertySources = new MutablePropertySources();
+		propertySources.addFirst(new SimpleCommandLinePropertySource(args));
+		PropertyResolver arguments = new PropertySourcesPropertyResolver(propertySources);
+
+		Long jobExecutionId = arguments.getRequiredProperty("job-execution-id", Long.class);
+		DataSource dataSource = DataSourceBuilder.create()
+				.url(arguments.getRequiredProperty("spring.datasource.url"))
+				.username(arguments.getProperty("spring.datasource.username"))
+				.password(arguments.getProperty("spring.datasource.password"))
+				.driverClassName(arguments.getProperty("spring.datasource.driver-class-name"))
+				.build();
+		try {
+			JobExplorerFactoryBean jobExplorerFactoryBean = new JobExplorerFactoryBean();
+			jobExplorerFactoryBean.setDataSource(dataSource);
+			jobExplorerFactoryBean.setTablePrefix(
+					arguments.getProperty("spring.batch.table-prefix", "BATCH_"));
+			jobExplorerFactoryBean.afterPropertiesSet();
+			JobExplorer jobExplorer = jobExplorerFactoryBean.getObject();
+			JobExecution jobExecution = jobExplorer.getJobExecution(jobExecutionId);
+			if (jobExecution == null) {
+				throw new IllegalArgumentException(String.format(
+						"Job execution %s does not exist", jobExecutionId));
+			}
+
+			File output = new File(arguments.getProperty("output", String.format("%s-%s.json",
+					jobExecution.getJobInstance().getJobName(), jobExecutionId)));
+			new ComposedTaskTimeline(new SimpleTaskExplorer(new TaskExecutionDaoFactoryBean(dataSource,
+					arguments.getProperty("spring.cloud.task.table-prefix", "TASK_"))))
+					.write(jobExecution, Collections.emptyMap(), output);
+			logger.info("Wrote the timeline of job execution " + jobExecutionId + " to " + output);
+		}
+		finally {
+			if (dataSource instanceof Closeable) {
+				((Closeable) dataSource).close();
+			}
+		}
+	}
+
+}
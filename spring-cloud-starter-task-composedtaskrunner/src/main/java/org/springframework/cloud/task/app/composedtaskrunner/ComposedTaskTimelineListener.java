@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.listener.JobExecutionListenerSupport;
+import org.springframework.util.Assert;
+
+/**
+ * Records the thread each step runs on and writes the
+ * {@link ComposedTaskTimeline} of the job execution once it completes.  The
+ * timeline is named after the job and the id of the job execution.  A failure
+ * to write the timeline is logged and does not fail the job.
+ */
+public class ComposedTaskTimelineListener extends JobExecutionListenerSupport
+		implements StepExecutionListener {
+
+	private static final Log logger = LogFactory.getLog(ComposedTaskTimelineListener.class);
+
+	private final ComposedTaskTimeline timeline;
+
+	private final File directory;
+
+	private final Map<Long, String> stepThreads = new ConcurrentHashMap<>();
+
+	/**
+	 * @param timeline the timeline builder.
+	 * @param directory the directory the timelines are written to.
+	 */
+	public ComposedTaskTimelineListener(ComposedTaskTimeline timeline, String directory) {
+		Assert.notNull(timeline, "timeline must not be null");
+		Assert.hasText(directory, "directory must not be empty nor null");
+		this.timeline = timeline;
+		this.directory = new File(directory);
+	}
+
+	@Override
+	public void beforeStep(StepExecution stepExecution) {
+		this.stepThreads.put(stepExecution.getId(), Thread.currentThread().getName());
+	}
+
+	@Override
+	public ExitStatus afterStep(StepExecution stepExecution) {
+		return null;
+	}
+
+	@Override
+	public void afterJob(JobExecution jobExecution) {
+		File file = new File(this.directory, String.format("%s-%s.json",
+				jobExecution.getJobInstance().getJobName(), jobExecution.getId()));
+		try {
+			this.timeline.write(jobExecution, this.stepThreads, file);
+			logger.info("Wrote the timeline of the composed task to " + file);
+		}
+		catch (IOException | RuntimeException e) {
+			logger.warn("Unable to write the timeline of the composed task to " + file, e);
+		}
+		finally {
+			for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+				this.stepThreads.remove(stepExecution.getId());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.core.env.PropertyResolver;
+import org.springframework.util.Assert;
+
+/**
+ * Records the OpenTelemetry spans of a composed task: a span for the job,
+ * a span for each of its steps and, within the span of a step, a span for the
+ * launch of the task and for each query of the status of its task execution.
+ * The trace context of the launch is passed to the task in its arguments, as
+ * {@code --<field>=<value>} for each field of the configured propagators, for
+ * instance {@code --traceparent}, so that the spans of the task join the trace.
+ * The span of the job joins the trace passed the same way to the Composed Task
+ * Runner itself, if any.
+ */
+public class ComposedTaskTracing implements JobExecutionListener, StepExecutionListener {
+
+	/**
+	 * The name of the instrumentation scope of the spans.
+	 */
+	public static final String INSTRUMENTATION_NAME =
+			"org.springframework.cloud.task.app.composedtaskrunner";
+
+	private static final TextMapGetter<PropertyResolver> PROPERTY_GETTER =
+			new TextMapGetter<PropertyResolver>() {
+
+				@Override
+				public Iterable<String> keys(PropertyResolver carrier) {
+					return new ArrayList<>(0);
+				}
+
+				@Override
+				public String get(PropertyResolver carrier, String key) {
+					return (carrier != null) ? carrier.getProperty(key) : null;
+				}
+
+			};
+
+	private final Tracer tracer;
+
+	private final TextMapPropagator propagator;
+
+	private final Context parentContext;
+
+	private final Map<Long, Span> jobSpans = new ConcurrentHashMap<>();
+
+	private final Map<Long, Span> stepSpans = new ConcurrentHashMap<>();
+
+	/**
+	 * @param openTelemetry the OpenTelemetry instance the spans are recorded with.
+	 * @param propertyResolver the properties of the Composed Task Runner, from
+	 * which the trace context it was launched with is extracted.  May be null.
+	 */
+	public ComposedTaskTracing(OpenTelemetry openTelemetry, PropertyResolver propertyResolver) {
+		Assert.notNull(openTelemetry, "openTelemetry must not be null");
+		this.tracer = openTelemetry.getTracer(INSTRUMENTATION_NAME);
+		this.propagator = openTelemetry.getPropagators().getTextMapPropagator();
+		this.parentContext = this.propagator.extract(Context.root(), propertyResolver,
+				PROPERTY_GETTER);
+	}
+
+	@Override
+	public void beforeJob(JobExecution jobExecution) {
+		Span span = this.tracer.spanBuilder("composed-task " + jobExecution.getJobInstance().getJobName())
+				.setParent(this.parentContext)
+				.setAttribute("job.execution.id", jobExecution.getId())
+				.startSpan();
+		this.jobSpans.put(jobExecution.getId(), span);
+	}
+
+	@Override
+	public void afterJob(JobExecution jobExecution) {
+		Span span = this.jobSpans.remove(jobExecution.getId());
+		if (span != null) {
+			if (jobExecution.getStatus() != BatchStatus.COMPLETED) {
+				span.setStatus(StatusCode.ERROR, jobExecution.getExitStatus().getExitCode());
+			}
+			span.end();
+		}
+	}
+
+	@Override
+	public void beforeStep(StepExecution stepExecution) {
+		Span jobSpan = this.jobSpans.get(stepExecution.getJobExecutionId());
+		Context parent = (jobSpan != null) ? this.parentContext.with(jobSpan) : this.parentContext;
+		Span span = this.tracer.spanBuilder("step " + stepExecution.getStepName())
+				.setParent(parent)
+				.setAttribute("task", ComposedTaskPlanCompiler.getTaskName(stepExecution.getStepName()))
+				.setAttribute("label", stepExecution.getStepName())
+				.startSpan();
+		this.stepSpans.put(stepExecution.getId(), span);
+	}
+
+	@Override
+	public ExitStatus afterStep(StepExecution stepExecution) {
+		Span span = this.stepSpans.remove(stepExecution.getId());
+		if (span != null) {
+			for (Throwable failure : stepExecution.getFailureExceptions()) {
+				span.recordException(failure);
+			}
+			if (ExitStatus.FAILED.getExitCode().equals(stepExecution.getExitStatus().getExitCode())) {
+				span.setStatus(StatusCode.ERROR, stepExecution.getExitStatus().getExitDescription());
+			}
+			span.end();
+		}
+		return null;
+	}
+
+	/**
+	 * Runs the operation in a span of the step, which is current while the
+	 * operation runs and records the exception the operation fails with.
+	 * @param stepExecution the step execution the operation runs for.
+	 * @param name the name of the span.
+	 * @param operation the operation to run.
+	 * @param <T> the type of the result of the operation.
+	 * @return the result of the operation.
+	 */
+	public <T> T inSpan(StepExecution stepExecution, String name, Supplier<T> operation) {
+		Span span = this.tracer.spanBuilder(name).setParent(getStepContext(stepExecution)).startSpan();
+		try (Scope scope = span.makeCurrent()) {
+			return operation.get();
+		}
+		catch (RuntimeException e) {
+			span.recordException(e);
+			span.setStatus(StatusCode.ERROR, e.getMessage());
+			throw e;
+		}
+		finally {
+			span.end();
+		}
+	}
+
+	/**
+	 * @param stepExecution the step execution whose span is requested.
+	 * @return the context of the span of the step execution, or the context the
+	 * Composed Task Runner was launched with if the step has no span.
+	 */
+	private Context getStepContext(StepExecution stepExecution) {
+		Span span = this.stepSpans.get(stepExecution.getId());
+		return (span != null) ? this.parentContext.with(span) : this.parentContext;
+	}
+
+	/**
+	 * @return the arguments that pass the current trace context to a task.
+	 */
+	public List<String> getTraceArguments() {
+		Map<String, String> carrier = new LinkedHashMap<>();
+		this.propagator.inject(Context.current(), carrier, Map::put);
+		List<String> arguments = new ArrayList<>(carrier.size());
+		for (Map.Entry<String, String> field : carrier.entrySet()) {
+			arguments.add(String.format("--%s=%s", field.getKey(), field.getValue()));
+		}
+		return arguments;
+	}
+
+	/**
+	 * @param argument an argument of a task.
+	 * @return true if the argument passes a trace context to the task.
+	 */
+	public boolean isTraceArgument(String argument) {
+		for (String field : this.propagator.fields()) {
+			if (argument.startsWith("--" + field + "=")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.OpenTelemetry;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Traces the composed task with OpenTelemetry.
+ *
+ * Requires the OpenTelemetry API on the classpath, which the starter does not
+ * bring, and an OpenTelemetry SDK to export the spans.
+ */
+@Configuration
+@ConditionalOnClass(name = "io.opentelemetry.api.OpenTelemetry")
+@ConditionalOnProperty(name = "tracing-enabled", havingValue = "true")
+public class ComposedTaskTracingConfiguration {
+
+	/**
+	 * The spans are recorded with the OpenTelemetry instance of the application
+	 * if there is one, else with the global instance of OpenTelemetry.
+	 */
+	@Bean
+	public ComposedTaskTracing composedTaskTracing(ObjectProvider<OpenTelemetry> openTelemetry,
+			Environment environment) {
+		return new ComposedTaskTracing(openTelemetry.getIfAvailable(GlobalOpenTelemetry::get),
+				environment);
+	}
+
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.listener.JobExecutionListenerSupport;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskPlan.Element;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskPlan.SequenceElement;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskPlan.SplitElement;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskPlan.StepElement;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskPlan.Transition;
+import org.springframework.cloud.task.app.composedtaskrunner.properties.ComposedTaskProperties;
+import org.springframework.cloud.task.repository.TaskExplorer;
+import org.springframework.util.Assert;
+
+/**
+ * Computes the critical path of each execution of a composed task once it
+ * completes, from the graph of the composed task and the durations of the
+ * steps that ran.  A sequence takes the sum of the durations of its elements
+ * and a split the duration of its longest branch, while a task app with
+ * transitions is followed by the transition that was taken.  The slack of a
+ * step is the time by which it could have been longer without delaying the
+ * job, which is how much shorter its branches are than the longest branch of
+ * each split it is in.  The report is logged and the last one is kept.
+ */
+public class CriticalPathAnalyzer extends JobExecutionListenerSupport {
+
+	private static final Log logger = LogFactory.getLog(CriticalPathAnalyzer.class);
+
+	private final ComposedTaskProperties composedTaskProperties;
+
+	private final TaskExplorer taskExplorer;
+
+	private volatile CriticalPathReport lastReport;
+
+	/**
+	 * @param composedTaskProperties the properties of the composed task, from
+	 * which its graph is compiled.
+	 * @param taskExplorer the explorer of the task executions launched by the steps.
+	 */
+	public CriticalPathAnalyzer(ComposedTaskProperties composedTaskProperties,
+			TaskExplorer taskExplorer) {
+		Assert.notNull(composedTaskProperties, "composedTaskProperties must not be null");
+		Assert.notNull(taskExplorer, "taskExplorer must not be null");
+		this.composedTaskProperties = composedTaskProperties;
+		this.taskExplorer = taskExplorer;
+	}
+
+	@Override
+	public void afterJob(JobExecution jobExecution) {
+		try {
+			this.lastReport = analyze(ComposedTaskPlanCompiler.compile(this.composedTaskProperties),
+					jobExecution);
+			logger.info(this.lastReport);
+		}
+		catch (RuntimeException e) {
+			logger.warn("Unable to analyze the critical path of job execution " +
+					jobExecution.getId(), e);
+		}
+	}
+
+	/**
+	 * @return the report of the last job execution analyzed, or null if none was.
+	 */
+	public CriticalPathReport getLastReport() {
+		return this.lastReport;
+	}
+
+	/**
+	 * @param plan the plan of the graph of the composed task.
+	 * @param jobExecution the job execution, along with its step executions.
+	 * @return the critical path of the job execution.
+	 */
+	public CriticalPathReport analyze(ComposedTaskPlan plan, JobExecution jobExecution) {
+		Map<String, StepExecution> stepExecutions = new HashMap<>();
+		for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+			if (stepExecution.getStartTime() != null) {
+				stepExecutions.put(stepExecution.getStepName(), stepExecution);
+			}
+		}
+		Analysis analysis = new Analysis(stepExecutions);
+		analysis.assignSlack(plan.getSequences().get(0), 0, true);
+		long jobDuration = 0;
+		if (jobExecution.getStartTime() != null) {
+			long jobStart = jobExecution.getStartTime().getTime();
+			jobDuration = StepTiming.getEndTime(jobExecution.getEndTime(),
+					jobExecution.getLastUpdated(), jobStart) - jobStart;
+		}
+		return new CriticalPathReport(jobExecution.getId(), jobDuration, analysis.nodes,
+				analysis.criticalPath);
+	}
+
+	private CriticalPathReport.Node createNode(StepExecution stepExecution, long slack) {
+		StepTiming timing = StepTiming.of(stepExecution, this.taskExplorer);
+		Long taskDuration = null;
+		long launchLatency = 0;
+		long detectionDelay = 0;
+		if (timing.isTaskComplete()) {
+			taskDuration = timing.getTaskEnd() - timing.getTaskStart();
+			launchLatency = timing.getTaskStart() - timing.getStart();
+			detectionDelay = timing.getEnd() - timing.getTaskEnd();
+		}
+		return new CriticalPathReport.Node(stepExecution.getStepName(),
+				ComposedTaskPlanCompiler.getTaskName(stepExecution.getStepName()), timing.getDuration(),
+				taskDuration, launchLatency, detectionDelay, slack);
+	}
+
+	/**
+	 * The durations and slacks of the elements of the graph for a job execution.
+	 */
+	private class Analysis {
+
+		private final Map<String, StepExecution> stepExecutions;
+
+		private final Map<Element, Long> durations = new IdentityHashMap<>();
+
+		private final List<CriticalPathReport.Node> nodes = new ArrayList<>();
+
+		private final List<CriticalPathReport.Node> criticalPath = new ArrayList<>();
+
+		Analysis(Map<String, StepExecution> stepExecutions) {
+			this.stepExecutions = stepExecutions;
+		}
+
+		/**
+		 * @return the duration of the longest path through the element.
+		 */
+		long getDuration(Element element) {
+			Long duration = this.durations.get(element);
+			if (duration == null) {
+				duration = 0L;
+				if (element instanceof StepElement) {
+					StepExecution stepExecution = this.stepExecutions.get(
+							((StepElement) element).getBeanName());
+					if (stepExecution != null) {
+						long start = stepExecution.getStartTime().getTime();
+						duration = StepTiming.getEndTime(stepExecution.getEndTime(),
+								stepExecution.getLastUpdated(), start) - start;
+					}
+					Element next = getNext((StepElement) element);
+					if (next != null) {
+						duration += getDuration(next);
+					}
+				}
+				else if (element instanceof SequenceElement) {
+					for (Element child : ((SequenceElement) element).getElements()) {
+						duration += getDuration(child);
+					}
+				}
+				else if (element instanceof SplitElement) {
+					for (SequenceElement branch : ((SplitElement) element).getBranches()) {
+						duration = Math.max(duration, getDuration(branch));
+					}
+				}
+				this.durations.put(element, duration);
+			}
+			return duration;
+		}
+
+		void assignSlack(Element element, long slack, boolean critical) {
+			if (element instanceof StepElement) {
+				StepExecution stepExecution = this.stepExecutions.get(
+						((StepElement) element).getBeanName());
+				if (stepExecution != null) {
+					CriticalPathReport.Node node = createNode(stepExecution, slack);
+					this.nodes.add(node);
+					if (critical && slack == 0) {
+						this.criticalPath.add(node);
+					}
+				}
+				Element next = getNext((StepElement) element);
+				if (next != null) {
+					assignSlack(next, slack, critical);
+				}
+			}
+			else if (element instanceof SequenceElement) {
+				for (Element child : ((SequenceElement) element).getElements()) {
+					assignSlack(child, slack, critical);
+				}
+			}
+			else if (element instanceof SplitElement) {
+				long splitDuration = getDuration(element);
+				boolean criticalBranchFound = false;
+				for (SequenceElement branch : ((SplitElement) element).getBranches()) {
+					long branchDuration = getDuration(branch);
+					boolean criticalBranch = critical && !criticalBranchFound &&
+							branchDuration == splitDuration;
+					criticalBranchFound |= criticalBranch;
+					assignSlack(branch, slack + splitDuration - branchDuration, criticalBranch);
+				}
+			}
+		}
+
+		/**
+		 * @return the element that ran after the task app, the target of a
+		 * transition or the elements that follow it otherwise, or null if none ran.
+		 */
+		private Element getNext(StepElement stepElement) {
+			for (Transition transition : stepElement.getTransitions()) {
+				if (this.stepExecutions.containsKey(transition.getTargetBeanName())) {
+					return new StepElement(transition.getTargetBeanName());
+				}
+			}
+			return (stepElement.getOtherwise() != null && hasRun(stepElement.getOtherwise())) ?
+					stepElement.getOtherwise() : null;
+		}
+
+		private boolean hasRun(Element element) {
+			if (element instanceof StepElement) {
+				return this.stepExecutions.containsKey(((StepElement) element).getBeanName());
+			}
+			List<? extends Element> children = (element instanceof SequenceElement) ?
+					((SequenceElement) element).getElements() : ((SplitElement) element).getBranches();
+			for (Element child : children) {
+				if (hasRun(child)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+	}
+
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The critical path of an execution of a composed task, as computed by the
+ * {@link CriticalPathAnalyzer}.  All the durations are in millis.
+ */
+public class CriticalPathReport {
+
+	private final Long jobExecutionId;
+
+	private final long jobDuration;
+
+	private final List<Node> nodes;
+
+	private final List<Node> criticalPath;
+
+	public CriticalPathReport(Long jobExecutionId, long jobDuration, List<Node> nodes,
+			List<Node> criticalPath) {
+		this.jobExecutionId = jobExecutionId;
+		this.jobDuration = jobDuration;
+		this.nodes = Collections.unmodifiableList(new ArrayList<>(nodes));
+		this.criticalPath = Collections.unmodifiableList(new ArrayList<>(criticalPath));
+	}
+
+	public Long getJobExecutionId() {
+		return this.jobExecutionId;
+	}
+
+	/**
+	 * @return the time from the start to the end of the job execution.
+	 */
+	public long getJobDuration() {
+		return this.jobDuration;
+	}
+
+	/**
+	 * @return the steps that ran, in the order of the graph.
+	 */
+	public List<Node> getNodes() {
+		return this.nodes;
+	}
+
+	/**
+	 * @return the steps of the longest path through the graph, in the order
+	 * they ran.
+	 */
+	public List<Node> getCriticalPath() {
+		return this.criticalPath;
+	}
+
+	/**
+	 * @return the sum of the durations of the steps of the critical path.
+	 */
+	public long getCriticalPathDuration() {
+		long duration = 0;
+		for (Node node : this.criticalPath) {
+			duration += node.getDuration();
+		}
+		return duration;
+	}
+
+	/**
+	 * @return the launch latency and detection delay added by the Composed Task
+	 * Runner along the critical path.
+	 */
+	public long getRunnerOverhead() {
+		long overhead = 0;
+		for (Node node : this.criticalPath) {
+			overhead += node.getRunnerOverhead();
+		}
+		return overhead;
+	}
+
+	/**
+	 * @return the time of the job execution not spent in the steps of the
+	 * critical path, such as the transitions between the steps.
+	 */
+	public long getUnattributedTime() {
+		return Math.max(0, this.jobDuration - getCriticalPathDuration());
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder report = new StringBuilder(String.format(
+				"Critical path of job execution %s: %s ms of %s ms, runner overhead %s ms, " +
+						"unattributed %s ms", this.jobExecutionId, getCriticalPathDuration(),
+				this.jobDuration, getRunnerOverhead(), getUnattributedTime()));
+		for (Node node : this.criticalPath) {
+			report.append(String.format("%n  %s", node));
+		}
+		boolean slackHeader = false;
+		for (Node node : this.nodes) {
+			if (!node.isCritical()) {
+				if (!slackHeader) {
+					report.append(String.format("%nOff the critical path:"));
+					slackHeader = true;
+				}
+				report.append(String.format("%n  %s", node));
+			}
+		}
+		return report.toString();
+	}
+
+	/**
+	 * A step that ran, with the time it took and how much longer it could have
+	 * taken without delaying the job.
+	 */
+	public static class Node {
+
+		private final String label;
+
+		private final String taskName;
+
+		private final long duration;
+
+		private final Long taskDuration;
+
+		private final long launchLatency;
+
+		private final long detectionDelay;
+
+		private final long slack;
+
+		public Node(String label, String taskName, long duration, Long taskDuration,
+				long launchLatency, long detectionDelay, long slack) {
+			this.label = label;
+			this.taskName = taskName;
+			this.duration = duration;
+			this.taskDuration = taskDuration;
+			this.launchLatency = launchLatency;
+			this.detectionDelay = detectionDelay;
+			this.slack = slack;
+		}
+
+		/**
+		 * @return the name of the step.
+		 */
+		public String getLabel() {
+			return this.label;
+		}
+
+		public String getTaskName() {
+			return this.taskName;
+		}
+
+		/**
+		 * @return the time from the start to the end of the step.
+		 */
+		public long getDuration() {
+			return this.duration;
+		}
+
+		/**
+		 * @return the time from the start to the end of the task execution, or
+		 * null if the task execution is not known.
+		 */
+		public Long getTaskDuration() {
+			return this.taskDuration;
+		}
+
+		/**
+		 * @return the time from the start of the step to the start of its task
+		 * execution.
+		 */
+		public long getLaunchLatency() {
+			return this.launchLatency;
+		}
+
+		/**
+		 * @return the time from the end of the task execution to the end of the step.
+		 */
+		public long getDetectionDelay() {
+			return this.detectionDelay;
+		}
+
+		public long getRunnerOverhead() {
+			return this.launchLatency + this.detectionDelay;
+		}
+
+		/**
+		 * @return the time by which the step could have been longer without
+		 * delaying the job.
+		 */
+		public long getSlack() {
+			return this.slack;
+		}
+
+		public boolean isCritical() {
+			return this.slack == 0;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: %s ms (task %s ms, launch %s ms, detection %s ms), slack %s ms",
+					this.label, this.duration, (this.taskDuration != null) ? this.taskDuration : "?",
+					this.launchLatency, this.detectionDelay, this.slack);
+		}
+
+	}
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.task.repository.TaskExecution;
+import org.springframework.cloud.task.repository.TaskExplorer;
+import org.springframework.cloud.task.repository.support.SimpleTaskExplorer;
+import org.springframework.cloud.task.repository.support.TaskExecutionDaoFactoryBean;
+import org.springframework.util.Assert;
+
+/**
+ * {@link TaskExplorer} that reads the task repository from a read replica,
+ * so that the checks for task completion do not use the connections of the
+ * primary database.
+ *
+ * The status of a task execution is read from the primary task explorer instead
+ * of the replica the first time it is requested, when the replica does not know
+ * the task execution yet, and whenever the lag tolerance has elapsed since the
+ * last read from the primary, so that a replica falling behind delays the
+ * detection of a completion by at most the lag tolerance.  A completion read
+ * from the replica is confirmed by a read on the primary, whose task execution
+ * is returned.
+ */
+public class ReplicaRoutingTaskExplorer extends SimpleTaskExplorer implements DisposableBean {
+
+	private final DataSource replicaDataSource;
+
+	private final TaskExplorer primaryTaskExplorer;
+
+	private final long lagTolerance;
+
+	private final Map<Long, Long> primaryReadTimes = new ConcurrentHashMap<>();
+
+	/**
+	 * @param replicaDataSource the data source of the read replica.
+	 * @param tablePrefix the prefix of the task repository tables.
+	 * @param primaryTaskExplorer the task explorer reading the primary database.
+	 * @param lagTolerance the maximum time in millis between two reads of the
+	 * status of a running task execution from the primary database.
+	 */
+	public ReplicaRoutingTaskExplorer(DataSource replicaDataSource, String tablePrefix,
+			TaskExplorer primaryTaskExplorer, long lagTolerance) {
+		super(new TaskExecutionDaoFactoryBean(replicaDataSource, tablePrefix));
+		Assert.notNull(primaryTaskExplorer, "primaryTaskExplorer must not be null");
+		this.replicaDataSource = replicaDataSource;
+		this.primaryTaskExplorer = primaryTaskExplorer;
+		this.lagTolerance = lagTolerance;
+	}
+
+	@Override
+	public TaskExecution getTaskExecution(long executionId) {
+		long now = System.currentTimeMillis();
+		Long primaryReadTime = this.primaryReadTimes.get(executionId);
+		TaskExecution taskExecution = (primaryReadTime != null &&
+				now - primaryReadTime < this.lagTolerance) ? super.getTaskExecution(executionId) : null;
+		if (taskExecution == null || taskExecution.getEndTime() != null) {
+			this.primaryReadTimes.put(executionId, now);
+			taskExecution = this.primaryTaskExplorer.getTaskExecution(executionId);
+		}
+		if (taskExecution == null || taskExecution.getEndTime() != null) {
+			this.primaryReadTimes.remove(executionId);
+		}
+		return taskExecution;
+	}
+
+	/**
+	 * @return the data source of the read replica.
+	 */
+	public DataSource getReplicaDataSource() {
+		return this.replicaDataSource;
+	}
+
+	/**
+	 * @return the maximum time in millis between two reads of the status of a
+	 * running task execution from the primary database.
+	 */
+	public long getLagTolerance() {
+		return this.lagTolerance;
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		if (this.replicaDataSource instanceof Closeable) {
+			((Closeable) this.replicaDataSource).close();
+		}
+	}
+
+}
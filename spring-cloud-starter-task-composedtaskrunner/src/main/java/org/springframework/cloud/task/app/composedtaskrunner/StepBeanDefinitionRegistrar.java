@@ -24,10 +24,10 @@ import java.util.Map;
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.cloud.dataflow.core.dsl.TaskAppNode;
+import org.springframework.cloud.dataflow.core.dsl.TaskNode;
 import org.springframework.cloud.dataflow.core.dsl.TaskParser;
 import org.springframework.cloud.dataflow.core.dsl.TaskVisitor;
 import org.springframework.cloud.dataflow.core.dsl.TransitionNode;
-import org.springframework.cloud.dataflow.rest.util.DeploymentPropertiesUtils;
 import org.springframework.cloud.task.app.composedtaskrunner.properties.ComposedTaskProperties;
 import org.springframework.context.EnvironmentAware;
 import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
@@ -51,45 +51,57 @@ public class StepBeanDefinitionRegistrar implements ImportBeanDefinitionRegistra
 	public void registerBeanDefinitions(AnnotationMetadata importingClassMetadata,
 			BeanDefinitionRegistry registry) {
 		ComposedTaskProperties properties = composedTaskProperties();
-		TaskParser taskParser = new TaskParser("bean-registration",
-				properties.getGraph(), false, true);
-		Map<String, Integer> taskSuffixMap = getTaskApps(taskParser);
+		ComposedTaskPlanCache.Entry compiledTask = getCompiledTask(properties);
+		Map<String, Integer> taskSuffixMap = compiledTask.getTaskApps();
 		for (String taskName : taskSuffixMap.keySet()) {
 			//handles the possibility that multiple instances of
 			// task definition exist in a composed task
 			for (int taskSuffix = 0; taskSuffixMap.get(taskName) >= taskSuffix; taskSuffix++) {
-				BeanDefinitionBuilder builder = BeanDefinitionBuilder
-						.rootBeanDefinition(ComposedTaskRunnerStepFactory.class);
-				builder.addConstructorArgValue(properties);
-				builder.addConstructorArgValue(String.format("%s_%s",
-						taskName, taskSuffix));
-				builder.addPropertyValue("taskSpecificProps",
-						getPropertiesForTask(taskName, properties));
-				builder.addPropertyValue("arguments", properties.getComposedTaskArguments());
-
-				registry.registerBeanDefinition(String.format("%s_%s",
-						taskName, taskSuffix), builder.getBeanDefinition());
+				String stepName = String.format("%s_%s", taskName, taskSuffix);
+				ComposedTaskFlightRecorder.recordStepRegistration(taskName, stepName, () -> {
+					BeanDefinitionBuilder builder = BeanDefinitionBuilder
+							.rootBeanDefinition(ComposedTaskRunnerStepFactory.class);
+					builder.addConstructorArgValue(properties);
+					builder.addConstructorArgValue(stepName);
+					builder.addPropertyValue("taskSpecificProps",
+							compiledTask.getTaskProperties().get(taskName));
+					builder.addPropertyValue("arguments", properties.getComposedTaskArguments());
+
+					registry.registerBeanDefinition(stepName, builder.getBeanDefinition());
+				});
 			}
 		}
 	}
 
-	private Map<String, String> getPropertiesForTask(String taskName, ComposedTaskProperties properties) {
-		Map<String, String> taskDeploymentProperties =
-				DeploymentPropertiesUtils.parse(properties.getComposedTaskProperties());
-		Map<String, String> deploymentProperties = new HashMap<>();
-		updateDeploymentProperties(String.format("app.%s.", taskName), taskDeploymentProperties, deploymentProperties);
-		updateDeploymentProperties(String.format("deployer.%s.", taskName), taskDeploymentProperties, deploymentProperties);
-		return deploymentProperties;
-	}
-
-	private void updateDeploymentProperties(String prefix, Map<String, String> taskDeploymentProperties,
-			Map<String, String> deploymentProperties) {
-		for (Map.Entry<String, String> entry : taskDeploymentProperties.entrySet()) {
-			if (entry.getKey().startsWith(prefix)) {
-				deploymentProperties.put(entry.getKey()
-						.substring(prefix.length()), entry.getValue());
+	/**
+	 * Parses the graph to discover the task apps and their deployment properties,
+	 * unless these are available from the plan cache.  The plan of the graph is
+	 * only compiled here if it is to be stored in the plan cache.
+	 */
+	private ComposedTaskPlanCache.Entry getCompiledTask(ComposedTaskProperties properties) {
+		ComposedTaskPlanCache planCache = (properties.getPlanCacheDirectory() != null) ?
+				new ComposedTaskPlanCache(properties.getPlanCacheDirectory()) : null;
+		ComposedTaskPlanCache.Entry compiledTask = null;
+		if (planCache != null) {
+			compiledTask = planCache.load(properties);
+		}
+		if (compiledTask == null) {
+			TaskParser taskParser = new TaskParser("bean-registration",
+					properties.getGraph(), false, true);
+			TaskNode taskNode = taskParser.parse();
+			Map<String, Integer> taskApps = getTaskApps(taskNode);
+			Map<String, Map<String, String>> taskProperties = new TaskDeploymentPropertiesIndex(
+					properties.getComposedTaskProperties(), taskApps.keySet()).getTaskProperties();
+			if (planCache != null) {
+				compiledTask = new ComposedTaskPlanCache.Entry(taskApps, taskProperties,
+						ComposedTaskPlanCompiler.compile(taskNode));
+				planCache.store(properties, compiledTask);
+			}
+			else {
+				compiledTask = new ComposedTaskPlanCache.Entry(taskApps, taskProperties, null);
 			}
 		}
+		return compiledTask;
 	}
 
 	@Override
@@ -116,6 +128,47 @@ public class StepBeanDefinitionRegistrar implements ImportBeanDefinitionRegistra
 			properties.setIntervalTimeBetweenChecks(Integer.valueOf(
 					intervalTimeBetweenChecks));
 		}
+		Boolean adaptivePollingEnabled =
+				this.env.getProperty("adaptive-polling-enabled", Boolean.class);
+		if (adaptivePollingEnabled != null) {
+			properties.setAdaptivePollingEnabled(adaptivePollingEnabled);
+		}
+		Long adaptivePollingInitialInterval =
+				this.env.getProperty("adaptive-polling-initial-interval", Long.class);
+		if (adaptivePollingInitialInterval != null) {
+			properties.setAdaptivePollingInitialInterval(adaptivePollingInitialInterval);
+		}
+		Long adaptivePollingMaxInterval =
+				this.env.getProperty("adaptive-polling-max-interval", Long.class);
+		if (adaptivePollingMaxInterval != null) {
+			properties.setAdaptivePollingMaxInterval(adaptivePollingMaxInterval);
+		}
+		Double adaptivePollingMultiplier =
+				this.env.getProperty("adaptive-polling-multiplier", Double.class);
+		if (adaptivePollingMultiplier != null) {
+			properties.setAdaptivePollingMultiplier(adaptivePollingMultiplier);
+		}
+		Integer adaptivePollingHistorySize =
+				this.env.getProperty("adaptive-polling-history-size", Integer.class);
+		if (adaptivePollingHistorySize != null) {
+			properties.setAdaptivePollingHistorySize(adaptivePollingHistorySize);
+		}
+		Boolean checksOutsideTransactionEnabled =
+				this.env.getProperty("checks-outside-transaction-enabled", Boolean.class);
+		if (checksOutsideTransactionEnabled != null) {
+			properties.setChecksOutsideTransactionEnabled(checksOutsideTransactionEnabled);
+		}
+		Long heartbeatInterval =
+				this.env.getProperty("heartbeat-interval", Long.class);
+		if (heartbeatInterval != null) {
+			properties.setHeartbeatInterval(heartbeatInterval);
+		}
+		Boolean reattachOnRestartEnabled =
+				this.env.getProperty("reattach-on-restart-enabled", Boolean.class);
+		if (reattachOnRestartEnabled != null) {
+			properties.setReattachOnRestartEnabled(reattachOnRestartEnabled);
+		}
+		properties.setPlanCacheDirectory(this.env.getProperty("plan-cache-directory"));
 		if (dataFlowUriString != null) {
 			try {
 				properties.setDataflowServerUri(new URI(dataFlowUriString));
@@ -131,9 +184,9 @@ public class StepBeanDefinitionRegistrar implements ImportBeanDefinitionRegistra
 	 * @return a {@link Map} of task app name as the key and the number of times it occurs
 	 * as the value.
 	 */
-	private Map<String, Integer> getTaskApps(TaskParser taskParser) {
+	private Map<String, Integer> getTaskApps(TaskNode taskNode) {
 		TaskAppsMapCollector collector = new TaskAppsMapCollector();
-		taskParser.parse().accept(collector);
+		taskNode.accept(collector);
 		return collector.getTaskApps();
 	}
 
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.Date;
+
+import org.springframework.batch.core.StepExecution;
+import org.springframework.cloud.task.repository.TaskExecution;
+import org.springframework.cloud.task.repository.TaskExplorer;
+
+/**
+ * The times of a step execution and of the task execution it launched, in
+ * milliseconds since the epoch.  The task executions are timed by the clock of
+ * the tasks, so their times are kept within the step.
+ */
+final class StepTiming {
+
+	private static final String TASK_EXECUTION_ID = "task-execution-id";
+
+	private final long start;
+
+	private final long end;
+
+	private final Long taskExecutionId;
+
+	private final TaskExecution taskExecution;
+
+	private final long taskStart;
+
+	private final long taskEnd;
+
+	private StepTiming(long start, long end, Long taskExecutionId,
+			TaskExecution taskExecution, long taskStart, long taskEnd) {
+		this.start = start;
+		this.end = end;
+		this.taskExecutionId = taskExecutionId;
+		this.taskExecution = taskExecution;
+		this.taskStart = taskStart;
+		this.taskEnd = taskEnd;
+	}
+
+	/**
+	 * @param stepExecution a step execution that started.
+	 * @param taskExplorer the explorer of the task execution launched by the step.
+	 * @return the times of the step execution and of its task execution.
+	 */
+	static StepTiming of(StepExecution stepExecution, TaskExplorer taskExplorer) {
+		long start = stepExecution.getStartTime().getTime();
+		long end = getEndTime(stepExecution.getEndTime(), stepExecution.getLastUpdated(), start);
+		Long taskExecutionId = (Long) stepExecution.getExecutionContext().get(TASK_EXECUTION_ID);
+		TaskExecution taskExecution = (taskExecutionId != null) ?
+				taskExplorer.getTaskExecution(taskExecutionId) : null;
+		if (taskExecution == null || taskExecution.getStartTime() == null) {
+			return new StepTiming(start, end, taskExecutionId, null, start, end);
+		}
+		long taskStart = clamp(taskExecution.getStartTime().getTime(), start, end);
+		long taskEnd = (taskExecution.getEndTime() != null) ?
+				clamp(taskExecution.getEndTime().getTime(), taskStart, end) : end;
+		return new StepTiming(start, end, taskExecutionId, taskExecution, taskStart, taskEnd);
+	}
+
+	/**
+	 * @return the end time, or the last update time if there is no end time,
+	 * not before the start time, or the start time if there is neither.
+	 */
+	static long getEndTime(Date endTime, Date lastUpdated, long start) {
+		Date end = (endTime != null) ? endTime : lastUpdated;
+		return (end != null) ? Math.max(start, end.getTime()) : start;
+	}
+
+	private static long clamp(long time, long min, long max) {
+		return Math.min(Math.max(time, min), max);
+	}
+
+	long getStart() {
+		return this.start;
+	}
+
+	long getEnd() {
+		return this.end;
+	}
+
+	long getDuration() {
+		return this.end - this.start;
+	}
+
+	/**
+	 * @return the id of the task execution launched by the step, or null if
+	 * none was.
+	 */
+	Long getTaskExecutionId() {
+		return this.taskExecutionId;
+	}
+
+	/**
+	 * @return the task execution launched by the step, or null if it is not
+	 * found or has not started.
+	 */
+	TaskExecution getTaskExecution() {
+		return this.taskExecution;
+	}
+
+	/**
+	 * @return whether the task execution launched by the step has started and ended.
+	 */
+	boolean isTaskComplete() {
+		return this.taskExecution != null && this.taskExecution.getEndTime() != null;
+	}
+
+	/**
+	 * @return the start of the task execution, the start of the step if it has
+	 * not started.
+	 */
+	long getTaskStart() {
+		return this.taskStart;
+	}
+
+	/**
+	 * @return the end of the task execution, the end of the step if it has not
+	 * ended.
+	 */
+	long getTaskEnd() {
+		return this.taskEnd;
+	}
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.cloud.dataflow.rest.util.DeploymentPropertiesUtils;
+
+/**
+ * Index of the deployment properties of each task app of a composed task,
+ * built from the composed task properties in a single pass.
+ *
+ * A property {@code app.<task>.<key>} or {@code deployer.<task>.<key>} is
+ * indexed as {@code <key>} under the name of the task, a {@code deployer}
+ * property taking precedence over an {@code app} property with the same key.
+ * The maps returned by the index are immutable and are shared by all the steps
+ * of a task app.
+ */
+public class TaskDeploymentPropertiesIndex {
+
+	private static final String APP_PREFIX = "app.";
+
+	private static final String DEPLOYER_PREFIX = "deployer.";
+
+	private final Map<String, Map<String, String>> taskProperties;
+
+	/**
+	 * @param composedTaskProperties the composed task properties, may be null.
+	 * @param taskNames the names of the task apps of the composed task.
+	 */
+	public TaskDeploymentPropertiesIndex(String composedTaskProperties,
+			Collection<String> taskNames) {
+		Set<String> names = new HashSet<>(taskNames);
+		Map<String, Map<String, String>> appProperties = new HashMap<>();
+		Map<String, Map<String, String>> deployerProperties = new HashMap<>();
+		for (Map.Entry<String, String> entry :
+				DeploymentPropertiesUtils.parse(composedTaskProperties).entrySet()) {
+			String key = entry.getKey();
+			if (key.startsWith(APP_PREFIX)) {
+				index(key, APP_PREFIX.length(), entry.getValue(), names, appProperties);
+			}
+			else if (key.startsWith(DEPLOYER_PREFIX)) {
+				index(key, DEPLOYER_PREFIX.length(), entry.getValue(), names, deployerProperties);
+			}
+		}
+		Map<String, Map<String, String>> result = new HashMap<>();
+		for (String taskName : names) {
+			Map<String, String> properties = new HashMap<>();
+			if (appProperties.containsKey(taskName)) {
+				properties.putAll(appProperties.get(taskName));
+			}
+			if (deployerProperties.containsKey(taskName)) {
+				properties.putAll(deployerProperties.get(taskName));
+			}
+			result.put(taskName, properties.isEmpty() ?
+					Collections.emptyMap() : Collections.unmodifiableMap(properties));
+		}
+		this.taskProperties = Collections.unmodifiableMap(result);
+	}
+
+	/**
+	 * @param taskName the name of the task app.
+	 * @return the deployment properties of the task app, empty if there are none.
+	 */
+	public Map<String, String> getProperties(String taskName) {
+		Map<String, String> properties = this.taskProperties.get(taskName);
+		return (properties != null) ? properties : Collections.emptyMap();
+	}
+
+	/**
+	 * @return the deployment properties of each task app, keyed by task app name.
+	 */
+	public Map<String, Map<String, String>> getTaskProperties() {
+		return this.taskProperties;
+	}
+
+	/**
+	 * Since task names may contain dots, every dot following the prefix is
+	 * checked for the end of a task name.
+	 */
+	private static void index(String key, int prefixLength, String value, Set<String> taskNames,
+			Map<String, Map<String, String>> index) {
+		for (int dot = key.indexOf('.', prefixLength); dot != -1; dot = key.indexOf('.', dot + 1)) {
+			String taskName = key.substring(prefixLength, dot);
+			if (taskNames.contains(taskName)) {
+				index.computeIfAbsent(taskName, name -> new HashMap<>())
+						.put(key.substring(dot + 1), value);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.stream.annotation.EnableBinding;
+import org.springframework.cloud.stream.annotation.Input;
+import org.springframework.cloud.stream.annotation.StreamListener;
+import org.springframework.cloud.task.repository.TaskExecution;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.SubscribableChannel;
+
+/**
+ * Subscribes to the task lifecycle events published by Spring Cloud Task on the
+ * {@code task-events} channel and wakes the {@link TaskLauncherTasklet} waiting
+ * for a task execution as soon as that execution ends.
+ *
+ * Requires Spring Cloud Stream and a binder on the classpath and the launched
+ * tasks to have task events enabled.
+ */
+@Configuration
+@ConditionalOnClass(name = "org.springframework.cloud.stream.annotation.EnableBinding")
+@ConditionalOnProperty(name = "task-events-enabled", havingValue = "true")
+@EnableBinding(TaskEventsConfiguration.TaskEventsSink.class)
+public class TaskEventsConfiguration {
+
+	private static final Log logger = LogFactory.getLog(TaskEventsConfiguration.class);
+
+	@Autowired
+	private TaskExecutionCompletionNotifier completionNotifier;
+
+	@StreamListener(TaskEventsSink.INPUT)
+	public void onTaskEvent(TaskExecution taskExecution) {
+		if (taskExecution.getEndTime() != null) {
+			logger.debug("Received task end event for task execution " +
+					taskExecution.getExecutionId());
+			this.completionNotifier.notifyCompletion(taskExecution.getExecutionId());
+		}
+	}
+
+	/**
+	 * Binding for the channel where Spring Cloud Task publishes task execution events.
+	 */
+	public interface TaskEventsSink {
+
+		String INPUT = "task-events";
+
+		@Input(INPUT)
+		SubscribableChannel taskEvents();
+
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Allows a {@link TaskLauncherTasklet} to be woken up as soon as the task
+ * execution it launched is reported as complete, rather than waiting for the
+ * full interval between checks to elapse.
+ *
+ * A notification is only a hint that the task execution has ended, the
+ * tasklet still verifies the result against the task repository.
+ */
+public class TaskExecutionCompletionNotifier {
+
+	private static final Log logger = LogFactory.getLog(TaskExecutionCompletionNotifier.class);
+
+	private final Map<Long, CountDownLatch> completionLatches = new ConcurrentHashMap<>();
+
+	/**
+	 * Registers interest in the completion of the task execution.
+	 * @param executionId the id of the task execution launched by the tasklet.
+	 */
+	public void register(long executionId) {
+		this.completionLatches.putIfAbsent(executionId, new CountDownLatch(1));
+	}
+
+	/**
+	 * Removes the registration for the task execution.
+	 * @param executionId the id of the task execution launched by the tasklet.
+	 */
+	public void unregister(long executionId) {
+		this.completionLatches.remove(executionId);
+	}
+
+	/**
+	 * Waits until the task execution is reported as complete or the timeout
+	 * elapses, whichever comes first.
+	 * @param executionId the id of the task execution to wait for.
+	 * @param timeout the maximum time in millis to wait.
+	 * @return true if a completion notification was received for the execution.
+	 * @throws InterruptedException if the current thread is interrupted while waiting.
+	 */
+	public boolean await(long executionId, long timeout) throws InterruptedException {
+		CountDownLatch latch = this.completionLatches.get(executionId);
+		if (latch == null) {
+			Thread.sleep(timeout);
+			return false;
+		}
+		return latch.await(timeout, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Wakes the tasklet waiting on the task execution, if any.
+	 * @param executionId the id of the task execution that has completed.
+	 */
+	public void notifyCompletion(long executionId) {
+		CountDownLatch latch = this.completionLatches.get(executionId);
+		if (latch != null) {
+			logger.debug("Received completion notification for task execution " + executionId);
+			latch.countDown();
+		}
+	}
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.task.repository.TaskExecution;
+
+/**
+ * Holds the completed {@link TaskExecution} observed by a
+ * {@link TaskLauncherTasklet} until the {@link ComposedTaskStepExecutionListener}
+ * of the same step builds the step's exit status from it, so that the listener
+ * does not query the task repository for the same task execution again.
+ */
+public class TaskExecutionStatusCache implements DisposableBean {
+
+	private static final Log logger = LogFactory.getLog(TaskExecutionStatusCache.class);
+
+	private final Map<Long, TaskExecution> completedTaskExecutions = new ConcurrentHashMap<>();
+
+	private final AtomicLong savedReads = new AtomicLong();
+
+	/**
+	 * Stores the completed task execution until its step is finished.
+	 * @param taskExecution the task execution whose end time has been set.
+	 */
+	public void put(TaskExecution taskExecution) {
+		this.completedTaskExecutions.put(taskExecution.getExecutionId(), taskExecution);
+	}
+
+	/**
+	 * Removes the completed task execution from the cache.  Each hit is counted
+	 * as a saved task repository read.
+	 * @param executionId the id of the task execution launched by the step.
+	 * @return the completed task execution or null if it is not cached.
+	 */
+	public TaskExecution remove(long executionId) {
+		TaskExecution taskExecution = this.completedTaskExecutions.remove(executionId);
+		if (taskExecution != null) {
+			this.savedReads.incrementAndGet();
+		}
+		return taskExecution;
+	}
+
+	/**
+	 * @return the number of task repository reads saved by the cache during this run.
+	 */
+	public long getSavedReads() {
+		return this.savedReads.get();
+	}
+
+	@Override
+	public void destroy() {
+		logger.info(String.format("Task execution status cache saved %s task repository reads",
+				this.savedReads.get()));
+	}
+
+}
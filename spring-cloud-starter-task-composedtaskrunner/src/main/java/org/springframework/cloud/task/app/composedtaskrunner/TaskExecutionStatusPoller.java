@@ -0,0 +1,215 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cloud.task.repository.TaskExecution;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.util.Assert;
+
+/**
+ * Polls the task repository for the status of all the task executions that
+ * are currently being waited on by {@link TaskLauncherTasklet}s using a single
+ * query per interval, rather than each tasklet querying for its own task
+ * execution.  Once a task execution has ended the tasklet waiting on it is
+ * woken through the {@link TaskExecutionCompletionNotifier}.
+ *
+ * If a read replica is set, the query runs on the replica, except that it runs
+ * on the primary database whenever the lag tolerance has elapsed since it last
+ * did, so that a replica falling behind delays the detection of a completion
+ * by at most the lag tolerance.
+ */
+public class TaskExecutionStatusPoller implements InitializingBean, DisposableBean {
+
+	/**
+	 * Upper bound on the number of execution ids in a single IN clause, since
+	 * some databases limit the number of elements that can be used.
+	 */
+	static final int MAX_EXECUTION_IDS_PER_QUERY = 500;
+
+	private static final String COMPLETED_TASK_EXECUTIONS =
+			"SELECT TASK_EXECUTION_ID, TASK_NAME, START_TIME, END_TIME, EXIT_CODE, EXIT_MESSAGE "
+					+ "FROM %PREFIX%EXECUTION "
+					+ "WHERE END_TIME IS NOT NULL AND TASK_EXECUTION_ID IN (:executionIds)";
+
+	private static final Log logger = LogFactory.getLog(TaskExecutionStatusPoller.class);
+
+	private final NamedParameterJdbcTemplate jdbcTemplate;
+
+	private final String completedTaskExecutionsQuery;
+
+	private final TaskExecutionCompletionNotifier completionNotifier;
+
+	private final long intervalTimeBetweenChecks;
+
+	private final Set<Long> registeredExecutionIds = ConcurrentHashMap.newKeySet();
+
+	private final Map<Long, TaskExecution> completedTaskExecutions = new ConcurrentHashMap<>();
+
+	private NamedParameterJdbcTemplate replicaJdbcTemplate;
+
+	private long lagTolerance;
+
+	private long primaryPollTime;
+
+	private ScheduledExecutorService scheduler;
+
+	public TaskExecutionStatusPoller(DataSource dataSource, String tablePrefix,
+			TaskExecutionCompletionNotifier completionNotifier,
+			long intervalTimeBetweenChecks) {
+		Assert.notNull(dataSource, "dataSource must not be null.");
+		Assert.hasText(tablePrefix, "tablePrefix must not be empty nor null.");
+		Assert.notNull(completionNotifier, "completionNotifier must not be null.");
+		Assert.isTrue(intervalTimeBetweenChecks > 0,
+				"intervalTimeBetweenChecks must be greater than zero.");
+
+		this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+		this.completedTaskExecutionsQuery = COMPLETED_TASK_EXECUTIONS.replace("%PREFIX%", tablePrefix);
+		this.completionNotifier = completionNotifier;
+		this.intervalTimeBetweenChecks = intervalTimeBetweenChecks;
+	}
+
+	/**
+	 * Runs the status query on a read replica of the task repository.
+	 * @param replicaDataSource the data source of the read replica.
+	 * @param lagTolerance the maximum time in millis between two queries of the
+	 * primary database.
+	 */
+	public void setReplica(DataSource replicaDataSource, long lagTolerance) {
+		Assert.notNull(replicaDataSource, "replicaDataSource must not be null.");
+		this.replicaJdbcTemplate = new NamedParameterJdbcTemplate(replicaDataSource);
+		this.lagTolerance = lagTolerance;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "task-execution-status-poller");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.scheduler.scheduleWithFixedDelay(this::pollQuietly,
+				this.intervalTimeBetweenChecks, this.intervalTimeBetweenChecks,
+				TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void destroy() {
+		if (this.scheduler != null) {
+			this.scheduler.shutdownNow();
+		}
+	}
+
+	/**
+	 * Adds the task execution to the set of executions whose status is polled.
+	 * @param executionId the id of the task execution launched by the tasklet.
+	 */
+	public void register(long executionId) {
+		this.registeredExecutionIds.add(executionId);
+		this.completionNotifier.register(executionId);
+	}
+
+	/**
+	 * Stops polling the status of the task execution.
+	 * @param executionId the id of the task execution launched by the tasklet.
+	 */
+	public void unregister(long executionId) {
+		this.registeredExecutionIds.remove(executionId);
+		this.completedTaskExecutions.remove(executionId);
+		this.completionNotifier.unregister(executionId);
+	}
+
+	/**
+	 * @param executionId the id of a registered task execution.
+	 * @return the {@link TaskExecution} containing the end time, exit code and
+	 * exit message if the task execution has ended, else null.
+	 */
+	public TaskExecution getTaskExecution(long executionId) {
+		return this.completedTaskExecutions.get(executionId);
+	}
+
+	/**
+	 * Retrieves the status of all registered task executions that have not yet
+	 * been seen to end and notifies the waiting tasklets of those that have.
+	 */
+	public void poll() {
+		List<Long> executionIds = new ArrayList<>(this.registeredExecutionIds);
+		executionIds.removeAll(this.completedTaskExecutions.keySet());
+		if (executionIds.isEmpty()) {
+			return;
+		}
+		NamedParameterJdbcTemplate jdbcTemplate = this.jdbcTemplate;
+		long now = System.currentTimeMillis();
+		if (this.replicaJdbcTemplate != null && now - this.primaryPollTime < this.lagTolerance) {
+			jdbcTemplate = this.replicaJdbcTemplate;
+		}
+		else {
+			this.primaryPollTime = now;
+		}
+		for (int i = 0; i < executionIds.size(); i += MAX_EXECUTION_IDS_PER_QUERY) {
+			List<Long> batch = executionIds.subList(i,
+					Math.min(i + MAX_EXECUTION_IDS_PER_QUERY, executionIds.size()));
+			jdbcTemplate.query(this.completedTaskExecutionsQuery,
+					new MapSqlParameterSource("executionIds", batch),
+					this::completeTaskExecution);
+		}
+	}
+
+	private void pollQuietly() {
+		try {
+			poll();
+		}
+		catch (Exception e) {
+			logger.warn("Failed to poll the status of the task executions", e);
+		}
+	}
+
+	private void completeTaskExecution(ResultSet resultSet) throws SQLException {
+		TaskExecution taskExecution = new TaskExecution();
+		taskExecution.setExecutionId(resultSet.getLong("TASK_EXECUTION_ID"));
+		taskExecution.setTaskName(resultSet.getString("TASK_NAME"));
+		taskExecution.setStartTime(resultSet.getTimestamp("START_TIME"));
+		taskExecution.setEndTime(resultSet.getTimestamp("END_TIME"));
+		int exitCode = resultSet.getInt("EXIT_CODE");
+		taskExecution.setExitCode(resultSet.wasNull() ? null : exitCode);
+		taskExecution.setExitMessage(resultSet.getString("EXIT_MESSAGE"));
+
+		if (this.registeredExecutionIds.contains(taskExecution.getExecutionId())) {
+			this.completedTaskExecutions.put(taskExecution.getExecutionId(), taskExecution);
+			this.completionNotifier.notifyCompletion(taskExecution.getExecutionId());
+		}
+	}
+
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Semaphore;
+
+import org.springframework.cloud.dataflow.rest.util.DeploymentPropertiesUtils;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Limits the number of tasks of a composed task that run at the same time,
+ * across all the splits of the graph and within concurrency groups.  A step
+ * takes permits from fair semaphores before it launches its task and returns
+ * them once the task execution completes, so the steps waiting for permits
+ * launch their tasks in the order they asked for them.
+ *
+ * The concurrency groups of a task are the group set by its
+ * {@value #GROUP_PROPERTY} deployment property, its label, which is the name
+ * of the task in the graph, and the splits it runs in, named as by
+ * {@link ComposedTaskPlan#getStepSplits()}.  A task takes the permits of each of
+ * its groups that has a limit, in the order of the names of the groups, before
+ * those shared by all the tasks if there is a limit on all the tasks.  A task
+ * takes one permit unless its {@value #WEIGHT_PROPERTY} deployment property is
+ * set, and a task weighing more than a limit takes all the permits of that limit.
+ */
+public class TaskLaunchGovernor {
+
+	/**
+	 * The deployment property holding the number of permits taken by a task
+	 * app.  It is not passed to the task.
+	 */
+	public static final String WEIGHT_PROPERTY = "concurrency-weight";
+
+	/**
+	 * The deployment property holding the concurrency group of a task app.  It
+	 * is not passed to the task.
+	 */
+	public static final String GROUP_PROPERTY = "concurrency-group";
+
+	private final int maxConcurrentTasks;
+
+	private final Semaphore permits;
+
+	private final Map<String, Integer> groupLimits;
+
+	private final Map<String, Semaphore> groupPermits = new HashMap<>();
+
+	private final Map<String, List<String>> stepSplits;
+
+	/**
+	 * @param maxConcurrentTasks the number of permits shared by the tasks.
+	 */
+	public TaskLaunchGovernor(int maxConcurrentTasks) {
+		this(maxConcurrentTasks, Collections.emptyMap(), Collections.emptyMap());
+	}
+
+	/**
+	 * @param maxConcurrentTasks the number of permits shared by the tasks, 0
+	 * for no limit on all the tasks.
+	 * @param groupLimits the number of permits of each concurrency group.
+	 * @param stepSplits the names of the splits enclosing each step, keyed by
+	 * step bean name.
+	 */
+	public TaskLaunchGovernor(int maxConcurrentTasks, Map<String, Integer> groupLimits,
+			Map<String, List<String>> stepSplits) {
+		Assert.isTrue(maxConcurrentTasks >= 0, "maxConcurrentTasks must not be negative.");
+		Assert.notNull(groupLimits, "groupLimits must not be null");
+		Assert.notNull(stepSplits, "stepSplits must not be null");
+		this.stepSplits = stepSplits;
+		this.maxConcurrentTasks = maxConcurrentTasks;
+		this.permits = (maxConcurrentTasks > 0) ? new Semaphore(maxConcurrentTasks, true) : null;
+		for (Map.Entry<String, Integer> groupLimit : groupLimits.entrySet()) {
+			Assert.isTrue(groupLimit.getValue() > 0, String.format(
+					"The limit of concurrency group %s must be greater than zero.", groupLimit.getKey()));
+			this.groupPermits.put(groupLimit.getKey(), new Semaphore(groupLimit.getValue(), true));
+		}
+		this.groupLimits = Collections.unmodifiableMap(new HashMap<>(groupLimits));
+	}
+
+	/**
+	 * @param groupLimits comma separated {@code <group>=<limit>} pairs, may be null.
+	 * @return the number of permits of each concurrency group.
+	 */
+	public static Map<String, Integer> parseGroupLimits(String groupLimits) {
+		Map<String, Integer> result = new HashMap<>();
+		for (Map.Entry<String, String> groupLimit :
+				DeploymentPropertiesUtils.parse(groupLimits).entrySet()) {
+			try {
+				result.put(groupLimit.getKey().trim(), Integer.parseInt(groupLimit.getValue().trim()));
+			}
+			catch (NumberFormatException e) {
+				throw new IllegalArgumentException(String.format(
+						"Invalid limit '%s' of concurrency group %s",
+						groupLimit.getValue(), groupLimit.getKey()), e);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param properties the deployment properties of a task app.
+	 * @return the number of permits the task app takes, 1 if it has no
+	 * {@value #WEIGHT_PROPERTY} property.
+	 */
+	public static int getWeight(Map<String, String> properties) {
+		String weight = properties.get(WEIGHT_PROPERTY);
+		if (weight == null) {
+			return 1;
+		}
+		int result;
+		try {
+			result = Integer.parseInt(weight.trim());
+		}
+		catch (NumberFormatException e) {
+			throw new IllegalArgumentException(String.format(
+					"Invalid %s '%s'", WEIGHT_PROPERTY, weight), e);
+		}
+		Assert.isTrue(result > 0, WEIGHT_PROPERTY + " must be greater than zero.");
+		return result;
+	}
+
+	/**
+	 * @param stepName the name of the step launching a task, made of the label
+	 * of the task and of a suffix distinguishing its occurrences in the graph.
+	 * @param properties the deployment properties of the task app.
+	 * @return the concurrency groups of the task that have a limit, in the
+	 * order their permits are taken.
+	 */
+	public List<String> getLaunchGroups(String stepName, Map<String, String> properties) {
+		Set<String> groups = new TreeSet<>();
+		String group = properties.get(GROUP_PROPERTY);
+		if (StringUtils.hasText(group)) {
+			groups.add(group.trim());
+		}
+		groups.add(ComposedTaskPlanCompiler.getTaskName(stepName));
+		groups.addAll(this.stepSplits.getOrDefault(stepName, Collections.emptyList()));
+		groups.retainAll(this.groupPermits.keySet());
+		return new ArrayList<>(groups);
+	}
+
+	/**
+	 * @param groups the concurrency groups of a task that have a limit.
+	 * @return whether the launches of the task are limited.
+	 */
+	public boolean isLimited(List<String> groups) {
+		return this.permits != null || !groups.isEmpty();
+	}
+
+	/**
+	 * Waits until the permits of a task are available and takes them.  The
+	 * permits of the groups are taken first, each group in the same order for
+	 * all the tasks, so that a task waiting for a group does not hold permits
+	 * needed by the tasks of other groups.
+	 * @param groups the concurrency groups of the task that have a limit.
+	 * @param weight the weight of the task.
+	 * @throws InterruptedException if the thread is interrupted while waiting.
+	 */
+	public void acquire(List<String> groups, int weight) throws InterruptedException {
+		List<String> acquired = new ArrayList<>(groups.size());
+		try {
+			for (String group : groups) {
+				this.groupPermits.get(group).acquire(Math.min(weight, this.groupLimits.get(group)));
+				acquired.add(group);
+			}
+			if (this.permits != null) {
+				this.permits.acquire(Math.min(weight, this.maxConcurrentTasks));
+			}
+		}
+		catch (InterruptedException e) {
+			releaseGroups(acquired, weight);
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the permits taken by a task.
+	 * @param groups the concurrency groups of the task that have a limit.
+	 * @param weight the weight of the task.
+	 */
+	public void release(List<String> groups, int weight) {
+		if (this.permits != null) {
+			this.permits.release(Math.min(weight, this.maxConcurrentTasks));
+		}
+		releaseGroups(groups, weight);
+	}
+
+	private void releaseGroups(List<String> groups, int weight) {
+		for (String group : groups) {
+			this.groupPermits.get(group).release(Math.min(weight, this.groupLimits.get(group)));
+		}
+	}
+
+	/**
+	 * @return the number of permits shared by the tasks, 0 if there is no
+	 * limit on all the tasks.
+	 */
+	public int getMaxConcurrentTasks() {
+		return this.maxConcurrentTasks;
+	}
+
+	/**
+	 * @return the concurrency groups that have a limit.
+	 */
+	public Set<String> getGroups() {
+		return this.groupLimits.keySet();
+	}
+
+	/**
+	 * @return the number of permits shared by the tasks not taken by a task.
+	 */
+	public int getAvailablePermits() {
+		return (this.permits != null) ? this.permits.availablePermits() : 0;
+	}
+
+	/**
+	 * @return an estimate of the number of steps waiting for permits shared by
+	 * the tasks.
+	 */
+	public int getQueueLength() {
+		return (this.permits != null) ? this.permits.getQueueLength() : 0;
+	}
+
+	/**
+	 * @param group a concurrency group that has a limit.
+	 * @return the number of permits of the group not taken by a task.
+	 */
+	public int getAvailablePermits(String group) {
+		return this.groupPermits.get(group).availablePermits();
+	}
+
+	/**
+	 * @param group a concurrency group that has a limit.
+	 * @return an estimate of the number of steps waiting for permits of the group.
+	 */
+	public int getQueueLength(String group) {
+		return this.groupPermits.get(group).getQueueLength();
+	}
+
+}
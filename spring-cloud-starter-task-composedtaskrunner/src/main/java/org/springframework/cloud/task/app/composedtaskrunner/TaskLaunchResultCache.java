@@ -0,0 +1,153 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.cloud.task.repository.TaskExecution;
+import org.springframework.cloud.task.repository.TaskExplorer;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.util.Assert;
+
+/**
+ * Finds a successful execution of a task that was launched with the same
+ * properties and arguments, so that a step can reuse its result rather than
+ * launching the task again.
+ *
+ * Each launch request is identified by a fingerprint, a hash of the task name,
+ * its deployment properties and its arguments other than the parent execution
+ * id.  The fingerprint is passed to the task as the
+ * {@value #FINGERPRINT_ARGUMENT} argument, which the task repository stores
+ * with the task execution.  Only the executions that started within the time
+ * to live of the cache are considered.
+ */
+public class TaskLaunchResultCache {
+
+	/**
+	 * The argument holding the fingerprint of the launch request.
+	 */
+	public static final String FINGERPRINT_ARGUMENT = "--composed-task-fingerprint=";
+
+	/**
+	 * The deployment property that, set to false for a task app, disables the
+	 * cache for its launches.  It is not passed to the task.
+	 */
+	public static final String ENABLED_PROPERTY = "result-cache-enabled";
+
+	private static final String PARENT_EXECUTION_ID_ARGUMENT =
+			"--spring.cloud.task.parent-execution-id=";
+
+	private static final int PAGE_SIZE = 50;
+
+	private final TaskExplorer taskExplorer;
+
+	private final long timeToLive;
+
+	/**
+	 * @param taskExplorer the explorer used to find the previous executions of a task.
+	 * @param timeToLive the time in millis after its start during which the
+	 * result of a task execution can be reused.
+	 */
+	public TaskLaunchResultCache(TaskExplorer taskExplorer, long timeToLive) {
+		Assert.notNull(taskExplorer, "taskExplorer must not be null");
+		Assert.isTrue(timeToLive > 0, "timeToLive must be greater than zero");
+		this.taskExplorer = taskExplorer;
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * @param taskName the name of the task to launch.
+	 * @param properties the deployment properties of the launch.
+	 * @param arguments the arguments of the launch.
+	 * @return the fingerprint of the launch request.
+	 */
+	public static String fingerprint(String taskName, Map<String, String> properties,
+			List<String> arguments) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			update(digest, taskName);
+			Map<String, String> sortedProperties = new TreeMap<>(properties);
+			sortedProperties.remove(ENABLED_PROPERTY);
+			digest.update(ByteBuffer.allocate(4).putInt(sortedProperties.size()).array());
+			for (Map.Entry<String, String> property : sortedProperties.entrySet()) {
+				update(digest, property.getKey());
+				update(digest, property.getValue());
+			}
+			for (String argument : arguments) {
+				if (!argument.startsWith(PARENT_EXECUTION_ID_ARGUMENT) &&
+						!argument.startsWith(FINGERPRINT_ARGUMENT)) {
+					update(digest, argument);
+				}
+			}
+			StringBuilder fingerprint = new StringBuilder();
+			for (byte b : digest.digest()) {
+				fingerprint.append(String.format("%02x", b));
+			}
+			return fingerprint.toString();
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Finds the most recent successful execution of the task, within the time
+	 * to live, whose launch request had the given fingerprint.
+	 * @param taskName the name of the task.
+	 * @param fingerprint the fingerprint of the launch request.
+	 * @return the task execution or null if none is found.
+	 */
+	public TaskExecution find(String taskName, String fingerprint) {
+		long oldestStartTime = System.currentTimeMillis() - this.timeToLive;
+		String fingerprintArgument = FINGERPRINT_ARGUMENT + fingerprint;
+		Pageable pageable = PageRequest.of(0, PAGE_SIZE);
+		while (pageable != null) {
+			Page<TaskExecution> page = this.taskExplorer.findTaskExecutionsByName(taskName, pageable);
+			for (TaskExecution taskExecution : page) {
+				// an execution not started yet may be listed ahead of the started ones
+				if (taskExecution.getStartTime() == null) {
+					continue;
+				}
+				if (taskExecution.getStartTime().getTime() < oldestStartTime) {
+					return null;
+				}
+				if (taskExecution.getEndTime() != null && taskExecution.getExitCode() != null &&
+						taskExecution.getExitCode() == 0 &&
+						taskExecution.getArguments().contains(fingerprintArgument)) {
+					return taskExecution;
+				}
+			}
+			pageable = page.hasNext() ? page.nextPageable() : null;
+		}
+		return null;
+	}
+
+	private static void update(MessageDigest digest, String value) {
+		byte[] bytes = (value != null) ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+		digest.update(ByteBuffer.allocate(4).putInt((value != null) ? bytes.length : -1).array());
+		digest.update(bytes);
+	}
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import org.springframework.batch.repeat.RepeatCallback;
+import org.springframework.batch.repeat.RepeatContext;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.batch.repeat.support.RepeatInternalState;
+import org.springframework.batch.repeat.support.RepeatTemplate;
+import org.springframework.util.Assert;
+
+/**
+ * Step operations that wait for the task launched by a {@link TaskLauncherTasklet}
+ * before each chunk rather than inside it.  Each chunk runs in its own
+ * transaction that updates the step execution in the job repository, so waiting
+ * between chunks means that only the launch of the task, its completion and
+ * the optional heartbeats are written.
+ */
+public class TaskLauncherRepeatTemplate extends RepeatTemplate {
+
+	private final TaskLauncherTasklet taskLauncherTasklet;
+
+	public TaskLauncherRepeatTemplate(TaskLauncherTasklet taskLauncherTasklet) {
+		Assert.notNull(taskLauncherTasklet, "taskLauncherTasklet must not be null");
+		this.taskLauncherTasklet = taskLauncherTasklet;
+	}
+
+	@Override
+	protected RepeatStatus getNextResult(RepeatContext context, RepeatCallback callback,
+			RepeatInternalState state) throws Throwable {
+		this.taskLauncherTasklet.waitForTaskExecution();
+		return super.getNextResult(context, callback, state);
+	}
+
+}
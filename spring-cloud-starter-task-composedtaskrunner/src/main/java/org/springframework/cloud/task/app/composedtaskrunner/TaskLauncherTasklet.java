@@ -17,6 +17,7 @@
 package org.springframework.cloud.task.app.composedtaskrunner;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,7 +25,10 @@ import java.util.Map;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.batch.core.ExitStatus;
 import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
 import org.springframework.batch.core.UnexpectedJobExecutionException;
 import org.springframework.batch.core.scope.context.ChunkContext;
 import org.springframework.batch.core.step.tasklet.Tasklet;
@@ -33,6 +37,7 @@ import org.springframework.batch.repeat.RepeatStatus;
 import org.springframework.cloud.dataflow.rest.client.TaskOperations;
 import org.springframework.cloud.task.app.composedtaskrunner.properties.ComposedTaskProperties;
 import org.springframework.cloud.task.app.composedtaskrunner.support.TaskExecutionTimeoutException;
+import org.springframework.cloud.task.app.composedtaskrunner.support.WorkStealingTaskExecutor;
 import org.springframework.cloud.task.configuration.TaskProperties;
 import org.springframework.cloud.task.repository.TaskExecution;
 import org.springframework.cloud.task.repository.TaskExplorer;
@@ -42,11 +47,21 @@ import org.springframework.util.Assert;
  * Executes task launch request using Spring Cloud Data Flow's Restful API
  * then returns the execution id once the task launched.
  *
+ * The tasklet is registered as a listener of its step, so that the permits it
+ * took from the {@link TaskLaunchGovernor} are returned however the step ends.
+ *
  * Note: This class is not thread-safe and as such should not be used as a singleton.
  *
  * @author Glenn Renfro
  */
-public class TaskLauncherTasklet implements Tasklet {
+public class TaskLauncherTasklet implements Tasklet, StepExecutionListener {
+
+	/**
+	 * Time in millis to wait between checks once a completion notification has
+	 * been received but the task repository does not yet reflect the end of the
+	 * task execution.
+	 */
+	static final long NOTIFIED_RECHECK_INTERVAL = 100;
 
 	private ComposedTaskProperties composedTaskProperties;
 
@@ -62,10 +77,48 @@ public class TaskLauncherTasklet implements Tasklet {
 
 	private static final Log logger = LogFactory.getLog(TaskLauncherTasklet.class);
 
+	/**
+	 * The number of intervals between checks after which a wait for the task
+	 * execution ends if no heartbeat interval is set.
+	 */
+	private static final long HEARTBEAT_CHECKS = 10;
+
 	private Long executionId;
 
 	private long timeout;
 
+	private TaskExecutionCompletionNotifier completionNotifier;
+
+	private boolean completionNotified;
+
+	private TaskExecutionStatusPoller statusPoller;
+
+	private TaskExecutionStatusCache statusCache;
+
+	private TaskLaunchResultCache resultCache;
+
+	private ComposedTaskMetrics metrics;
+
+	private ComposedTaskTracing tracing;
+
+	private StepExecution stepExecution;
+
+	private TaskLaunchGovernor launchGovernor;
+
+	private List<String> launchGroups = Collections.emptyList();
+
+	private int launchWeight = 1;
+
+	private boolean launchPermitsHeld;
+
+	private AdaptivePollingInterval pollingInterval;
+
+	private long launchTime;
+
+	private boolean awaited;
+
+	private TaskExecution awaitedTaskExecution;
+
 	TaskProperties taskProperties;
 
 	public TaskLauncherTasklet(
@@ -103,6 +156,93 @@ public class TaskLauncherTasklet implements Tasklet {
 		}
 	}
 
+	/**
+	 * Establishes the notifier used to wake this tasklet as soon as the launched
+	 * task execution completes.  If not set the tasklet waits the full
+	 * interval between checks.
+	 * @param completionNotifier the notifier for task execution completion.
+	 */
+	public void setCompletionNotifier(TaskExecutionCompletionNotifier completionNotifier) {
+		this.completionNotifier = completionNotifier;
+	}
+
+	/**
+	 * Establishes the shared poller that retrieves the status of the launched
+	 * task execution.  If not set the tasklet queries the {@link TaskExplorer}
+	 * for the task execution on every check.
+	 * @param statusPoller the poller shared by all the tasklets of the composed task.
+	 */
+	public void setStatusPoller(TaskExecutionStatusPoller statusPoller) {
+		this.statusPoller = statusPoller;
+	}
+
+	/**
+	 * Establishes the cache where the completed task execution is stored for
+	 * the step's {@link ComposedTaskStepExecutionListener}.
+	 * @param statusCache the cache of completed task executions.
+	 */
+	public void setStatusCache(TaskExecutionStatusCache statusCache) {
+		this.statusCache = statusCache;
+	}
+
+	/**
+	 * Establishes the cache used to reuse the result of a previous successful
+	 * execution of the task launched with the same properties and arguments.
+	 * If not set the task is always launched.
+	 * @param resultCache the cache of task launch results.
+	 */
+	public void setResultCache(TaskLaunchResultCache resultCache) {
+		this.resultCache = resultCache;
+	}
+
+	/**
+	 * Establishes the metrics recorded for the launch of the task and the
+	 * checks for its completion.  If not set no metrics are recorded.
+	 * @param metrics the metrics of the composed task.
+	 */
+	public void setMetrics(ComposedTaskMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Establishes the tracing of the launch of the task and of the queries of
+	 * the status of its task execution, which also passes the trace context to
+	 * the task.  If not set no spans are recorded.
+	 * @param tracing the tracing of the composed task.
+	 */
+	public void setTracing(ComposedTaskTracing tracing) {
+		this.tracing = tracing;
+	}
+
+	/**
+	 * Establishes the governor from which permits are taken before the task is
+	 * launched, and returned once its task execution completes.  If not set
+	 * the task is launched without waiting.
+	 * @param launchGovernor the governor limiting the tasks running at the same time.
+	 */
+	public void setLaunchGovernor(TaskLaunchGovernor launchGovernor) {
+		this.launchGovernor = launchGovernor;
+	}
+
+	/**
+	 * Establishes the concurrency groups of the task in the
+	 * {@link TaskLaunchGovernor}.  If not set the task only takes the permits
+	 * shared by all the tasks.
+	 * @param launchGroups the concurrency groups of the task that have a limit.
+	 */
+	public void setLaunchGroups(List<String> launchGroups) {
+		this.launchGroups = (launchGroups != null) ? launchGroups : Collections.emptyList();
+	}
+
+	/**
+	 * Establishes the number of permits of the {@link TaskLaunchGovernor}
+	 * taken by the task.  Default is 1.
+	 * @param launchWeight the weight of the task.
+	 */
+	public void setLaunchWeight(int launchWeight) {
+		this.launchWeight = launchWeight;
+	}
+
 	/**
 	 * Executes the task as specified by the taskName with the associated
 	 * properties and arguments.
@@ -114,6 +254,46 @@ public class TaskLauncherTasklet implements Tasklet {
 	@Override
 	public RepeatStatus execute(StepContribution contribution,
 			ChunkContext chunkContext) {
+		if (this.launchGovernor == null) {
+			return launchOrCheck(chunkContext);
+		}
+		try {
+			if (this.executionId == null) {
+				acquireLaunchPermits();
+			}
+			RepeatStatus status = launchOrCheck(chunkContext);
+			if (!status.isContinuable()) {
+				releaseLaunchPermits();
+			}
+			return status;
+		}
+		catch (RuntimeException e) {
+			releaseLaunchPermits();
+			throw e;
+		}
+	}
+
+	@Override
+	public void beforeStep(StepExecution stepExecution) {
+		this.stepExecution = stepExecution;
+	}
+
+	/**
+	 * Returns the permits of the task if they are still held, as when the step
+	 * is stopped or fails with an error while waiting for its task.
+	 */
+	@Override
+	public ExitStatus afterStep(StepExecution stepExecution) {
+		if (this.launchGovernor != null) {
+			releaseLaunchPermits();
+		}
+		return null;
+	}
+
+	private RepeatStatus launchOrCheck(ChunkContext chunkContext) {
+		if (this.tracing != null) {
+			this.stepExecution = chunkContext.getStepContext().getStepExecution();
+		}
 		if (this.executionId == null) {
 			this.timeout = System.currentTimeMillis() +
 					this.composedTaskProperties.getMaxWaitTime();
@@ -129,30 +309,95 @@ public class TaskLauncherTasklet implements Tasklet {
 
 			ExecutionContext stepExecutionContext = chunkContext.getStepContext().getStepExecution().
 					getExecutionContext();
+			List<String> composedTaskArguments = (List<String>) chunkContext.getStepContext()
+					.getStepExecution().getJobExecution().getExecutionContext()
+					.get(ComposedTaskArgumentsListener.COMPOSED_TASK_ARGUMENTS);
 			if (stepExecutionContext.containsKey("task-arguments")) {
 				args = (List<String>) stepExecutionContext.get("task-arguments");
 			}
+			else if (composedTaskArguments != null &&
+					stepExecutionContext.containsKey("task-argument-additions")) {
+				args = new ArrayList<>(composedTaskArguments);
+				args.addAll((List<String>) stepExecutionContext.get("task-argument-additions"));
+			}
 			if(this.taskProperties.getExecutionid() != null) {
 				args.add("--spring.cloud.task.parent-execution-id=" + this.taskProperties.getExecutionid());
 			}
-			this.executionId = this.taskOperations.launch(tmpTaskName,
-					this.properties, args, null);
+			if (this.tracing != null) {
+				args.removeIf(this.tracing::isTraceArgument);
+			}
+			if (this.composedTaskProperties.isAdaptivePollingEnabled()) {
+				this.pollingInterval = new AdaptivePollingInterval(
+						this.composedTaskProperties.getAdaptivePollingInitialInterval(),
+						this.composedTaskProperties.getAdaptivePollingMaxInterval(),
+						this.composedTaskProperties.getAdaptivePollingMultiplier(),
+						AdaptivePollingInterval.medianDuration(this.taskExplorer, tmpTaskName,
+								this.composedTaskProperties.getAdaptivePollingHistorySize()));
+			}
+			if (this.composedTaskProperties.isReattachOnRestartEnabled() &&
+					stepExecutionContext.containsKey("task-execution-id")) {
+				RepeatStatus status = reattach((Long) stepExecutionContext.get("task-execution-id"));
+				if (status != null) {
+					return status;
+				}
+			}
+			if (this.resultCache != null) {
+				String fingerprint = TaskLaunchResultCache.fingerprint(tmpTaskName,
+						this.properties, args);
+				TaskExecution cachedTaskExecution = this.resultCache.find(tmpTaskName, fingerprint);
+				if (cachedTaskExecution != null) {
+					logger.info(String.format("Reusing the result of task execution %s of task %s",
+							cachedTaskExecution.getExecutionId(), tmpTaskName));
+					this.executionId = cachedTaskExecution.getExecutionId();
+					if (this.statusCache != null) {
+						this.statusCache.put(cachedTaskExecution);
+					}
+					stepExecutionContext.put("task-execution-id", this.executionId);
+					return RepeatStatus.FINISHED;
+				}
+				args.removeIf(arg -> arg.startsWith(TaskLaunchResultCache.FINGERPRINT_ARGUMENT));
+				args.add(TaskLaunchResultCache.FINGERPRINT_ARGUMENT + fingerprint);
+			}
+			this.launchTime = System.currentTimeMillis();
+			long launchStart = System.nanoTime();
+			List<String> launchArguments = args;
+			this.executionId = (this.tracing != null) ?
+					this.tracing.inSpan(this.stepExecution, "launch " + tmpTaskName,
+							() -> launch(tmpTaskName, launchArguments)) :
+					launch(tmpTaskName, launchArguments);
+			if (this.metrics != null) {
+				this.metrics.recordLaunch(tmpTaskName, this.taskName, System.nanoTime() - launchStart);
+			}
+
+			registerTaskExecution();
 
 			stepExecutionContext.put("task-execution-id", executionId);
-			stepExecutionContext.put("task-arguments", args);
+			if (composedTaskArguments != null && args.size() >= composedTaskArguments.size() &&
+					args.subList(0, composedTaskArguments.size()).equals(composedTaskArguments)) {
+				stepExecutionContext.remove("task-arguments");
+				stepExecutionContext.put("task-argument-additions", new ArrayList<>(
+						args.subList(composedTaskArguments.size(), args.size())));
+			}
+			else {
+				stepExecutionContext.put("task-arguments", args);
+			}
 		}
 		else {
-			try {
-				Thread.sleep(this.composedTaskProperties.getIntervalTimeBetweenChecks());
+			TaskExecution taskExecution;
+			if (this.awaited) {
+				taskExecution = this.awaitedTaskExecution;
+				this.awaited = false;
 			}
-			catch (InterruptedException e) {
-				Thread.currentThread().interrupt();
-				throw new IllegalStateException(e.getMessage(), e);
+			else {
+				waitForNextCheck();
+				taskExecution = getTaskExecution();
 			}
-
-			TaskExecution taskExecution =
-					this.taskExplorer.getTaskExecution(this.executionId);
 			if (taskExecution != null && taskExecution.getEndTime() != null) {
+				unregisterTaskExecution();
+				recordCompletionMetrics(taskExecution);
+				if (this.statusCache != null) {
+					this.statusCache.put(taskExecution);
+				}
 				if (taskExecution.getExitCode() == null) {
 					throw new UnexpectedJobExecutionException("Task returned a null exit code.");
 				}
@@ -165,6 +410,7 @@ public class TaskLauncherTasklet implements Tasklet {
 			}
 			if (this.composedTaskProperties.getMaxWaitTime() > 0 &&
 					System.currentTimeMillis() > timeout) {
+				unregisterTaskExecution();
 				throw new TaskExecutionTimeoutException(String.format(
 						"Timeout occurred while processing task with Execution Id %s",
 						this.executionId));
@@ -173,4 +419,246 @@ public class TaskLauncherTasklet implements Tasklet {
 		return RepeatStatus.CONTINUABLE;
 	}
 
+	/**
+	 * Waits for the launched task execution to complete, checking its status
+	 * every interval between checks.  The wait ends early once the maximum wait
+	 * time or the heartbeat interval has elapsed, or once the step is asked to
+	 * stop, so that the step execution is updated and a stop is noticed.  The
+	 * next call to {@link #execute(StepContribution, ChunkContext)} then uses
+	 * the result of this wait rather than checking the status itself.  Does nothing if the
+	 * task has not been launched yet, other than waiting for the permits of
+	 * the {@link TaskLaunchGovernor} if set.
+	 */
+	public void waitForTaskExecution() {
+		if (this.launchGovernor != null) {
+			try {
+				if (this.executionId == null) {
+					acquireLaunchPermits();
+				}
+				else {
+					awaitTaskExecution();
+				}
+			}
+			catch (RuntimeException e) {
+				releaseLaunchPermits();
+				throw e;
+			}
+		}
+		else if (this.executionId != null) {
+			awaitTaskExecution();
+		}
+	}
+
+	private void awaitTaskExecution() {
+		long heartbeat = System.currentTimeMillis() +
+				((this.composedTaskProperties.getHeartbeatInterval() > 0) ?
+						this.composedTaskProperties.getHeartbeatInterval() :
+						HEARTBEAT_CHECKS * this.composedTaskProperties.getIntervalTimeBetweenChecks());
+		TaskExecution taskExecution;
+		do {
+			waitForNextCheck();
+			taskExecution = getTaskExecution();
+		}
+		while ((taskExecution == null || taskExecution.getEndTime() == null) &&
+				!(this.composedTaskProperties.getMaxWaitTime() > 0 &&
+						System.currentTimeMillis() > this.timeout) &&
+				System.currentTimeMillis() < heartbeat &&
+				!(this.stepExecution != null && this.stepExecution.isTerminateOnly()));
+		this.awaitedTaskExecution = taskExecution;
+		this.awaited = true;
+	}
+
+	/**
+	 * Waits for the permits of the task unless they are already taken.  The
+	 * wait happens before the chunk launching the task if the checks are
+	 * outside of the chunk transaction, so that no transaction is held by the
+	 * steps waiting for permits.
+	 */
+	private void acquireLaunchPermits() {
+		if (this.launchPermitsHeld) {
+			return;
+		}
+		long start = System.nanoTime();
+		try {
+			WorkStealingTaskExecutor.block(() -> {
+				this.launchGovernor.acquire(this.launchGroups, this.launchWeight);
+				return null;
+			});
+			this.launchPermitsHeld = true;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+		if (this.metrics != null) {
+			this.metrics.recordLaunchWait(ComposedTaskPlanCompiler.getTaskName(this.taskName),
+					this.taskName, System.nanoTime() - start);
+		}
+	}
+
+	private void releaseLaunchPermits() {
+		if (this.launchPermitsHeld) {
+			this.launchGovernor.release(this.launchGroups, this.launchWeight);
+			this.launchPermitsHeld = false;
+		}
+	}
+
+	/**
+	 * Waits the interval between checks, which is computed by the adaptive
+	 * polling interval if enabled.  If a completion notifier is available
+	 * the wait ends as soon as the task execution is reported complete.  Since
+	 * the notification may arrive before the task repository is updated, the
+	 * checks that follow a notification use a short interval.  On a thread
+	 * of a {@link WorkStealingTaskExecutor} the pool adds a spare thread while
+	 * the step waits, so the other flows of the split are not held back.
+	 */
+	private void waitForNextCheck() {
+		long interval = (this.pollingInterval != null) ?
+				this.pollingInterval.nextInterval(System.currentTimeMillis() - this.launchTime) :
+				this.composedTaskProperties.getIntervalTimeBetweenChecks();
+		try {
+			if (this.completionNotifier == null) {
+				sleep(interval);
+			}
+			else if (this.completionNotified) {
+				sleep(Math.min(interval, NOTIFIED_RECHECK_INTERVAL));
+			}
+			else {
+				this.completionNotified = WorkStealingTaskExecutor.block(
+						() -> this.completionNotifier.await(this.executionId, interval));
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+	}
+
+	private static void sleep(long millis) throws InterruptedException {
+		WorkStealingTaskExecutor.block(() -> {
+			Thread.sleep(millis);
+			return null;
+		});
+	}
+
+	private void recordCompletionMetrics(TaskExecution taskExecution) {
+		if (this.metrics != null) {
+			String tmpTaskName = ComposedTaskPlanCompiler.getTaskName(this.taskName);
+			if (taskExecution.getStartTime() != null) {
+				this.metrics.recordStartDelay(tmpTaskName, this.taskName,
+						taskExecution.getStartTime().getTime() - this.launchTime);
+			}
+			else if (logger.isDebugEnabled()) {
+				logger.debug(String.format("The start delay of task execution %s is not "
+						+ "recorded as its start time is not known", taskExecution.getExecutionId()));
+			}
+			this.metrics.recordDetectionDelay(tmpTaskName, this.taskName,
+					System.currentTimeMillis() - taskExecution.getEndTime().getTime());
+		}
+	}
+
+	/**
+	 * Retrieves the status of the launched task execution from the shared
+	 * status poller if available.  The task repository is queried directly
+	 * if there is no status poller or a completion notification was received
+	 * that the status poller has not yet observed.
+	 */
+	private TaskExecution getTaskExecution() {
+		return ComposedTaskFlightRecorder.recordStatusPoll(
+				ComposedTaskPlanCompiler.getTaskName(this.taskName), this.executionId,
+				this::pollTaskExecution);
+	}
+
+	private TaskExecution pollTaskExecution() {
+		TaskExecution taskExecution = null;
+		if (this.metrics != null) {
+			this.metrics.incrementPolls(ComposedTaskPlanCompiler.getTaskName(this.taskName), this.taskName);
+		}
+		if (this.statusPoller != null) {
+			taskExecution = this.statusPoller.getTaskExecution(this.executionId);
+		}
+		if (taskExecution == null &&
+				(this.statusPoller == null || this.completionNotified)) {
+			if (this.metrics != null) {
+				this.metrics.incrementRepositoryReads(ComposedTaskPlanCompiler.getTaskName(this.taskName),
+						this.taskName);
+			}
+			taskExecution = queryTaskExecution(this.executionId);
+		}
+		return taskExecution;
+	}
+
+	/**
+	 * Launches the task, passing it the current trace context if traced.
+	 */
+	private Long launch(String taskName, List<String> args) {
+		if (this.tracing != null) {
+			args.addAll(this.tracing.getTraceArguments());
+		}
+		return ComposedTaskFlightRecorder.recordTaskLaunch(taskName, this.taskName,
+				() -> this.taskOperations.launch(taskName, this.properties, args, null));
+	}
+
+	private TaskExecution queryTaskExecution(Long executionId) {
+		if (this.tracing != null) {
+			return this.tracing.inSpan(this.stepExecution,
+					"status " + ComposedTaskPlanCompiler.getTaskName(this.taskName),
+					() -> this.taskExplorer.getTaskExecution(executionId));
+		}
+		return this.taskExplorer.getTaskExecution(executionId);
+	}
+
+	/**
+	 * Resumes the task execution launched by a previous execution of this step,
+	 * rather than launching the task again, if that task execution is still
+	 * running or completed successfully.
+	 * @param previousExecutionId the id of the task execution launched by the
+	 * previous execution of the step.
+	 * @return CONTINUABLE to wait for the running task execution, FINISHED if it
+	 * completed successfully, or null if the task is to be launched again.
+	 */
+	private RepeatStatus reattach(Long previousExecutionId) {
+		TaskExecution taskExecution = queryTaskExecution(previousExecutionId);
+		if (taskExecution == null) {
+			return null;
+		}
+		if (taskExecution.getEndTime() == null) {
+			logger.info(String.format("Reattaching to running task execution %s of task %s",
+					previousExecutionId, taskExecution.getTaskName()));
+			this.launchTime = (taskExecution.getStartTime() != null) ?
+					taskExecution.getStartTime().getTime() : System.currentTimeMillis();
+			this.executionId = previousExecutionId;
+			registerTaskExecution();
+			return RepeatStatus.CONTINUABLE;
+		}
+		if (taskExecution.getExitCode() != null && taskExecution.getExitCode() == 0) {
+			logger.info(String.format("Task execution %s of task %s completed before the restart",
+					previousExecutionId, taskExecution.getTaskName()));
+			this.executionId = previousExecutionId;
+			if (this.statusCache != null) {
+				this.statusCache.put(taskExecution);
+			}
+			return RepeatStatus.FINISHED;
+		}
+		return null;
+	}
+
+	private void registerTaskExecution() {
+		if (this.statusPoller != null) {
+			this.statusPoller.register(this.executionId);
+		}
+		else if (this.completionNotifier != null) {
+			this.completionNotifier.register(this.executionId);
+		}
+	}
+
+	private void unregisterTaskExecution() {
+		if (this.statusPoller != null) {
+			this.statusPoller.unregister(this.executionId);
+		}
+		else if (this.completionNotifier != null) {
+			this.completionNotifier.unregister(this.executionId);
+		}
+	}
+
 }
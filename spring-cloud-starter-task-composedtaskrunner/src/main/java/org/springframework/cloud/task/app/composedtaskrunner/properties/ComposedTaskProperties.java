@@ -127,6 +127,28 @@ public class ComposedTaskProperties {
 	 */
 	private boolean splitThreadAllowCoreThreadTimeout;
 
+	/**
+	 * Whether the split thread pool is sized from the graph, to the maximum
+	 * number of split flows that can run at once including the flows of nested
+	 * splits, bounded by splitThreadMaxPoolSize.  splitThreadCorePoolSize is not
+	 * used in this mode, and if the bound is lower than the number of flows a
+	 * flow that cannot be handed to a split thread runs on the thread that
+	 * started the split.
+	 * Default is false.
+	 */
+	private boolean splitThreadAutoSizeEnabled;
+
+	/**
+	 * Whether a split flow that cannot be handed to a split thread runs on the
+	 * thread that started the split, instead of that thread blocking while it
+	 * waits for the flow.  Flows are never queued in this mode, so nested splits
+	 * can run on a fixed size pool of at most splitThreadMaxPoolSize threads
+	 * regardless of splitThreadCorePoolSize, or of splitThreadCorePoolSize
+	 * threads if splitThreadMaxPoolSize is not set.
+	 * Default is false.
+	 */
+	private boolean splitThreadCallerRunsEnabled;
+
 	/**
 	 * Split's core pool size.
 	 * Default is 4;
@@ -151,6 +173,29 @@ public class ComposedTaskProperties {
 	 */
 	private int splitThreadQueueCapacity = SPLIT_THREAD_QUEUE_CAPACITY_DEFAULT;
 
+	/**
+	 * Whether split flows and the steps they contain run on virtual threads
+	 * instead of a pool of platform threads.  At most splitThreadMaxPoolSize
+	 * flows run at once, the other splitThread properties are not used except
+	 * for splitThreadCallerRunsEnabled and splitThreadAutoSizeEnabled.  A flow
+	 * waiting for a nested split keeps its place, so with nested splits
+	 * splitThreadMaxPoolSize must be at least the number of flows of a split
+	 * unless splitThreadCallerRunsEnabled or splitThreadAutoSizeEnabled is set.
+	 * Requires Java 21 or later.  Default is false.
+	 */
+	private boolean splitThreadVirtualThreadsEnabled;
+
+	/**
+	 * Whether split flows run on a fork/join pool of splitThreadCorePoolSize
+	 * threads where a flow waiting for the flows of a nested split helps run
+	 * them instead of blocking, so nested splits of any depth can complete on
+	 * a pool as small as the number of cores.  The other splitThread properties
+	 * are not used except for splitThreadAutoSizeEnabled, which sizes the pool
+	 * from the graph.
+	 * Default is false.
+	 */
+	private boolean splitThreadWorkStealingEnabled;
+
 	/**
 	 * Whether to wait for scheduled tasks to complete on shutdown, not
 	 * interrupting running tasks and executing all tasks in the queue.
@@ -166,6 +211,206 @@ public class ComposedTaskProperties {
 	 */
 	private boolean incrementInstanceEnabled = false;
 
+	/**
+	 * Whether the ComposedTaskRunner should trace the composed task with
+	 * OpenTelemetry and pass the trace context to the tasks it launches.
+	 * Requires the OpenTelemetry API on the classpath.
+	 * Default is false.
+	 */
+	private boolean tracingEnabled = false;
+
+	/**
+	 * Whether the ComposedTaskRunner should listen for task events on the
+	 * task-events channel to detect as soon as a task has completed.  When
+	 * enabled the checks of the database every interval-time-between-checks
+	 * act as a safety net.  Requires Spring Cloud Stream and a binder.
+	 * Default is false.
+	 */
+	private boolean taskEventsEnabled = false;
+
+	/**
+	 * Whether the status of all running tasks should be retrieved by a single
+	 * shared poller using one database query every interval-time-between-checks,
+	 * rather than each step querying the database for its own task.
+	 * Default is false.
+	 */
+	private boolean sharedStatusPollerEnabled = false;
+
+	/**
+	 * The directory where the compiled graph is cached, keyed by a hash of the
+	 * graph, the composed task properties and the composed task arguments, so
+	 * that subsequent launches of the same composed task do not parse the graph.
+	 * If not set the graph is not cached.
+	 */
+	private String planCacheDirectory;
+
+	/**
+	 * Whether the interval between checks for task completion should adapt to
+	 * each task rather than use interval-time-between-checks.  Checks start at
+	 * adaptive-polling-initial-interval and back off exponentially, with jitter,
+	 * up to adaptive-polling-max-interval.
+	 * Default is false.
+	 */
+	private boolean adaptivePollingEnabled = false;
+
+	/**
+	 * The interval in millis of the first checks for task completion when
+	 * adaptive polling is enabled.
+	 * Default is 1000.
+	 */
+	private long adaptivePollingInitialInterval = 1000;
+
+	/**
+	 * The maximum interval in millis between checks for task completion when
+	 * adaptive polling is enabled.
+	 * Default is 60000.
+	 */
+	private long adaptivePollingMaxInterval = 60000;
+
+	/**
+	 * The factor by which the interval between checks for task completion
+	 * grows after each check when adaptive polling is enabled.
+	 * Default is 1.5.
+	 */
+	private double adaptivePollingMultiplier = 1.5;
+
+	/**
+	 * The number of most recent executions of a task whose median duration is
+	 * used as the time to wait before the first check when adaptive polling is
+	 * enabled.  Zero disables the use of the execution history.
+	 * Default is 10.
+	 */
+	private int adaptivePollingHistorySize = 10;
+
+	/**
+	 * Whether the checks for task completion should happen outside of the step
+	 * transaction, so that only the launch of a task and its completion update
+	 * the step execution in the job repository.
+	 * Default is false.
+	 */
+	private boolean checksOutsideTransactionEnabled = false;
+
+	/**
+	 * The interval in millis at which the step execution of a running task is
+	 * updated in the job repository when checks-outside-transaction-enabled is
+	 * true.  The update lets a request to stop the job be noticed before the
+	 * task completes.  Zero or less updates the step execution every ten
+	 * intervalTimeBetweenChecks.
+	 * Default is 0.
+	 */
+	private long heartbeatInterval = 0;
+
+	/**
+	 * Whether the composed task arguments should be stored once in the job
+	 * execution context, with the context of each step only holding the
+	 * arguments that differ from them, rather than being stored in the context
+	 * of every step.
+	 * Default is false.
+	 */
+	private boolean compactExecutionContextEnabled = false;
+
+	/**
+	 * Whether a restarted step should resume the task execution launched by its
+	 * previous execution if that task execution is still running or completed
+	 * successfully, rather than launching the task again.  A task execution
+	 * whose end time was never recorded is considered running until the
+	 * maxWaitTime elapses.
+	 * Default is false.
+	 */
+	private boolean reattachOnRestartEnabled = false;
+
+	/**
+	 * Whether a step should reuse the result of a successful execution of its
+	 * task that was launched with the same deployment properties and arguments,
+	 * rather than launching the task again.  The cache can be disabled for a task
+	 * app by setting its result-cache-enabled property to false in the
+	 * composed-task-properties.
+	 * Default is false.
+	 */
+	private boolean resultCacheEnabled = false;
+
+	/**
+	 * The time in millis after its start during which the result of a task
+	 * execution can be reused when result-cache-enabled is true.
+	 * Default is 86400000 (24 hours).
+	 */
+	private long resultCacheTimeToLive = 86400000;
+
+	/**
+	 * The JDBC URL of a read replica of the task repository, from which the
+	 * steps read the status of their task executions.  If not set the status is
+	 * read from the task repository data source.
+	 */
+	private String statusDatasourceUrl;
+
+	/**
+	 * The username for the read replica of the task repository.
+	 */
+	private String statusDatasourceUsername;
+
+	/**
+	 * The password for the read replica of the task repository.
+	 */
+	private String statusDatasourcePassword;
+
+	/**
+	 * The JDBC driver class name for the read replica of the task repository.
+	 * If not set it is deduced from the URL.
+	 */
+	private String statusDatasourceDriverClassName;
+
+	/**
+	 * The maximum time in millis that the status of a running task execution is
+	 * read from the read replica only, after which it is read from the task
+	 * repository data source.  Bounds the delay in detecting a completion when
+	 * the replica lags.
+	 * Default is 30000.
+	 */
+	private long statusDatasourceLagTolerance = 30000;
+
+	/**
+	 * The directory where the timeline of each execution of the composed task is
+	 * written once it completes, in the Chrome Trace Event format, showing the
+	 * steps on the lanes of the threads they ran on.  If not set no timeline is
+	 * written.
+	 */
+	private String timelineDirectory;
+
+	/**
+	 * Whether the critical path of each execution of the composed task should be
+	 * computed once it completes and logged, along with the slack of the steps
+	 * off the critical path and the launch latency and detection delay added by
+	 * the ComposedTaskRunner along it.
+	 * Default is false.
+	 */
+	private boolean criticalPathReportEnabled = false;
+
+	/**
+	 * The maximum number of tasks of the composed task that run at the same
+	 * time, across all the splits.  The steps exceeding the limit wait for a
+	 * running task to complete, in the order they were ready, before launching
+	 * their task, and hold their split thread while waiting.  A limit lower than
+	 * the split flows requires splitThreadCorePoolSize threads for all the flows,
+	 * splitThreadAutoSizeEnabled, splitThreadCallerRunsEnabled or
+	 * splitThreadWorkStealingEnabled.  A task app can take more than one of these
+	 * permits by setting its concurrency-weight property in the
+	 * composed-task-properties.
+	 * Default is 0, which means no limit.
+	 */
+	private int maxConcurrentTasks = 0;
+
+	/**
+	 * Comma separated limits on the number of tasks of each concurrency group
+	 * that run at the same time, as group=limit pairs.  A task belongs to the
+	 * group named after its label, to the group set by its concurrency-group
+	 * property in the composed-task-properties and to the groups split_0,
+	 * split_1 and so on of the splits it runs in, numbered in the order they
+	 * appear in the graph, and takes a permit of each of its groups that has a
+	 * limit.  The limits apply along with max-concurrent-tasks.  If not set the
+	 * groups have no limit.
+	 */
+	private String concurrencyGroupLimits;
+
 	public ComposedTaskProperties() {
 		try {
 			this.dataflowServerUri = new URI("http://localhost:9393");
@@ -247,6 +492,22 @@ public class ComposedTaskProperties {
 		this.splitThreadAllowCoreThreadTimeout = splitThreadAllowCoreThreadTimeout;
 	}
 
+	public boolean isSplitThreadAutoSizeEnabled() {
+		return splitThreadAutoSizeEnabled;
+	}
+
+	public void setSplitThreadAutoSizeEnabled(boolean splitThreadAutoSizeEnabled) {
+		this.splitThreadAutoSizeEnabled = splitThreadAutoSizeEnabled;
+	}
+
+	public boolean isSplitThreadCallerRunsEnabled() {
+		return splitThreadCallerRunsEnabled;
+	}
+
+	public void setSplitThreadCallerRunsEnabled(boolean splitThreadCallerRunsEnabled) {
+		this.splitThreadCallerRunsEnabled = splitThreadCallerRunsEnabled;
+	}
+
 	public int getSplitThreadCorePoolSize() {
 		return splitThreadCorePoolSize;
 	}
@@ -279,6 +540,22 @@ public class ComposedTaskProperties {
 		this.splitThreadQueueCapacity = splitThreadQueueCapacity;
 	}
 
+	public boolean isSplitThreadWorkStealingEnabled() {
+		return splitThreadWorkStealingEnabled;
+	}
+
+	public void setSplitThreadWorkStealingEnabled(boolean splitThreadWorkStealingEnabled) {
+		this.splitThreadWorkStealingEnabled = splitThreadWorkStealingEnabled;
+	}
+
+	public boolean isSplitThreadVirtualThreadsEnabled() {
+		return splitThreadVirtualThreadsEnabled;
+	}
+
+	public void setSplitThreadVirtualThreadsEnabled(boolean splitThreadVirtualThreadsEnabled) {
+		this.splitThreadVirtualThreadsEnabled = splitThreadVirtualThreadsEnabled;
+	}
+
 	public boolean isSplitThreadWaitForTasksToCompleteOnShutdown() {
 		return splitThreadWaitForTasksToCompleteOnShutdown;
 	}
@@ -295,6 +572,198 @@ public class ComposedTaskProperties {
 		this.incrementInstanceEnabled = incrementInstanceEnabled;
 	}
 
+	public boolean isTracingEnabled() {
+		return tracingEnabled;
+	}
+
+	public void setTracingEnabled(boolean tracingEnabled) {
+		this.tracingEnabled = tracingEnabled;
+	}
+
+	public boolean isTaskEventsEnabled() {
+		return taskEventsEnabled;
+	}
+
+	public void setTaskEventsEnabled(boolean taskEventsEnabled) {
+		this.taskEventsEnabled = taskEventsEnabled;
+	}
+
+	public boolean isSharedStatusPollerEnabled() {
+		return sharedStatusPollerEnabled;
+	}
+
+	public void setSharedStatusPollerEnabled(boolean sharedStatusPollerEnabled) {
+		this.sharedStatusPollerEnabled = sharedStatusPollerEnabled;
+	}
+
+	public String getPlanCacheDirectory() {
+		return planCacheDirectory;
+	}
+
+	public void setPlanCacheDirectory(String planCacheDirectory) {
+		this.planCacheDirectory = planCacheDirectory;
+	}
+
+	public boolean isAdaptivePollingEnabled() {
+		return adaptivePollingEnabled;
+	}
+
+	public void setAdaptivePollingEnabled(boolean adaptivePollingEnabled) {
+		this.adaptivePollingEnabled = adaptivePollingEnabled;
+	}
+
+	public long getAdaptivePollingInitialInterval() {
+		return adaptivePollingInitialInterval;
+	}
+
+	public void setAdaptivePollingInitialInterval(long adaptivePollingInitialInterval) {
+		this.adaptivePollingInitialInterval = adaptivePollingInitialInterval;
+	}
+
+	public long getAdaptivePollingMaxInterval() {
+		return adaptivePollingMaxInterval;
+	}
+
+	public void setAdaptivePollingMaxInterval(long adaptivePollingMaxInterval) {
+		this.adaptivePollingMaxInterval = adaptivePollingMaxInterval;
+	}
+
+	public double getAdaptivePollingMultiplier() {
+		return adaptivePollingMultiplier;
+	}
+
+	public void setAdaptivePollingMultiplier(double adaptivePollingMultiplier) {
+		this.adaptivePollingMultiplier = adaptivePollingMultiplier;
+	}
+
+	public int getAdaptivePollingHistorySize() {
+		return adaptivePollingHistorySize;
+	}
+
+	public void setAdaptivePollingHistorySize(int adaptivePollingHistorySize) {
+		this.adaptivePollingHistorySize = adaptivePollingHistorySize;
+	}
+
+	public boolean isChecksOutsideTransactionEnabled() {
+		return checksOutsideTransactionEnabled;
+	}
+
+	public void setChecksOutsideTransactionEnabled(boolean checksOutsideTransactionEnabled) {
+		this.checksOutsideTransactionEnabled = checksOutsideTransactionEnabled;
+	}
+
+	public long getHeartbeatInterval() {
+		return heartbeatInterval;
+	}
+
+	public void setHeartbeatInterval(long heartbeatInterval) {
+		this.heartbeatInterval = heartbeatInterval;
+	}
+
+	public boolean isCompactExecutionContextEnabled() {
+		return compactExecutionContextEnabled;
+	}
+
+	public void setCompactExecutionContextEnabled(boolean compactExecutionContextEnabled) {
+		this.compactExecutionContextEnabled = compactExecutionContextEnabled;
+	}
+
+	public boolean isReattachOnRestartEnabled() {
+		return reattachOnRestartEnabled;
+	}
+
+	public void setReattachOnRestartEnabled(boolean reattachOnRestartEnabled) {
+		this.reattachOnRestartEnabled = reattachOnRestartEnabled;
+	}
+
+	public boolean isResultCacheEnabled() {
+		return resultCacheEnabled;
+	}
+
+	public void setResultCacheEnabled(boolean resultCacheEnabled) {
+		this.resultCacheEnabled = resultCacheEnabled;
+	}
+
+	public long getResultCacheTimeToLive() {
+		return resultCacheTimeToLive;
+	}
+
+	public void setResultCacheTimeToLive(long resultCacheTimeToLive) {
+		this.resultCacheTimeToLive = resultCacheTimeToLive;
+	}
+
+	public String getStatusDatasourceUrl() {
+		return statusDatasourceUrl;
+	}
+
+	public void setStatusDatasourceUrl(String statusDatasourceUrl) {
+		this.statusDatasourceUrl = statusDatasourceUrl;
+	}
+
+	public String getStatusDatasourceUsername() {
+		return statusDatasourceUsername;
+	}
+
+	public void setStatusDatasourceUsername(String statusDatasourceUsername) {
+		this.statusDatasourceUsername = statusDatasourceUsername;
+	}
+
+	public String getStatusDatasourcePassword() {
+		return statusDatasourcePassword;
+	}
+
+	public void setStatusDatasourcePassword(String statusDatasourcePassword) {
+		this.statusDatasourcePassword = statusDatasourcePassword;
+	}
+
+	public String getStatusDatasourceDriverClassName() {
+		return statusDatasourceDriverClassName;
+	}
+
+	public void setStatusDatasourceDriverClassName(String statusDatasourceDriverClassName) {
+		this.statusDatasourceDriverClassName = statusDatasourceDriverClassName;
+	}
+
+	public long getStatusDatasourceLagTolerance() {
+		return statusDatasourceLagTolerance;
+	}
+
+	public void setStatusDatasourceLagTolerance(long statusDatasourceLagTolerance) {
+		this.statusDatasourceLagTolerance = statusDatasourceLagTolerance;
+	}
+
+	public String getTimelineDirectory() {
+		return timelineDirectory;
+	}
+
+	public void setTimelineDirectory(String timelineDirectory) {
+		this.timelineDirectory = timelineDirectory;
+	}
+
+	public boolean isCriticalPathReportEnabled() {
+		return criticalPathReportEnabled;
+	}
+
+	public void setCriticalPathReportEnabled(boolean criticalPathReportEnabled) {
+		this.criticalPathReportEnabled = criticalPathReportEnabled;
+	}
+
+	public int getMaxConcurrentTasks() {
+		return maxConcurrentTasks;
+	}
+
+	public void setMaxConcurrentTasks(int maxConcurrentTasks) {
+		this.maxConcurrentTasks = maxConcurrentTasks;
+	}
+
+	public String getConcurrencyGroupLimits() {
+		return concurrencyGroupLimits;
+	}
+
+	public void setConcurrencyGroupLimits(String concurrencyGroupLimits) {
+		this.concurrencyGroupLimits = concurrencyGroupLimits;
+	}
+
 	public String getDataflowServerAccessToken() {
 		return dataflowServerAccessToken;
 	}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.task.app.composedtaskrunner.support;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * {@link RejectedExecutionHandler} that runs a split flow on the thread that
+ * started the split when no split thread is available.  That thread would
+ * otherwise be blocked waiting for the flow to complete, so nested splits
+ * cannot exhaust the split thread pool.
+ *
+ * Unlike {@link ThreadPoolExecutor.CallerRunsPolicy} the flow is rejected if
+ * the pool has been shut down, since the split would otherwise wait forever
+ * on a flow that never runs.
+ */
+public class SplitFlowCallerRunsPolicy implements RejectedExecutionHandler {
+
+	@Override
+	public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+		if (executor.isShutdown()) {
+			throw new RejectedExecutionException("Split thread pool has been shut down");
+		}
+		runnable.run();
+	}
+
+}
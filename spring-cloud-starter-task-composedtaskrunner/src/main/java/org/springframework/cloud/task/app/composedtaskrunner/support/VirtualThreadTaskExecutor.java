@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.task.app.composedtaskrunner.support;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.util.Assert;
+
+/**
+ * {@link TaskExecutor} that runs each split flow on its own virtual thread.
+ * Split flows spend most of their time waiting for task executions to
+ * complete, which does not hold an OS thread when done on a virtual thread.
+ *
+ * The number of flows running at once is limited by the concurrency limit.
+ * When the limit is reached the thread starting the split either waits for a
+ * running flow to complete or, if caller runs is enabled, runs the flow itself.
+ *
+ * Virtual threads require Java 21 or later, they are created reflectively so
+ * that the runner remains compatible with earlier versions of Java.
+ */
+public class VirtualThreadTaskExecutor implements TaskExecutor {
+
+	private static final ThreadFactory VIRTUAL_THREAD_FACTORY = createVirtualThreadFactory();
+
+	private final int concurrencyLimit;
+
+	private final Semaphore permits;
+
+	private final boolean callerRuns;
+
+	private TaskDecorator taskDecorator;
+
+	/**
+	 * @param concurrencyLimit the maximum number of flows running at once.
+	 * @param callerRuns whether the thread starting the split runs the flow when
+	 * the concurrency limit is reached rather than waiting for a permit.
+	 */
+	public VirtualThreadTaskExecutor(int concurrencyLimit, boolean callerRuns) {
+		Assert.state(isSupported(), "Virtual threads require Java 21 or later.");
+		Assert.isTrue(concurrencyLimit > 0, "concurrencyLimit must be greater than zero.");
+		this.concurrencyLimit = concurrencyLimit;
+		this.permits = new Semaphore(concurrencyLimit, true);
+		this.callerRuns = callerRuns;
+	}
+
+	/**
+	 * Establishes the decorator applied to each flow before it is run.
+	 * @param taskDecorator the decorator of the flows, or null for none.
+	 */
+	public void setTaskDecorator(TaskDecorator taskDecorator) {
+		this.taskDecorator = taskDecorator;
+	}
+
+	/**
+	 * @return true if the running JVM supports virtual threads.
+	 */
+	public static boolean isSupported() {
+		return VIRTUAL_THREAD_FACTORY != null;
+	}
+
+	/**
+	 * @return the number of flows running on virtual threads.
+	 */
+	public int getActiveCount() {
+		return this.concurrencyLimit - this.permits.availablePermits();
+	}
+
+	/**
+	 * @return an estimate of the number of threads waiting to start a flow.
+	 */
+	public int getQueuedCount() {
+		return this.permits.getQueueLength();
+	}
+
+	@Override
+	public void execute(Runnable flow) {
+		Runnable task = (this.taskDecorator != null) ? this.taskDecorator.decorate(flow) : flow;
+		if (!this.permits.tryAcquire()) {
+			if (this.callerRuns) {
+				task.run();
+				return;
+			}
+			try {
+				this.permits.acquire();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new TaskRejectedException("Interrupted while waiting to run split flow", e);
+			}
+		}
+		try {
+			VIRTUAL_THREAD_FACTORY.newThread(() -> {
+				try {
+					task.run();
+				}
+				finally {
+					this.permits.release();
+				}
+			}).start();
+		}
+		catch (RuntimeException e) {
+			this.permits.release();
+			throw new TaskRejectedException("Failed to start split flow thread", e);
+		}
+	}
+
+	private static ThreadFactory createVirtualThreadFactory() {
+		try {
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Method name = builderClass.getMethod("name", String.class, long.class);
+			builder = name.invoke(builder, "split-flow-", 0L);
+			return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+		}
+		catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.springframework.batch.core.job.flow.Flow;
+import org.springframework.batch.core.job.flow.FlowExecution;
+import org.springframework.batch.core.job.flow.FlowExecutionStatus;
+import org.springframework.batch.core.job.flow.FlowExecutor;
+import org.springframework.batch.core.job.flow.State;
+import org.springframework.batch.core.job.flow.support.SimpleFlow;
+import org.springframework.batch.core.job.flow.support.StateTransition;
+import org.springframework.batch.core.job.flow.support.state.EndState;
+import org.springframework.batch.core.job.flow.support.state.SplitState;
+import org.springframework.util.Assert;
+
+/**
+ * {@link SplitState} that runs its flows with a {@link WorkStealingTaskExecutor},
+ * so that the thread running the split helps run the flows rather than
+ * blocking until other threads have run them.
+ */
+public class WorkStealingSplitState extends SplitState {
+
+	private final WorkStealingTaskExecutor taskExecutor;
+
+	/**
+	 * @param flows the flows of the split.
+	 * @param name the name of the state.
+	 * @param taskExecutor the executor running the flows.
+	 */
+	public WorkStealingSplitState(Collection<Flow> flows, String name,
+			WorkStealingTaskExecutor taskExecutor) {
+		super(flows, name);
+		Assert.notNull(taskExecutor, "taskExecutor must not be null");
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * Creates a flow running the flows of a split with the executor, that
+	 * completes if all of them complete and fails otherwise like the flows
+	 * built by the {@link org.springframework.batch.core.job.builder.FlowBuilder.SplitBuilder}.
+	 * @param name the name of the flow.
+	 * @param flows the flows of the split.
+	 * @param taskExecutor the executor running the flows.
+	 * @return the flow of the split.
+	 */
+	public static Flow createFlow(String name, Collection<Flow> flows,
+			WorkStealingTaskExecutor taskExecutor) {
+		String prefix = name + ".";
+		State split = new WorkStealingSplitState(flows, prefix + "split0", taskExecutor);
+		State completed = new EndState(FlowExecutionStatus.COMPLETED, prefix + "COMPLETED");
+		State failed = new EndState(FlowExecutionStatus.FAILED, prefix + "FAILED");
+		SimpleFlow flow = new SimpleFlow(name);
+		flow.setStateTransitions(Arrays.asList(
+				StateTransition.createStateTransition(split, "COMPLETED", completed.getName()),
+				StateTransition.createStateTransition(split, "*", failed.getName()),
+				StateTransition.createEndStateTransition(completed),
+				StateTransition.createEndStateTransition(failed)));
+		return flow;
+	}
+
+	@Override
+	public FlowExecutionStatus handle(FlowExecutor executor) throws Exception {
+		List<Callable<FlowExecution>> flows = new ArrayList<>();
+		for (Flow flow : getFlows()) {
+			flows.add(() -> flow.start(executor));
+		}
+		return doAggregation(this.taskExecutor.invokeAll(flows), executor);
+	}
+
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.util.Assert;
+
+/**
+ * {@link TaskExecutor} that runs split flows on a fork/join pool.  The flows of
+ * a split are forked by {@link WorkStealingSplitState}, and a thread waiting for
+ * the flows of a nested split runs the flows that are still waiting for a
+ * thread instead of blocking, so deeply nested splits complete on a pool with
+ * as few threads as there are cores.  While a flow waits for a flow running on
+ * another thread, or waits for its task in {@link #block(BlockingWait)}, the
+ * pool adds a spare thread to keep its parallelism, so that the flows of a
+ * split wider than the parallelism all run at the same time.
+ */
+public class WorkStealingTaskExecutor implements TaskExecutor, DisposableBean {
+
+	private final ForkJoinPool pool;
+
+	private TaskDecorator taskDecorator;
+
+	/**
+	 * @param parallelism the number of threads running split flows.
+	 */
+	public WorkStealingTaskExecutor(int parallelism) {
+		Assert.isTrue(parallelism > 0, "parallelism must be greater than zero.");
+		this.pool = new ForkJoinPool(Math.min(parallelism, 0x7fff), pool -> {
+			ForkJoinWorkerThread thread =
+					ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setName("split-flow-" + thread.getPoolIndex());
+			return thread;
+		}, null, false);
+	}
+
+	/**
+	 * Establishes the decorator applied to each flow before it is run.
+	 * @param taskDecorator the decorator of the flows, or null for none.
+	 */
+	public void setTaskDecorator(TaskDecorator taskDecorator) {
+		this.taskDecorator = taskDecorator;
+	}
+
+	/**
+	 * @return the number of threads running split flows.
+	 */
+	public int getParallelism() {
+		return this.pool.getParallelism();
+	}
+
+	/**
+	 * @return an estimate of the number of threads running split flows.
+	 */
+	public int getActiveCount() {
+		return this.pool.getActiveThreadCount();
+	}
+
+	/**
+	 * @return an estimate of the number of flows waiting for a thread.
+	 */
+	public int getQueuedCount() {
+		return (int) Math.min(Integer.MAX_VALUE,
+				this.pool.getQueuedTaskCount() + this.pool.getQueuedSubmissionCount());
+	}
+
+	@Override
+	public void execute(Runnable task) {
+		try {
+			this.pool.execute(decorate(task));
+		}
+		catch (RejectedExecutionException e) {
+			throw new TaskRejectedException("Split flow pool has been shut down", e);
+		}
+	}
+
+	/**
+	 * Runs the flows, each on a thread of the pool or on the calling thread
+	 * while it waits for the other flows, and waits for all of them.  A flow
+	 * forked from a thread of the pool is run by the first thread of the pool
+	 * that is free, which may be the thread waiting for it.
+	 * @param flows the flows to run.
+	 * @param <T> the result of the flows.
+	 * @return the results of the flows, in the order of the flows.
+	 * @throws Exception the exception thrown by the first flow that failed.
+	 */
+	public <T> List<T> invokeAll(List<Callable<T>> flows) throws Exception {
+		List<FlowTask<T>> tasks = new ArrayList<>(flows.size());
+		boolean inPool = ForkJoinTask.getPool() == this.pool;
+		for (Callable<T> flow : flows) {
+			FlowTask<T> task = new FlowTask<>(flow);
+			tasks.add(task);
+			if (inPool) {
+				task.fork();
+			}
+			else {
+				try {
+					this.pool.execute(task);
+				}
+				catch (RejectedExecutionException e) {
+					throw new TaskRejectedException("Split flow pool has been shut down", e);
+				}
+			}
+		}
+		// the flows forked last are at the top of the queue of this thread, so
+		// joining them first lets this thread run the flows no other thread took
+		for (int i = tasks.size() - 1; i >= 0; i--) {
+			tasks.get(i).join();
+		}
+		List<T> results = new ArrayList<>(tasks.size());
+		for (FlowTask<T> task : tasks) {
+			if (task.exception != null) {
+				throw task.exception;
+			}
+			results.add(task.result);
+		}
+		return results;
+	}
+
+	/**
+	 * Runs a wait of a split flow, such as the wait for its task to complete.
+	 * If the calling thread is a thread of a fork/join pool, the pool may add a
+	 * spare thread while the flow waits so that its other flows keep running.
+	 * @param wait the wait to run.
+	 * @param <T> the result of the wait.
+	 * @return the result of the wait.
+	 * @throws InterruptedException if the thread is interrupted while waiting.
+	 */
+	public static <T> T block(BlockingWait<T> wait) throws InterruptedException {
+		if (!ForkJoinTask.inForkJoinPool()) {
+			return wait.await();
+		}
+		ManagedWait<T> managedWait = new ManagedWait<>(wait);
+		ForkJoinPool.managedBlock(managedWait);
+		return managedWait.result;
+	}
+
+	@Override
+	public void destroy() {
+		this.pool.shutdown();
+	}
+
+	private Runnable decorate(Runnable task) {
+		return (this.taskDecorator != null) ? this.taskDecorator.decorate(task) : task;
+	}
+
+	/**
+	 * A wait of a split flow that blocks its thread.
+	 * @param <T> the result of the wait.
+	 */
+	@FunctionalInterface
+	public interface BlockingWait<T> {
+
+		T await() throws InterruptedException;
+
+	}
+
+	/**
+	 * Runs a wait once, keeping its result.
+	 */
+	private static class ManagedWait<T> implements ForkJoinPool.ManagedBlocker {
+
+		private final BlockingWait<T> wait;
+
+		private boolean done;
+
+		private T result;
+
+		ManagedWait(BlockingWait<T> wait) {
+			this.wait = wait;
+		}
+
+		@Override
+		public boolean block() throws InterruptedException {
+			this.result = this.wait.await();
+			this.done = true;
+			return true;
+		}
+
+		@Override
+		public boolean isReleasable() {
+			return this.done;
+		}
+
+	}
+
+	/**
+	 * Runs a flow, keeping its result or the exception it threw.
+	 */
+	private class FlowTask<T> extends RecursiveAction {
+
+		private final Callable<T> flow;
+
+		private T result;
+
+		private Exception exception;
+
+		FlowTask(Callable<T> flow) {
+			this.flow = flow;
+		}
+
+		@Override
+		protected void compute() {
+			decorate(() -> {
+				try {
+					this.result = this.flow.call();
+				}
+				catch (Exception e) {
+					this.exception = e;
+				}
+			}).run();
+		}
+
+	}
+
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.function.Supplier;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import org.springframework.cloud.task.repository.TaskExecution;
+
+/**
+ * The Java Flight Recorder events of the Composed Task Runner.  This class is
+ * compiled for Java 11 and only loaded by {@link ComposedTaskFlightRecorder}
+ * when the running JVM supports the Java Flight Recorder.
+ */
+final class ComposedTaskEvents implements ComposedTaskFlightRecorder.Events {
+
+	static final String NAME_PREFIX = "org.springframework.cloud.task.app.composedtaskrunner.";
+
+	private static final ThreadLocal<SplitFlowEvent> currentSplitFlow = new ThreadLocal<>();
+
+	ComposedTaskEvents() {
+	}
+
+	@Override
+	public <T> T graphCompile(String graph, Supplier<T> compile) {
+		GraphCompileEvent event = new GraphCompileEvent();
+		if (!event.isEnabled()) {
+			return compile.get();
+		}
+		event.graph = graph;
+		event.begin();
+		try {
+			return compile.get();
+		}
+		finally {
+			event.commit();
+		}
+	}
+
+	@Override
+	public void stepRegistration(String taskName, String stepName, Runnable register) {
+		StepRegistrationEvent event = new StepRegistrationEvent();
+		if (!event.isEnabled()) {
+			register.run();
+			return;
+		}
+		event.taskName = taskName;
+		event.stepName = stepName;
+		event.begin();
+		try {
+			register.run();
+		}
+		finally {
+			event.commit();
+		}
+	}
+
+	@Override
+	public Long taskLaunch(String taskName, String stepName, Supplier<Long> launch) {
+		TaskLaunchEvent event = new TaskLaunchEvent();
+		if (!event.isEnabled()) {
+			return launch.get();
+		}
+		event.taskName = taskName;
+		event.stepName = stepName;
+		event.begin();
+		Long executionId = null;
+		try {
+			executionId = launch.get();
+			return executionId;
+		}
+		finally {
+			if (executionId != null) {
+				event.taskExecutionId = executionId;
+			}
+			event.commit();
+		}
+	}
+
+	@Override
+	public TaskExecution statusPoll(String taskName, Long executionId,
+			Supplier<TaskExecution> poll) {
+		StatusPollEvent event = new StatusPollEvent();
+		if (!event.isEnabled()) {
+			return poll.get();
+		}
+		event.taskName = taskName;
+		if (executionId != null) {
+			event.taskExecutionId = executionId;
+		}
+		event.begin();
+		TaskExecution taskExecution = null;
+		try {
+			taskExecution = poll.get();
+			return taskExecution;
+		}
+		finally {
+			event.completed = taskExecution != null && taskExecution.getEndTime() != null;
+			event.commit();
+		}
+	}
+
+	@Override
+	public Runnable splitFlow(Runnable flow) {
+		return () -> {
+			SplitFlowEvent event = new SplitFlowEvent();
+			if (!event.isEnabled()) {
+				flow.run();
+				return;
+			}
+			// a flow of a nested split may run on the thread of its parent flow
+			SplitFlowEvent parent = currentSplitFlow.get();
+			currentSplitFlow.set(event);
+			event.begin();
+			try {
+				flow.run();
+			}
+			finally {
+				event.commit();
+				if (parent != null) {
+					currentSplitFlow.set(parent);
+				}
+				else {
+					currentSplitFlow.remove();
+				}
+			}
+		};
+	}
+
+	@Override
+	public void splitFlowStep(String stepName, Long jobExecutionId) {
+		SplitFlowEvent event = currentSplitFlow.get();
+		if (event != null) {
+			if (jobExecutionId != null) {
+				event.jobExecutionId = jobExecutionId;
+			}
+			event.stepNames = (event.stepNames != null) ?
+					event.stepNames + "," + stepName : stepName;
+		}
+	}
+
+	@Name(NAME_PREFIX + "GraphCompile")
+	@Label("Graph Compile")
+	@Description("Parses and compiles the graph of the composed task into the plan of its job")
+	@Category({"Spring Cloud Task", "Composed Task Runner"})
+	@StackTrace(false)
+	static class GraphCompileEvent extends Event {
+
+		@Label("Graph")
+		String graph;
+
+	}
+
+	@Name(NAME_PREFIX + "StepRegistration")
+	@Label("Step Registration")
+	@Description("Registers the bean definition of the step of a task app")
+	@Category({"Spring Cloud Task", "Composed Task Runner"})
+	@StackTrace(false)
+	static class StepRegistrationEvent extends Event {
+
+		@Label("Task Name")
+		String taskName;
+
+		@Label("Step Name")
+		String stepName;
+
+	}
+
+	@Name(NAME_PREFIX + "TaskLaunch")
+	@Label("Task Launch")
+	@Description("Launches a task through the Data Flow Server")
+	@Category({"Spring Cloud Task", "Composed Task Runner"})
+	@StackTrace(false)
+	static class TaskLaunchEvent extends Event {
+
+		@Label("Task Name")
+		String taskName;
+
+		@Label("Step Name")
+		String stepName;
+
+		@Label("Task Execution Id")
+		long taskExecutionId;
+
+	}
+
+	@Name(NAME_PREFIX + "StatusPoll")
+	@Label("Status Poll")
+	@Description("Checks whether a task execution has completed")
+	@Category({"Spring Cloud Task", "Composed Task Runner"})
+	@StackTrace(false)
+	static class StatusPollEvent extends Event {
+
+		@Label("Task Name")
+		String taskName;
+
+		@Label("Task Execution Id")
+		long taskExecutionId;
+
+		@Label("Completed")
+		boolean completed;
+
+	}
+
+	@Name(NAME_PREFIX + "SplitFlow")
+	@Label("Split Flow")
+	@Description("Runs a flow of a split on the task executor")
+	@Category({"Spring Cloud Task", "Composed Task Runner"})
+	@StackTrace(false)
+	static class SplitFlowEvent extends Event {
+
+		@Label("Job Execution Id")
+		long jobExecutionId;
+
+		@Label("Step Names")
+		String stepNames;
+
+	}
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.cloud.task.repository.TaskExecution;
+import org.springframework.cloud.task.repository.TaskExplorer;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AdaptivePollingIntervalTests {
+
+	@Test
+	public void testExponentialBackoffCappedAtMaxInterval() {
+		AdaptivePollingInterval pollingInterval =
+				new AdaptivePollingInterval(1000, 5000, 2, 0);
+		assertInterval(1000, pollingInterval.nextInterval(0));
+		assertInterval(2000, pollingInterval.nextInterval(1000));
+		assertInterval(4000, pollingInterval.nextInterval(3000));
+		assertInterval(5000, pollingInterval.nextInterval(7000));
+		assertInterval(5000, pollingInterval.nextInterval(12000));
+	}
+
+	@Test
+	public void testWaitForExpectedDuration() {
+		AdaptivePollingInterval pollingInterval =
+				new AdaptivePollingInterval(1000, 60000, 2, 30000);
+		assertInterval(30000, pollingInterval.nextInterval(0));
+		assertInterval(1000, pollingInterval.nextInterval(30000));
+		assertInterval(2000, pollingInterval.nextInterval(31000));
+	}
+
+	@Test
+	public void testExpectedDurationCappedAtMaxInterval() {
+		AdaptivePollingInterval pollingInterval =
+				new AdaptivePollingInterval(1000, 10000, 2, 30000);
+		assertInterval(10000, pollingInterval.nextInterval(0));
+		assertInterval(10000, pollingInterval.nextInterval(10000));
+		assertInterval(10000, pollingInterval.nextInterval(20000));
+		assertInterval(1000, pollingInterval.nextInterval(30000));
+	}
+
+	@Test
+	public void testMedianDuration() {
+		List<TaskExecution> taskExecutions = new ArrayList<>();
+		taskExecutions.add(getTaskExecution(3000, 0));
+		taskExecutions.add(getTaskExecution(1000, 0));
+		taskExecutions.add(getTaskExecution(9000, 1));
+		taskExecutions.add(getTaskExecution(2000, 0));
+		taskExecutions.add(getTaskExecution(0, null));
+		TaskExplorer taskExplorer = mock(TaskExplorer.class);
+		when(taskExplorer.findTaskExecutionsByName(eq("foo"), any(Pageable.class)))
+				.thenReturn(new PageImpl<>(taskExecutions));
+
+		assertEquals(2000, AdaptivePollingInterval.medianDuration(taskExplorer, "foo", 10));
+	}
+
+	@Test
+	public void testMedianDurationWithoutHistory() {
+		TaskExplorer taskExplorer = mock(TaskExplorer.class);
+		when(taskExplorer.findTaskExecutionsByName(eq("foo"), any(Pageable.class)))
+				.thenReturn(new PageImpl<>(new ArrayList<>()));
+
+		assertEquals(0, AdaptivePollingInterval.medianDuration(taskExplorer, "foo", 10));
+		assertEquals(0, AdaptivePollingInterval.medianDuration(taskExplorer, "bar", 0));
+		verify(taskExplorer, never()).findTaskExecutionsByName(eq("bar"), any(Pageable.class));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidMaxInterval() {
+		new AdaptivePollingInterval(1000, 500, 2, 0);
+	}
+
+	private void assertInterval(long expected, long actual) {
+		long jitter = (long) (expected * AdaptivePollingInterval.JITTER);
+		assertTrue(String.format("Expected %s +/- %s but was %s", expected, jitter, actual),
+				actual >= expected - jitter && actual <= expected + jitter);
+	}
+
+	private TaskExecution getTaskExecution(long duration, Integer exitCode) {
+		TaskExecution taskExecution = new TaskExecution();
+		taskExecution.setStartTime(new Date(0));
+		taskExecution.setEndTime((exitCode != null) ? new Date(duration) : null);
+		taskExecution.setExitCode(exitCode);
+		return taskExecution;
+	}
+
+}
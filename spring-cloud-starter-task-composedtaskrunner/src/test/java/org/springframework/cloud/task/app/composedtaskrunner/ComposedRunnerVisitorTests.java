@@ -43,10 +43,13 @@ import org.springframework.cloud.task.app.composedtaskrunner.configuration.Compo
 import org.springframework.cloud.task.batch.configuration.TaskBatchAutoConfiguration;
 import org.springframework.cloud.task.configuration.SimpleTaskAutoConfiguration;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import static junit.framework.TestCase.assertTrue;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
@@ -155,6 +158,83 @@ public class ComposedRunnerVisitorTests {
 				"`splitThreadCorePoolSize`");
 	}
 
+	@Test
+	public void nestedSplitWithCallerRuns() {
+		setupContextForGraph("<<AAA || BBB > && CCC || <DDD || EEE> && FFF>",
+				"--splitThreadCallerRunsEnabled=true", "--splitThreadCorePoolSize=1",
+				"--splitThreadMaxPoolSize=1");
+		Collection<StepExecution> stepExecutions = getStepExecutions();
+		Set<String> stepNames = getStepNames(stepExecutions);
+		assertEquals(6, stepExecutions.size());
+		assertTrue(stepNames.contains("AAA_0"));
+		assertTrue(stepNames.contains("BBB_0"));
+		assertTrue(stepNames.contains("CCC_0"));
+		assertTrue(stepNames.contains("DDD_0"));
+		assertTrue(stepNames.contains("EEE_0"));
+		assertTrue(stepNames.contains("FFF_0"));
+	}
+
+	@Test
+	public void nestedSplitWithCallerRunsOnCorePoolSize() {
+		setupContextForGraph("<<AAA || BBB > && CCC || <DDD || EEE> && FFF>",
+				"--splitThreadCallerRunsEnabled=true", "--splitThreadCorePoolSize=1");
+		Collection<StepExecution> stepExecutions = getStepExecutions();
+		assertEquals(6, stepExecutions.size());
+		// the pool is bounded by its core size so the flows run on the callers
+		assertEquals(1, ((ThreadPoolTaskExecutor) this.applicationContext.getBean(TaskExecutor.class))
+				.getMaxPoolSize());
+	}
+
+	@Test
+	public void nestedSplitWithAutoSize() {
+		setupContextForGraph("<<AAA || BBB > && CCC || <DDD || EEE> && FFF>",
+				"--splitThreadAutoSizeEnabled=true", "--splitThreadCorePoolSize=1");
+		Collection<StepExecution> stepExecutions = getStepExecutions();
+		assertEquals(6, stepExecutions.size());
+		assertEquals(6, ((ThreadPoolTaskExecutor) this.applicationContext.getBean(TaskExecutor.class))
+				.getMaxPoolSize());
+	}
+
+	@Test
+	public void nestedSplitWithAutoSizeLimit() {
+		setupContextForGraph("<<AAA || BBB > && CCC || <DDD || EEE> && FFF>",
+				"--splitThreadAutoSizeEnabled=true", "--splitThreadMaxPoolSize=2");
+		Collection<StepExecution> stepExecutions = getStepExecutions();
+		assertEquals(6, stepExecutions.size());
+		assertEquals(2, ((ThreadPoolTaskExecutor) this.applicationContext.getBean(TaskExecutor.class))
+				.getMaxPoolSize());
+	}
+
+	@Test
+	public void splitWithMaxConcurrentTasksThreadPoolSize() {
+		Throwable exception = assertThrows(BeanCreationException.class, () ->
+				setupContextForGraph("<AAA || BBB || CCC>", "--maxConcurrentTasks=1",
+						"--splitThreadCorePoolSize=2"));
+		assertThat(exception.getCause().getCause().getMessage()).isEqualTo("Split thread core pool size 2 " +
+				"should be equal or greater than the 3 split flows when max concurrent tasks 1 is " +
+				"less than the split flows. Try setting the composed task property " +
+				"`splitThreadCorePoolSize`, `splitThreadCallerRunsEnabled` or " +
+				"`splitThreadWorkStealingEnabled`");
+	}
+
+	@Test
+	public void splitWithMaxConcurrentTasksAndCallerRuns() {
+		setupContextForGraph("<AAA || BBB || CCC>", "--maxConcurrentTasks=1",
+				"--splitThreadCorePoolSize=2", "--splitThreadCallerRunsEnabled=true");
+		assertEquals(3, getStepExecutions().size());
+	}
+
+	@Test
+	public void deeplyNestedSplitWithWorkStealing() {
+		setupContextForGraph("<AAA || <BBB || <CCC || <DDD || <EEE || FFF>>>>>",
+				"--splitThreadWorkStealingEnabled=true", "--splitThreadCorePoolSize=1");
+		Collection<StepExecution> stepExecutions = getStepExecutions();
+		Set<String> stepNames = getStepNames(stepExecutions);
+		assertEquals(6, stepExecutions.size());
+		assertTrue(stepNames.contains("AAA_0"));
+		assertTrue(stepNames.contains("FFF_0"));
+	}
+
 	@Test
 	public void twoSplitTest() {
 		setupContextForGraph("<AAA||BBB||CCC> && <DDD||EEE>");
@@ -231,6 +311,17 @@ public class ComposedRunnerVisitorTests {
 		assertTrue(stepNames.contains("failedStep_0"));
 	}
 
+	@Test
+	public void testSequentialAndFailedSplitWithWorkStealing() {
+		setupContextForGraph("AAA && <BBB||failedStep||DDD> && EEE",
+				"--splitThreadWorkStealingEnabled=true");
+		Collection<StepExecution> stepExecutions = getStepExecutions();
+		Set<String> stepNames = getStepNames(stepExecutions);
+		assertEquals(4, stepExecutions.size());
+		assertTrue(stepNames.contains("failedStep_0"));
+		assertFalse(stepNames.contains("EEE_0"));
+	}
+
 	@Test
 	public void testSequentialAndSplitWithFlow() {
 		setupContextForGraph("AAA && <BBB && FFF||CCC||DDD> && EEE");
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.repository.JobRepository;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class ComposedTaskArgumentsListenerTests {
+
+	private JobRepository jobRepository;
+
+	private JobExecution jobExecution;
+
+	@Before
+	public void setup() {
+		this.jobRepository = mock(JobRepository.class);
+		this.jobExecution = new JobExecution(1L);
+	}
+
+	@Test
+	public void testArgumentsStored() {
+		new ComposedTaskArgumentsListener(this.jobRepository, "--foo=bar, --baz=qux")
+				.beforeJob(this.jobExecution);
+		assertEquals(Arrays.asList("--foo=bar", "--baz=qux"), this.jobExecution
+				.getExecutionContext().get(ComposedTaskArgumentsListener.COMPOSED_TASK_ARGUMENTS));
+		verify(this.jobRepository).updateExecutionContext(this.jobExecution);
+	}
+
+	@Test
+	public void testNoArguments() {
+		new ComposedTaskArgumentsListener(this.jobRepository, null)
+				.beforeJob(this.jobExecution);
+		assertEquals(Collections.emptyList(), this.jobExecution
+				.getExecutionContext().get(ComposedTaskArgumentsListener.COMPOSED_TASK_ARGUMENTS));
+	}
+
+	@Test
+	public void testArgumentsOfRestartedJobKept() {
+		this.jobExecution.getExecutionContext().put(
+				ComposedTaskArgumentsListener.COMPOSED_TASK_ARGUMENTS,
+				Collections.singletonList("--foo=bar"));
+		new ComposedTaskArgumentsListener(this.jobRepository, "--foo=baz")
+				.beforeJob(this.jobExecution);
+		assertEquals(Collections.singletonList("--foo=bar"), this.jobExecution
+				.getExecutionContext().get(ComposedTaskArgumentsListener.COMPOSED_TASK_ARGUMENTS));
+		verify(this.jobRepository, never()).updateExecutionContext(this.jobExecution);
+	}
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.FilteredClassLoader;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static org.junit.Assert.assertEquals;
+
+public class ComposedTaskMetricsConfigurationTests {
+
+	private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+			.withConfiguration(AutoConfigurations.of(ComposedTaskMetricsConfiguration.class));
+
+	@Test
+	public void testMetricsWithMeterRegistry() {
+		this.contextRunner.withUserConfiguration(MeterRegistryConfiguration.class)
+				.run(context -> assertEquals(1,
+						context.getBeanNamesForType(ComposedTaskMetrics.class).length));
+	}
+
+	@Test
+	public void testNoMetricsWithoutMeterRegistry() {
+		this.contextRunner.run(context -> assertEquals(0,
+				context.getBeanNamesForType(ComposedTaskMetrics.class).length));
+	}
+
+	@Test
+	public void testNoMetricsWithoutMicrometer() {
+		this.contextRunner.withClassLoader(new FilteredClassLoader(MeterRegistry.class))
+				.run(context -> assertEquals(0,
+						context.getBeanNamesForType(ComposedTaskMetrics.class).length));
+	}
+
+	@Configuration
+	public static class MeterRegistryConfiguration {
+
+		@Bean
+		public MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+
+	}
+
+}
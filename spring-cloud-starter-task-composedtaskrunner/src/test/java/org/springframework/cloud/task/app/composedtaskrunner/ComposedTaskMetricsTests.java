@@ -0,0 +1,114 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.cloud.task.repository.TaskExecution;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import static org.junit.Assert.assertEquals;
+
+public class ComposedTaskMetricsTests {
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private ComposedTaskMetrics metrics;
+
+	@Before
+	public void setup() {
+		this.meterRegistry = new SimpleMeterRegistry();
+		this.metrics = new ComposedTaskMetrics(this.meterRegistry);
+	}
+
+	@Test
+	public void testStepMetricsTaggedWithTaskNameAndLabel() {
+		this.metrics.recordLaunch("AAA", "AAA_1", TimeUnit.MILLISECONDS.toNanos(20));
+		this.metrics.recordDetectionDelay("AAA", "AAA_1", 150);
+		this.metrics.incrementPolls("AAA", "AAA_1");
+		this.metrics.incrementPolls("AAA", "AAA_1");
+		this.metrics.incrementPolls("AAA", "AAA_0");
+		assertEquals(20, this.meterRegistry.get(ComposedTaskMetrics.LAUNCH)
+				.tags("task", "AAA", "label", "AAA_1").timer()
+				.totalTime(TimeUnit.MILLISECONDS), 0.001);
+		assertEquals(150, this.meterRegistry.get(ComposedTaskMetrics.DETECTION_DELAY)
+				.tags("task", "AAA", "label", "AAA_1").timer()
+				.totalTime(TimeUnit.MILLISECONDS), 0.001);
+		assertEquals(2, this.meterRegistry.get(ComposedTaskMetrics.POLLS)
+				.tags("task", "AAA", "label", "AAA_1").counter().count(), 0.001);
+		assertEquals(1, this.meterRegistry.get(ComposedTaskMetrics.POLLS)
+				.tags("task", "AAA", "label", "AAA_0").counter().count(), 0.001);
+	}
+
+	@Test
+	public void testNegativeDelayRecordedAsZero() {
+		this.metrics.recordStartDelay("AAA", "AAA_0", -5);
+		assertEquals(0, this.meterRegistry.get(ComposedTaskMetrics.START_DELAY).timer()
+				.totalTime(TimeUnit.MILLISECONDS), 0.001);
+	}
+
+	@Test
+	public void testStatusCacheSavedReads() {
+		TaskExecutionStatusCache statusCache = new TaskExecutionStatusCache();
+		this.metrics.bindStatusCache(statusCache);
+		TaskExecution taskExecution = new TaskExecution();
+		taskExecution.setExecutionId(1L);
+		statusCache.put(taskExecution);
+		statusCache.remove(1L);
+		statusCache.remove(2L);
+		assertEquals(1, this.meterRegistry.get(ComposedTaskMetrics.STATUS_CACHE_SAVED_READS)
+				.functionCounter().count(), 0.001);
+	}
+
+	@Test
+	public void testSplitExecutorGauges() throws Exception {
+		ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+		taskExecutor.setCorePoolSize(1);
+		taskExecutor.setMaxPoolSize(1);
+		taskExecutor.initialize();
+		this.metrics.bindSplitExecutor(taskExecutor);
+		CountDownLatch running = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		try {
+			taskExecutor.execute(() -> {
+				running.countDown();
+				try {
+					release.await();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			taskExecutor.execute(() -> { });
+			running.await();
+			assertEquals(1, this.meterRegistry.get(ComposedTaskMetrics.SPLIT_ACTIVE)
+					.gauge().value(), 0.001);
+			assertEquals(1, this.meterRegistry.get(ComposedTaskMetrics.SPLIT_QUEUED)
+					.gauge().value(), 0.001);
+		}
+		finally {
+			release.countDown();
+			taskExecutor.shutdown();
+		}
+	}
+
+}
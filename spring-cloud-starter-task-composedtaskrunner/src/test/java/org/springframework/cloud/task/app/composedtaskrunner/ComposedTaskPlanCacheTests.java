@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.cloud.dataflow.core.dsl.TaskParser;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskPlan.StepElement;
+import org.springframework.cloud.task.app.composedtaskrunner.properties.ComposedTaskProperties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class ComposedTaskPlanCacheTests {
+
+	private static final String GRAPH = "AAA && BBB 'FAILED' -> CCC && <DDD || EEE && <FFF || AAA>>";
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private ComposedTaskPlanCache planCache;
+
+	private ComposedTaskProperties properties;
+
+	@Before
+	public void setup() {
+		this.planCache = new ComposedTaskPlanCache(this.temporaryFolder.getRoot().getPath());
+		this.properties = new ComposedTaskProperties();
+		this.properties.setGraph(GRAPH);
+		this.properties.setComposedTaskProperties("app.AAA.foo=bar");
+		this.properties.setComposedTaskArguments("--baz=qux");
+	}
+
+	@Test
+	public void testStoreAndLoad() {
+		ComposedTaskPlan plan = ComposedTaskPlanCompiler.compile(
+				new TaskParser("composed-task-runner", GRAPH, false, true).parse());
+		Map<String, Integer> taskApps = new HashMap<>();
+		taskApps.put("AAA", 1);
+		taskApps.put("BBB", 0);
+		Map<String, Map<String, String>> taskProperties = new HashMap<>();
+		taskProperties.put("AAA", Collections.singletonMap("foo", "bar"));
+		taskProperties.put("BBB", Collections.emptyMap());
+		this.planCache.store(this.properties, new ComposedTaskPlanCache.Entry(taskApps,
+				taskProperties, plan));
+
+		ComposedTaskPlanCache.Entry entry = this.planCache.load(this.properties);
+		assertEquals(taskApps, entry.getTaskApps());
+		assertEquals(taskProperties, entry.getTaskProperties());
+		assertEquals(plan.getSequences().toString(), entry.getPlan().getSequences().toString());
+		StepElement stepElement = (StepElement) entry.getPlan().getSequences().get(0)
+				.getElements().get(1);
+		assertEquals("FAILED", stepElement.getTransitions().get(0).getStatusToCheck());
+		assertEquals("CCC_0", stepElement.getTransitions().get(0).getTargetBeanName());
+		assertEquals(plan.getSequences().get(0).getElements().get(1).toString(),
+				stepElement.toString());
+		assertEquals(((StepElement) plan.getSequences().get(0).getElements().get(1))
+				.getOtherwise().toString(), stepElement.getOtherwise().toString());
+	}
+
+	@Test
+	public void testChangedPropertiesNotLoaded() {
+		storeEntry();
+		this.properties.setComposedTaskArguments("--baz=other");
+		assertNull(this.planCache.load(this.properties));
+	}
+
+	@Test
+	public void testMissingEntry() {
+		assertNull(this.planCache.load(this.properties));
+	}
+
+	@Test
+	public void testCorruptEntryIgnored() throws Exception {
+		storeEntry();
+		File[] files = this.temporaryFolder.getRoot().listFiles();
+		assertEquals(1, files.length);
+		Files.write(files[0].toPath(), new byte[] {0x43, 0x54, 0x52, 0x50, 0, 0, 0, 1, 0});
+		assertNull(this.planCache.load(this.properties));
+	}
+
+	@Test
+	public void testDeploymentPropertiesNotStored() throws Exception {
+		this.properties.setComposedTaskProperties("app.AAA.password=s3cret");
+		storeEntry();
+		File[] files = this.temporaryFolder.getRoot().listFiles();
+		assertEquals(1, files.length);
+		assertFalse(new String(Files.readAllBytes(files[0].toPath()), StandardCharsets.UTF_8)
+				.contains("s3cret"));
+		ComposedTaskPlanCache.Entry entry = this.planCache.load(this.properties);
+		assertEquals("s3cret", entry.getTaskProperties().get("AAA").get("password"));
+	}
+
+	@Test
+	public void testStoreFailureIgnored() {
+		Map<String, Integer> taskApps = new HashMap<>();
+		taskApps.put("AAA", null);
+		ComposedTaskPlan plan = ComposedTaskPlanCompiler.compile(
+				new TaskParser("composed-task-runner", GRAPH, false, true).parse());
+		this.planCache.store(this.properties, new ComposedTaskPlanCache.Entry(taskApps,
+				Collections.emptyMap(), plan));
+		assertEquals(0, this.temporaryFolder.getRoot().listFiles().length);
+		assertNull(this.planCache.load(this.properties));
+	}
+
+	private void storeEntry() {
+		ComposedTaskPlan plan = ComposedTaskPlanCompiler.compile(
+				new TaskParser("composed-task-runner", GRAPH, false, true).parse());
+		this.planCache.store(this.properties, new ComposedTaskPlanCache.Entry(
+				Collections.singletonMap("AAA", 1), Collections.emptyMap(), plan));
+	}
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.springframework.cloud.dataflow.core.dsl.TaskParser;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskPlan.Element;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskPlan.SequenceElement;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskPlan.SplitElement;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskPlan.StepElement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ComposedTaskPlanCompilerTests {
+
+	@Test
+	public void testSequence() {
+		List<Element> elements = compile("AAA && BBB && AAA").getElements();
+		assertEquals(3, elements.size());
+		assertStep("AAA_1", elements.get(0));
+		assertStep("BBB_0", elements.get(1));
+		assertStep("AAA_0", elements.get(2));
+	}
+
+	@Test
+	public void testLabel() {
+		List<Element> elements = compile("AAA && LABELA: AAA").getElements();
+		assertEquals(2, elements.size());
+		assertStep("AAA_0", elements.get(0));
+		assertStep("LABELA", elements.get(1));
+	}
+
+	@Test
+	public void testTransition() {
+		List<Element> elements = compile("DDD && AAA 'FAILED' -> BBB && CCC").getElements();
+		assertEquals(2, elements.size());
+		assertStep("DDD_0", elements.get(0));
+		StepElement stepElement = (StepElement) elements.get(1);
+		assertEquals("AAA_0", stepElement.getBeanName());
+		assertEquals(1, stepElement.getTransitions().size());
+		assertEquals("FAILED", stepElement.getTransitions().get(0).getStatusToCheck());
+		assertEquals("BBB_0", stepElement.getTransitions().get(0).getTargetBeanName());
+		assertEquals(1, stepElement.getOtherwise().getElements().size());
+		assertStep("CCC_0", stepElement.getOtherwise().getElements().get(0));
+	}
+
+	@Test
+	public void testWildCardTransition() {
+		List<Element> elements = compile("AAA 'FAILED' -> BBB * -> CCC").getElements();
+		assertEquals(1, elements.size());
+		StepElement stepElement = (StepElement) elements.get(0);
+		assertEquals(2, stepElement.getTransitions().size());
+		assertEquals("*", stepElement.getTransitions().get(1).getStatusToCheck());
+		assertEquals("CCC_0", stepElement.getTransitions().get(1).getTargetBeanName());
+		assertNull(stepElement.getOtherwise());
+	}
+
+	@Test
+	public void testFlowFollowingWildCard() {
+		Throwable exception = assertThrows(IllegalStateException.class,
+				() -> compile("AAA 'FAILED' -> BBB * -> CCC && DDD"));
+		assertEquals("Invalid flow following '*' specifier.", exception.getMessage());
+	}
+
+	@Test
+	public void testNestedSplit() {
+		List<Element> elements = compile("<AAA && BBB || <CCC || AAA>> && DDD").getElements();
+		assertEquals(2, elements.size());
+		assertStep("DDD_0", elements.get(1));
+		SplitElement split = (SplitElement) elements.get(0);
+		assertEquals(2, split.getBranches().size());
+		assertStep("AAA_0", split.getBranches().get(0).getElements().get(0));
+		assertStep("BBB_0", split.getBranches().get(0).getElements().get(1));
+		SplitElement nestedSplit = (SplitElement) split.getBranches().get(1).getElements().get(0);
+		assertStep("CCC_0", nestedSplit.getBranches().get(0).getElements().get(0));
+		assertStep("AAA_1", nestedSplit.getBranches().get(1).getElements().get(0));
+	}
+
+	@Test
+	public void testStepSplits() {
+		Map<String, List<String>> stepSplits = compilePlan(
+				"<AAA && BBB || <CCC || AAA>> && DDD && <EEE 'FAILED' -> FFF || GGG>").getStepSplits();
+		assertEquals(Collections.singletonList("split_0"), stepSplits.get("AAA_0"));
+		assertEquals(Collections.singletonList("split_0"), stepSplits.get("BBB_0"));
+		assertEquals(Arrays.asList("split_0", "split_1"), stepSplits.get("CCC_0"));
+		assertEquals(Arrays.asList("split_0", "split_1"), stepSplits.get("AAA_1"));
+		assertNull(stepSplits.get("DDD_0"));
+		assertEquals(Collections.singletonList("split_2"), stepSplits.get("EEE_0"));
+		assertEquals(Collections.singletonList("split_2"), stepSplits.get("FFF_0"));
+		assertEquals(Collections.singletonList("split_2"), stepSplits.get("GGG_0"));
+	}
+
+	@Test
+	public void testLargeGraph() {
+		StringBuilder graph = new StringBuilder("AAA");
+		for (int i = 0; i < 5000; i++) {
+			graph.append(" && AAA");
+		}
+		List<Element> elements = compile(graph.toString()).getElements();
+		assertEquals(5001, elements.size());
+		assertStep("AAA_5000", elements.get(0));
+		assertStep("AAA_0", elements.get(5000));
+	}
+
+	@Test
+	public void testDeeplyNestedSplits() {
+		int depth = 200;
+		String graph = "AAA";
+		for (int i = 0; i < depth; i++) {
+			graph = "<" + graph + " || BBB>";
+		}
+		Element element = compile(graph).getElements().get(0);
+		for (int i = 0; i < depth; i++) {
+			SplitElement split = (SplitElement) element;
+			assertEquals(2, split.getBranches().size());
+			element = split.getBranches().get(0).getElements().get(0);
+		}
+		assertStep("AAA_0", element);
+	}
+
+	@Test
+	public void testMaxParallelFlows() {
+		assertEquals(0, compilePlan("AAA && BBB").getMaxParallelFlows());
+		assertEquals(3, compilePlan("<AAA || BBB || CCC> && <DDD || EEE>").getMaxParallelFlows());
+		assertEquals(6, compilePlan("<<AAA || BBB> && CCC || <DDD || EEE> && FFF>")
+				.getMaxParallelFlows());
+		assertEquals(2, compilePlan("AAA 'FAILED' -> BBB && <CCC || DDD>").getMaxParallelFlows());
+		String graph = "AAA";
+		for (int i = 0; i < 50; i++) {
+			graph = "<" + graph + " || BBB>";
+		}
+		assertEquals(100, compilePlan(graph).getMaxParallelFlows());
+	}
+
+	@Test
+	public void testTaskName() {
+		assertEquals("AAA_BBB", ComposedTaskPlanCompiler.getTaskName("AAA_BBB_0"));
+	}
+
+	private ComposedTaskPlan compilePlan(String graph) {
+		return ComposedTaskPlanCompiler.compile(
+				new TaskParser("composed-task-runner", graph, false, true).parse());
+	}
+
+	private SequenceElement compile(String graph) {
+		TaskParser taskParser = new TaskParser("composed-task-runner", graph, false, true);
+		return ComposedTaskPlanCompiler.compile(taskParser.parse()).getSequences().get(0);
+	}
+
+	private void assertStep(String beanName, Element element) {
+		assertEquals(beanName, ((StepElement) element).getBeanName());
+	}
+
+}
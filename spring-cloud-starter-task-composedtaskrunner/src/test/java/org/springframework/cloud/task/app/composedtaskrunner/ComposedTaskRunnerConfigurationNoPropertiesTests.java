@@ -61,6 +61,9 @@ public class ComposedTaskRunnerConfigurationNoPropertiesTests {
 	@Autowired
 	private TaskOperations taskOperations;
 
+	@Autowired(required = false)
+	private ComposedTaskTracing composedTaskTracing;
+
 	@Test
 	@DirtiesContext
 	public void testComposedConfiguration() throws Exception {
@@ -69,6 +72,7 @@ public class ComposedTaskRunnerConfigurationNoPropertiesTests {
 		job.execute(jobExecution);
 
 		Assert.isNull(job.getJobParametersIncrementer(), "JobParametersIncrementer must be null.");
+		Assert.isNull(this.composedTaskTracing, "Tracing must be disabled by default.");
 		verify(this.taskOperations).launch("AAA", new HashMap<>(0), new ArrayList<>(0), null);
 	}
 }
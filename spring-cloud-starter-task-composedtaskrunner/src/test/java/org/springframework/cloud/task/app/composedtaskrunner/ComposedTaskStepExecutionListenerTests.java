@@ -29,8 +29,11 @@ import org.springframework.cloud.task.repository.TaskExplorer;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -92,6 +95,32 @@ public class ComposedTaskStepExecutionListenerTests {
 		assertEquals(ExitStatus.FAILED, this.taskListener.afterStep(this.stepExecution));
 	}
 
+	@Test
+	public void testCachedTaskExecution() {
+		TaskExecutionStatusCache statusCache = new TaskExecutionStatusCache();
+		this.taskListener.setStatusCache(statusCache);
+		TaskExecution taskExecution = getDefaultTaskExecution(1, null);
+		taskExecution.setExecutionId(111L);
+		statusCache.put(taskExecution);
+		populateExecutionContext(111L);
+
+		assertEquals(ExitStatus.FAILED, this.taskListener.afterStep(this.stepExecution));
+		verify(this.taskExplorer, never()).getTaskExecution(anyLong());
+		assertEquals(1, statusCache.getSavedReads());
+		assertNull(statusCache.remove(111L));
+	}
+
+	@Test
+	public void testTaskExecutionNotCached() {
+		this.taskListener.setStatusCache(new TaskExecutionStatusCache());
+		TaskExecution taskExecution = getDefaultTaskExecution(0, null);
+		when(this.taskExplorer.getTaskExecution(anyLong())).thenReturn(taskExecution);
+		populateExecutionContext(111L);
+
+		assertEquals(ExitStatus.COMPLETED, this.taskListener.afterStep(this.stepExecution));
+		verify(this.taskExplorer).getTaskExecution(111L);
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void testNullExecutionId() {
 		TaskExecution taskExecution = new TaskExecution();
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.cloud.task.repository.TaskExplorer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.springframework.cloud.task.app.composedtaskrunner.StepExecutionFixtures.START;
+import static org.springframework.cloud.task.app.composedtaskrunner.StepExecutionFixtures.stepExecution;
+import static org.springframework.cloud.task.app.composedtaskrunner.StepExecutionFixtures.taskExecution;
+
+public class ComposedTaskTimelineTests {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private TaskExplorer taskExplorer;
+
+	private JobExecution jobExecution;
+
+	@Before
+	public void setup() {
+		this.taskExplorer = mock(TaskExplorer.class);
+		this.jobExecution = new JobExecution(new JobInstance(1L, "job"), 1L,
+				new JobParameters(), null);
+		this.jobExecution.setStartTime(new Date(START));
+		this.jobExecution.setEndTime(new Date(START + 100));
+		this.jobExecution.setStatus(BatchStatus.COMPLETED);
+	}
+
+	@Test
+	public void testPhasesOfStepsOnThreadLanes() {
+		StepExecution aaa = stepExecution(this.jobExecution, "AAA_0", 1L, 0, 50);
+		StepExecution bbb = stepExecution(this.jobExecution, "BBB_0", 2L, 5, 60);
+		taskExecution(this.taskExplorer, aaa, 11L, 10, 40);
+		taskExecution(this.taskExplorer, bbb, 12L, 20, 70);
+		Map<Long, String> stepThreads = new HashMap<>();
+		stepThreads.put(1L, "split-1");
+		stepThreads.put(2L, "split-2");
+
+		List<Map<String, Object>> events = new ComposedTaskTimeline(this.taskExplorer)
+				.getTraceEvents(this.jobExecution, stepThreads);
+
+		assertEquals(Collections.singletonMap("name", "split-1"),
+				event(events, "M", "thread_name", 1L).get("args"));
+		assertEquals(Collections.singletonMap("name", "split-2"),
+				event(events, "M", "thread_name", 2L).get("args"));
+		assertPhase(event(events, "X", "job", 0L), 0, 100);
+		assertPhase(event(events, "X", "AAA_0", 1L), 0, 50);
+		assertPhase(event(events, "X", "launch", 1L), 0, 10);
+		assertPhase(event(events, "X", "waiting", 1L), 10, 40);
+		assertPhase(event(events, "X", "detection", 1L), 40, 50);
+		assertPhase(event(events, "X", "BBB_0", 2L), 5, 60);
+		// the end of the task execution is kept within the step
+		assertPhase(event(events, "X", "waiting", 2L), 20, 60);
+		assertPhase(event(events, "X", "detection", 2L), 60, 60);
+	}
+
+	@Test
+	public void testStepsOnFreeLanes() {
+		stepExecution(this.jobExecution, "AAA_0", 1L, 0, 10);
+		stepExecution(this.jobExecution, "BBB_0", 2L, 5, 15);
+		stepExecution(this.jobExecution, "CCC_0", 3L, 12, 20);
+
+		List<Map<String, Object>> events = new ComposedTaskTimeline(this.taskExplorer)
+				.getTraceEvents(this.jobExecution, Collections.emptyMap());
+
+		assertEquals(1L, event(events, "X", "AAA_0", null).get("tid"));
+		assertEquals(2L, event(events, "X", "BBB_0", null).get("tid"));
+		assertEquals(1L, event(events, "X", "CCC_0", null).get("tid"));
+		assertEquals(Collections.singletonMap("name", "lane-2"),
+				event(events, "M", "thread_name", 2L).get("args"));
+	}
+
+	@Test
+	public void testListenerWritesTimeline() throws Exception {
+		File directory = new File(this.temporaryFolder.getRoot(), "timelines");
+		ComposedTaskTimelineListener listener = new ComposedTaskTimelineListener(
+				new ComposedTaskTimeline(this.taskExplorer), directory.getPath());
+		StepExecution aaa = stepExecution(this.jobExecution, "AAA_0", 1L, 0, 50);
+		taskExecution(this.taskExplorer, aaa, 11L, 10, 40);
+		listener.beforeStep(aaa);
+		listener.afterStep(aaa);
+		listener.afterJob(this.jobExecution);
+
+		File timeline = new File(directory, "job-1.json");
+		assertTrue(timeline.isFile());
+		Map<?, ?> trace = new ObjectMapper().readValue(timeline, Map.class);
+		List<Map<String, Object>> events = (List<Map<String, Object>>) trace.get("traceEvents");
+		assertEquals(Collections.singletonMap("name", Thread.currentThread().getName()),
+				event(events, "M", "thread_name", 1).get("args"));
+		assertEquals(50000, event(events, "X", "AAA_0", 1).get("dur"));
+		assertEquals(4, events.stream().filter(event -> "X".equals(event.get("ph")) &&
+				Integer.valueOf(1).equals(event.get("tid"))).count());
+	}
+
+	private static Map<String, Object> event(List<Map<String, Object>> events, String phase,
+			String name, Object lane) {
+		List<Map<String, Object>> matches = events.stream()
+				.filter(event -> phase.equals(event.get("ph")) && name.equals(event.get("name")) &&
+						(lane == null || lane.equals(event.get("tid"))))
+				.collect(Collectors.toList());
+		assertEquals(1, matches.size());
+		return matches.get(0);
+	}
+
+	private static void assertPhase(Map<String, Object> event, long start, long end) {
+		assertEquals(start * 1000, event.get("ts"));
+		assertEquals((end - start) * 1000, event.get("dur"));
+	}
+
+}
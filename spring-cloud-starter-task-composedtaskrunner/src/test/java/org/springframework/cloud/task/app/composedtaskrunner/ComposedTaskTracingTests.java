@@ -0,0 +1,143 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.List;
+
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ComposedTaskTracingTests {
+
+	private static final String PARENT_TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+	private InMemorySpanExporter spanExporter;
+
+	private OpenTelemetrySdk openTelemetry;
+
+	private JobExecution jobExecution;
+
+	private StepExecution stepExecution;
+
+	@Before
+	public void setup() {
+		this.spanExporter = InMemorySpanExporter.create();
+		this.openTelemetry = OpenTelemetrySdk.builder()
+				.setTracerProvider(SdkTracerProvider.builder()
+						.addSpanProcessor(SimpleSpanProcessor.create(this.spanExporter))
+						.build())
+				.setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+				.build();
+		this.jobExecution = new JobExecution(new JobInstance(1L, "job"), 1L,
+				new JobParameters(), null);
+		this.stepExecution = this.jobExecution.createStepExecution("AAA_0");
+		this.stepExecution.setId(1L);
+	}
+
+	@Test
+	public void testSpansOfStep() {
+		ComposedTaskTracing tracing = new ComposedTaskTracing(this.openTelemetry, null);
+		tracing.beforeJob(this.jobExecution);
+		tracing.beforeStep(this.stepExecution);
+		List<String> traceArguments = tracing.inSpan(this.stepExecution,
+				"launch AAA", tracing::getTraceArguments);
+		this.stepExecution.setExitStatus(ExitStatus.COMPLETED);
+		tracing.afterStep(this.stepExecution);
+		tracing.afterJob(this.jobExecution);
+
+		List<SpanData> spans = this.spanExporter.getFinishedSpanItems();
+		assertEquals(3, spans.size());
+		SpanData launchSpan = spans.get(0);
+		SpanData stepSpan = spans.get(1);
+		SpanData jobSpan = spans.get(2);
+		assertEquals("launch AAA", launchSpan.getName());
+		assertEquals("step AAA_0", stepSpan.getName());
+		assertEquals("composed-task job", jobSpan.getName());
+		assertEquals(stepSpan.getSpanId(), launchSpan.getParentSpanId());
+		assertEquals(jobSpan.getSpanId(), stepSpan.getParentSpanId());
+		assertFalse(jobSpan.getParentSpanContext().isValid());
+		assertEquals(1, traceArguments.size());
+		assertEquals(String.format("--traceparent=00-%s-%s-01", jobSpan.getTraceId(),
+				launchSpan.getSpanId()), traceArguments.get(0));
+	}
+
+	@Test
+	public void testJobSpanJoinsTraceOfRunner() {
+		MockEnvironment environment = new MockEnvironment();
+		environment.setProperty("traceparent", "00-" + PARENT_TRACE_ID + "-00f067aa0ba902b7-01");
+		ComposedTaskTracing tracing = new ComposedTaskTracing(this.openTelemetry, environment);
+		tracing.beforeJob(this.jobExecution);
+		tracing.afterJob(this.jobExecution);
+
+		SpanData jobSpan = this.spanExporter.getFinishedSpanItems().get(0);
+		assertEquals(PARENT_TRACE_ID, jobSpan.getTraceId());
+		assertEquals("00f067aa0ba902b7", jobSpan.getParentSpanId());
+	}
+
+	@Test
+	public void testFailedStep() {
+		ComposedTaskTracing tracing = new ComposedTaskTracing(this.openTelemetry, null);
+		tracing.beforeJob(this.jobExecution);
+		tracing.beforeStep(this.stepExecution);
+		IllegalStateException failure = new IllegalStateException("status unavailable");
+		assertThrows(IllegalStateException.class, () -> tracing.inSpan(
+				this.stepExecution, "status AAA", () -> {
+					throw failure;
+				}));
+		this.stepExecution.addFailureException(failure);
+		this.stepExecution.setExitStatus(ExitStatus.FAILED);
+		tracing.afterStep(this.stepExecution);
+
+		List<SpanData> spans = this.spanExporter.getFinishedSpanItems();
+		assertEquals(2, spans.size());
+		assertEquals(StatusCode.ERROR, spans.get(0).getStatus().getStatusCode());
+		assertEquals(1, spans.get(0).getEvents().size());
+		assertEquals(StatusCode.ERROR, spans.get(1).getStatus().getStatusCode());
+		assertEquals(1, spans.get(1).getEvents().size());
+	}
+
+	@Test
+	public void testTraceArgument() {
+		ComposedTaskTracing tracing = new ComposedTaskTracing(this.openTelemetry, null);
+		assertTrue(tracing.isTraceArgument("--traceparent=00-" + PARENT_TRACE_ID +
+				"-00f067aa0ba902b7-01"));
+		assertTrue(tracing.isTraceArgument("--tracestate=foo=bar"));
+		assertFalse(tracing.isTraceArgument("--spring.cloud.task.parent-execution-id=1"));
+		assertTrue(tracing.getTraceArguments().isEmpty());
+	}
+
+}
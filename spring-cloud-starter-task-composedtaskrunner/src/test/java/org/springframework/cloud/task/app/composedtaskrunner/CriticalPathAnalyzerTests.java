@@ -0,0 +1,154 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.cloud.dataflow.core.dsl.TaskParser;
+import org.springframework.cloud.task.app.composedtaskrunner.properties.ComposedTaskProperties;
+import org.springframework.cloud.task.repository.TaskExplorer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.springframework.cloud.task.app.composedtaskrunner.StepExecutionFixtures.START;
+import static org.springframework.cloud.task.app.composedtaskrunner.StepExecutionFixtures.stepExecution;
+import static org.springframework.cloud.task.app.composedtaskrunner.StepExecutionFixtures.taskExecution;
+
+public class CriticalPathAnalyzerTests {
+
+	private TaskExplorer taskExplorer;
+
+	private ComposedTaskProperties composedTaskProperties;
+
+	private JobExecution jobExecution;
+
+	@Before
+	public void setup() {
+		this.taskExplorer = mock(TaskExplorer.class);
+		this.composedTaskProperties = new ComposedTaskProperties();
+		this.jobExecution = new JobExecution(new JobInstance(1L, "job"), 1L,
+				new JobParameters(), null);
+	}
+
+	@Test
+	public void testSplit() {
+		stepExecution(this.jobExecution, "AAA_0", 0, 10);
+		stepExecution(this.jobExecution, "BBB_0", 12, 62);
+		stepExecution(this.jobExecution, "CCC_0", 12, 32);
+		stepExecution(this.jobExecution, "DDD_0", 33, 53);
+		stepExecution(this.jobExecution, "EEE_0", 65, 70);
+		this.jobExecution.setStartTime(new Date(START));
+		this.jobExecution.setEndTime(new Date(START + 71));
+
+		CriticalPathReport report = analyze("AAA && <BBB || CCC && DDD> && EEE");
+
+		assertEquals(Arrays.asList("AAA_0", "BBB_0", "EEE_0"), labels(report.getCriticalPath()));
+		assertEquals(Arrays.asList("AAA_0", "BBB_0", "CCC_0", "DDD_0", "EEE_0"),
+				labels(report.getNodes()));
+		assertEquals(65, report.getCriticalPathDuration());
+		assertEquals(6, report.getUnattributedTime());
+		assertEquals(10, report.getNodes().get(2).getSlack());
+		assertEquals(10, report.getNodes().get(3).getSlack());
+		assertFalse(report.getNodes().get(3).isCritical());
+	}
+
+	@Test
+	public void testNestedSplit() {
+		stepExecution(this.jobExecution, "AAA_0", 0, 100);
+		stepExecution(this.jobExecution, "BBB_0", 0, 30);
+		stepExecution(this.jobExecution, "CCC_0", 0, 40);
+		stepExecution(this.jobExecution, "DDD_0", 40, 50);
+
+		CriticalPathReport report = analyze("<AAA || <BBB || CCC> && DDD>");
+
+		assertEquals(Arrays.asList("AAA_0"), labels(report.getCriticalPath()));
+		assertEquals(50, report.getNodes().get(2).getSlack());
+		assertEquals(50, report.getNodes().get(3).getSlack());
+		// the shorter branch of the nested split also has the slack of its split
+		assertEquals(60, report.getNodes().get(1).getSlack());
+	}
+
+	@Test
+	public void testTransitionTaken() {
+		stepExecution(this.jobExecution, "AAA_0", 0, 10);
+		stepExecution(this.jobExecution, "BBB_0", 10, 30);
+
+		CriticalPathReport report = analyze("AAA 'FAILED' -> BBB && CCC && DDD");
+
+		assertEquals(Arrays.asList("AAA_0", "BBB_0"), labels(report.getCriticalPath()));
+		assertEquals(30, report.getCriticalPathDuration());
+	}
+
+	@Test
+	public void testRunnerOverhead() {
+		StepExecution aaa = stepExecution(this.jobExecution, "AAA_0", 0, 100);
+		StepExecution bbb = stepExecution(this.jobExecution, "BBB_0", 100, 150);
+		taskExecution(this.taskExplorer, aaa, 1L, 5, 90);
+		// the end of the task execution is kept within the step
+		taskExecution(this.taskExplorer, bbb, 2L, 120, 160);
+
+		CriticalPathReport report = analyze("AAA && BBB");
+
+		CriticalPathReport.Node node = report.getCriticalPath().get(0);
+		assertEquals(5, node.getLaunchLatency());
+		assertEquals(10, node.getDetectionDelay());
+		assertEquals(Long.valueOf(85), node.getTaskDuration());
+		node = report.getCriticalPath().get(1);
+		assertEquals(20, node.getLaunchLatency());
+		assertEquals(0, node.getDetectionDelay());
+		assertEquals(35, report.getRunnerOverhead());
+	}
+
+	@Test
+	public void testAfterJob() {
+		this.composedTaskProperties.setGraph("AAA && BBB");
+		stepExecution(this.jobExecution, "AAA_0", 0, 10);
+		CriticalPathAnalyzer analyzer = new CriticalPathAnalyzer(this.composedTaskProperties,
+				this.taskExplorer);
+		assertNull(analyzer.getLastReport());
+
+		analyzer.afterJob(this.jobExecution);
+
+		assertEquals(Arrays.asList("AAA_0"), labels(analyzer.getLastReport().getCriticalPath()));
+		assertNull(analyzer.getLastReport().getCriticalPath().get(0).getTaskDuration());
+		assertTrue(analyzer.getLastReport().toString().contains("AAA_0: 10 ms"));
+	}
+
+	private CriticalPathReport analyze(String graph) {
+		return new CriticalPathAnalyzer(this.composedTaskProperties, this.taskExplorer).analyze(
+				ComposedTaskPlanCompiler.compile(new TaskParser("test", graph, false, true).parse()),
+				this.jobExecution);
+	}
+
+	private static List<String> labels(List<CriticalPathReport.Node> nodes) {
+		return nodes.stream().map(CriticalPathReport.Node::getLabel).collect(Collectors.toList());
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.cloud.task.repository.TaskExecution;
+import org.springframework.cloud.task.repository.TaskExplorer;
+import org.springframework.cloud.task.repository.TaskRepository;
+import org.springframework.cloud.task.repository.support.SimpleTaskExplorer;
+import org.springframework.cloud.task.repository.support.SimpleTaskRepository;
+import org.springframework.cloud.task.repository.support.TaskExecutionDaoFactoryBean;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class ReplicaRoutingTaskExplorerTests {
+
+	private EmbeddedDatabase primaryDataSource;
+
+	private EmbeddedDatabase replicaDataSource;
+
+	private TaskRepository primaryTaskRepository;
+
+	private TaskRepository replicaTaskRepository;
+
+	private TaskExplorer primaryTaskExplorer;
+
+	@Before
+	public void setup() {
+		this.primaryDataSource = createDataSource();
+		this.replicaDataSource = createDataSource();
+		this.primaryTaskRepository = new SimpleTaskRepository(
+				new TaskExecutionDaoFactoryBean(this.primaryDataSource));
+		this.replicaTaskRepository = new SimpleTaskRepository(
+				new TaskExecutionDaoFactoryBean(this.replicaDataSource));
+		this.primaryTaskExplorer = spy(new SimpleTaskExplorer(
+				new TaskExecutionDaoFactoryBean(this.primaryDataSource)));
+	}
+
+	@After
+	public void tearDown() {
+		this.primaryDataSource.shutdown();
+		this.replicaDataSource.shutdown();
+	}
+
+	@Test
+	public void testRunningTaskReadFromReplica() {
+		long executionId = createTaskExecution(false);
+		TaskExplorer taskExplorer = routingTaskExplorer(60000);
+		assertNull(taskExplorer.getTaskExecution(executionId).getEndTime());
+		assertNull(taskExplorer.getTaskExecution(executionId).getEndTime());
+		assertNull(taskExplorer.getTaskExecution(executionId).getEndTime());
+		// only the first read goes to the primary
+		verify(this.primaryTaskExplorer, times(1)).getTaskExecution(executionId);
+	}
+
+	@Test
+	public void testCompletionConfirmedOnPrimary() {
+		long executionId = createTaskExecution(true);
+		TaskExplorer taskExplorer = routingTaskExplorer(60000);
+		assertNotNull(taskExplorer.getTaskExecution(executionId).getEndTime());
+		verify(this.primaryTaskExplorer, times(1)).getTaskExecution(executionId);
+	}
+
+	@Test
+	public void testLaggingReplica() {
+		long executionId = createTaskExecution(false);
+		this.primaryTaskRepository.completeTaskExecution(executionId, 0, new Date(), "");
+		TaskExplorer taskExplorer = routingTaskExplorer(0);
+		assertNotNull(taskExplorer.getTaskExecution(executionId).getEndTime());
+		assertNotNull(taskExplorer.getTaskExecution(executionId).getEndTime());
+	}
+
+	@Test
+	public void testTaskExecutionNotYetReplicated() {
+		TaskExecution taskExecution = this.primaryTaskRepository.createTaskExecution();
+		TaskExplorer taskExplorer = routingTaskExplorer(60000);
+		assertNotNull(taskExplorer.getTaskExecution(taskExecution.getExecutionId()));
+	}
+
+	private ReplicaRoutingTaskExplorer routingTaskExplorer(long lagTolerance) {
+		return new ReplicaRoutingTaskExplorer(this.replicaDataSource, "TASK_",
+				this.primaryTaskExplorer, lagTolerance);
+	}
+
+	private long createTaskExecution(boolean completeOnReplica) {
+		TaskExecution taskExecution = this.primaryTaskRepository.createTaskExecution();
+		this.replicaTaskRepository.createTaskExecution();
+		if (completeOnReplica) {
+			this.primaryTaskRepository.completeTaskExecution(taskExecution.getExecutionId(),
+					0, new Date(), "");
+			this.replicaTaskRepository.completeTaskExecution(taskExecution.getExecutionId(),
+					0, new Date(), "");
+		}
+		return taskExecution.getExecutionId();
+	}
+
+	private static EmbeddedDatabase createDataSource() {
+		return new EmbeddedDatabaseBuilder()
+				.generateUniqueName(true)
+				.addScript("classpath:org/springframework/cloud/task/schema-hsqldb.sql")
+				.build();
+	}
+
+}
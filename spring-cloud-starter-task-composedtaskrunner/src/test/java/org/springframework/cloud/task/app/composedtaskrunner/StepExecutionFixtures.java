@@ -0,0 +1,74 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.Date;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.cloud.task.repository.TaskExecution;
+import org.springframework.cloud.task.repository.TaskExplorer;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * Completed step executions and the task executions they launched, timed in
+ * milliseconds from {@link #START}.
+ */
+final class StepExecutionFixtures {
+
+	static final long START = 1_000_000L;
+
+	private StepExecutionFixtures() {
+	}
+
+	static StepExecution stepExecution(JobExecution jobExecution, String stepName,
+			long start, long end) {
+		StepExecution stepExecution = jobExecution.createStepExecution(stepName);
+		stepExecution.setStartTime(new Date(START + start));
+		stepExecution.setEndTime(new Date(START + end));
+		stepExecution.setStatus(BatchStatus.COMPLETED);
+		stepExecution.setExitStatus(ExitStatus.COMPLETED);
+		return stepExecution;
+	}
+
+	static StepExecution stepExecution(JobExecution jobExecution, String stepName, long id,
+			long start, long end) {
+		StepExecution stepExecution = stepExecution(jobExecution, stepName, start, end);
+		stepExecution.setId(id);
+		return stepExecution;
+	}
+
+	/**
+	 * Records the task execution as launched by the step and returns it from
+	 * the mocked task explorer.
+	 */
+	static void taskExecution(TaskExplorer taskExplorer, StepExecution stepExecution, long id,
+			long start, long end) {
+		TaskExecution taskExecution = new TaskExecution();
+		taskExecution.setExecutionId(id);
+		taskExecution.setTaskName(ComposedTaskPlanCompiler.getTaskName(stepExecution.getStepName()));
+		taskExecution.setStartTime(new Date(START + start));
+		taskExecution.setEndTime(new Date(START + end));
+		taskExecution.setExitCode(0);
+		stepExecution.getExecutionContext().put("task-execution-id", id);
+		when(taskExplorer.getTaskExecution(id)).thenReturn(taskExecution);
+	}
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TaskDeploymentPropertiesIndexTests {
+
+	@Test
+	public void testPropertiesForTask() {
+		TaskDeploymentPropertiesIndex index = new TaskDeploymentPropertiesIndex(
+				"app.AAA.format=yyyy, deployer.AAA.memory=2048m, app.BBB.format=dd, foo.AAA.bar=baz",
+				Arrays.asList("AAA", "BBB"));
+		Map<String, String> properties = index.getProperties("AAA");
+		assertEquals(2, properties.size());
+		assertEquals("yyyy", properties.get("format"));
+		assertEquals("2048m", properties.get("memory"));
+		assertEquals(1, index.getProperties("BBB").size());
+		assertEquals("dd", index.getProperties("BBB").get("format"));
+	}
+
+	@Test
+	public void testDeployerPropertyOverridesAppProperty() {
+		TaskDeploymentPropertiesIndex index = new TaskDeploymentPropertiesIndex(
+				"deployer.AAA.memory=2048m, app.AAA.memory=1024m",
+				Arrays.asList("AAA"));
+		assertEquals("2048m", index.getProperties("AAA").get("memory"));
+	}
+
+	@Test
+	public void testTaskNameWithDots() {
+		TaskDeploymentPropertiesIndex index = new TaskDeploymentPropertiesIndex(
+				"app.AAA.BBB.format=yyyy", Arrays.asList("AAA", "AAA.BBB"));
+		assertEquals("yyyy", index.getProperties("AAA").get("BBB.format"));
+		assertEquals("yyyy", index.getProperties("AAA.BBB").get("format"));
+	}
+
+	@Test
+	public void testNoProperties() {
+		TaskDeploymentPropertiesIndex index = new TaskDeploymentPropertiesIndex(
+				null, Arrays.asList("AAA", "BBB"));
+		assertTrue(index.getProperties("AAA").isEmpty());
+		assertSame(index.getProperties("AAA"), index.getProperties("BBB"));
+		assertTrue(index.getProperties("CCC").isEmpty());
+	}
+
+	@Test
+	public void testPropertiesAreImmutable() {
+		TaskDeploymentPropertiesIndex index = new TaskDeploymentPropertiesIndex(
+				"app.AAA.format=yyyy", Arrays.asList("AAA"));
+		assertSame(index.getProperties("AAA"), index.getTaskProperties().get("AAA"));
+		assertThrows(UnsupportedOperationException.class,
+				() -> index.getProperties("AAA").put("format", "dd"));
+	}
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.Date;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.EmbeddedDataSourceConfiguration;
+import org.springframework.cloud.common.security.CommonSecurityAutoConfiguration;
+import org.springframework.cloud.dataflow.rest.client.config.DataFlowClientAutoConfiguration;
+import org.springframework.cloud.task.repository.TaskExecution;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that task events received through the test binder wake the
+ * tasklet waiting on the ended task execution.
+ */
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = {EmbeddedDataSourceConfiguration.class,
+		TaskEventsConfigurationTests.TestConfiguration.class})
+@TestPropertySource(properties = {"task-events-enabled=true"})
+public class TaskEventsConfigurationTests {
+
+	@Autowired
+	private TaskEventsConfiguration.TaskEventsSink taskEventsSink;
+
+	@Autowired
+	private TaskExecutionCompletionNotifier completionNotifier;
+
+	@Test
+	public void testTaskEndEventNotifiesCompletion() throws Exception {
+		this.completionNotifier.register(1L);
+		TaskExecution taskExecution = new TaskExecution();
+		taskExecution.setExecutionId(1L);
+		taskExecution.setExitCode(0);
+		taskExecution.setStartTime(new Date());
+		taskExecution.setEndTime(new Date());
+		this.taskEventsSink.taskEvents().send(MessageBuilder.withPayload(taskExecution).build());
+		assertTrue(this.completionNotifier.await(1L, 0));
+	}
+
+	@Test
+	public void testTaskStartEventIsIgnored() throws Exception {
+		this.completionNotifier.register(2L);
+		TaskExecution taskExecution = new TaskExecution();
+		taskExecution.setExecutionId(2L);
+		taskExecution.setStartTime(new Date());
+		this.taskEventsSink.taskEvents().send(MessageBuilder.withPayload(taskExecution).build());
+		assertFalse(this.completionNotifier.await(2L, 0));
+	}
+
+	@Configuration
+	@EnableAutoConfiguration(exclude = { CommonSecurityAutoConfiguration.class,
+			DataFlowClientAutoConfiguration.class})
+	@Import(TaskEventsConfiguration.class)
+	public static class TestConfiguration {
+
+		@Bean
+		public TaskExecutionCompletionNotifier taskExecutionCompletionNotifier() {
+			return new TaskExecutionCompletionNotifier();
+		}
+
+	}
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TaskExecutionCompletionNotifierTests {
+
+	private TaskExecutionCompletionNotifier notifier;
+
+	@Before
+	public void setup() {
+		this.notifier = new TaskExecutionCompletionNotifier();
+	}
+
+	@Test
+	public void testNotificationBeforeWait() throws Exception {
+		this.notifier.register(1L);
+		this.notifier.notifyCompletion(1L);
+		assertTrue(this.notifier.await(1L, 10000));
+	}
+
+	@Test
+	public void testNotificationWakesWaitingThread() throws Exception {
+		this.notifier.register(1L);
+		Thread notifyingThread = new Thread(() -> {
+			try {
+				Thread.sleep(100);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			this.notifier.notifyCompletion(1L);
+		});
+		notifyingThread.start();
+		long start = System.currentTimeMillis();
+		assertTrue(this.notifier.await(1L, 10000));
+		assertTrue(System.currentTimeMillis() - start < 10000);
+	}
+
+	@Test
+	public void testTimeoutWithoutNotification() throws Exception {
+		this.notifier.register(1L);
+		this.notifier.notifyCompletion(2L);
+		assertFalse(this.notifier.await(1L, 100));
+	}
+
+	@Test
+	public void testUnregisteredExecution() throws Exception {
+		this.notifier.notifyCompletion(1L);
+		assertFalse(this.notifier.await(1L, 100));
+		this.notifier.register(1L);
+		this.notifier.unregister(1L);
+		this.notifier.notifyCompletion(1L);
+		assertFalse(this.notifier.await(1L, 100));
+	}
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.Collections;
+import java.util.Date;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.EmbeddedDataSourceConfiguration;
+import org.springframework.cloud.task.repository.TaskExecution;
+import org.springframework.cloud.task.repository.TaskRepository;
+import org.springframework.cloud.task.repository.support.SimpleTaskRepository;
+import org.springframework.cloud.task.repository.support.TaskExecutionDaoFactoryBean;
+import org.springframework.cloud.task.repository.support.TaskRepositoryInitializer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes={EmbeddedDataSourceConfiguration.class,
+		TaskExecutionStatusPollerTests.TestConfiguration.class})
+public class TaskExecutionStatusPollerTests {
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private TaskRepositoryInitializer taskRepositoryInitializer;
+
+	private TaskRepository taskRepository;
+
+	private TaskExecutionCompletionNotifier completionNotifier;
+
+	private TaskExecutionStatusPoller statusPoller;
+
+	@Before
+	public void setup() throws Exception {
+		this.taskRepositoryInitializer.setDataSource(this.dataSource);
+		this.taskRepositoryInitializer.afterPropertiesSet();
+		this.taskRepository = new SimpleTaskRepository(
+				new TaskExecutionDaoFactoryBean(this.dataSource));
+		this.completionNotifier = new TaskExecutionCompletionNotifier();
+		this.statusPoller = new TaskExecutionStatusPoller(this.dataSource, "TASK_",
+				this.completionNotifier, 60000);
+	}
+
+	@Test
+	@DirtiesContext
+	public void testCompletedTaskExecutionIsNotified() throws Exception {
+		long runningExecutionId = this.taskRepository.createTaskExecution().getExecutionId();
+		long completedExecutionId = createCompleteTaskExecution(1, "FAILED_MESSAGE");
+		this.statusPoller.register(runningExecutionId);
+		this.statusPoller.register(completedExecutionId);
+
+		this.statusPoller.poll();
+
+		assertNull(this.statusPoller.getTaskExecution(runningExecutionId));
+		assertFalse(this.completionNotifier.await(runningExecutionId, 0));
+		TaskExecution taskExecution = this.statusPoller.getTaskExecution(completedExecutionId);
+		assertNotNull(taskExecution.getEndTime());
+		assertEquals(Integer.valueOf(1), taskExecution.getExitCode());
+		assertEquals("FAILED_MESSAGE", taskExecution.getExitMessage());
+		assertTrue(this.completionNotifier.await(completedExecutionId, 0));
+	}
+
+	@Test
+	@DirtiesContext
+	public void testStartTimeAndTaskNameArePolled() {
+		Date startTime = new Date(System.currentTimeMillis() / 1000 * 1000);
+		long executionId = this.taskRepository.createTaskExecution().getExecutionId();
+		this.taskRepository.startTaskExecution(executionId, "AAA", startTime,
+				Collections.emptyList(), null);
+		this.taskRepository.completeTaskExecution(executionId, 0, new Date(), null);
+		this.statusPoller.register(executionId);
+
+		this.statusPoller.poll();
+
+		TaskExecution taskExecution = this.statusPoller.getTaskExecution(executionId);
+		assertEquals(startTime.getTime(), taskExecution.getStartTime().getTime());
+		assertEquals("AAA", taskExecution.getTaskName());
+	}
+
+	@Test
+	@DirtiesContext
+	public void testUnregisteredTaskExecutionIsNotPolled() {
+		long completedExecutionId = createCompleteTaskExecution(0, null);
+		this.statusPoller.register(completedExecutionId);
+		this.statusPoller.unregister(completedExecutionId);
+
+		this.statusPoller.poll();
+
+		assertNull(this.statusPoller.getTaskExecution(completedExecutionId));
+	}
+
+	@Test
+	@DirtiesContext
+	public void testMoreTaskExecutionsThanASingleQuery() {
+		int taskExecutionCount = TaskExecutionStatusPoller.MAX_EXECUTION_IDS_PER_QUERY + 1;
+		long[] executionIds = new long[taskExecutionCount];
+		for (int i = 0; i < taskExecutionCount; i++) {
+			executionIds[i] = createCompleteTaskExecution(0, null);
+			this.statusPoller.register(executionIds[i]);
+		}
+
+		this.statusPoller.poll();
+
+		for (long executionId : executionIds) {
+			assertEquals(Integer.valueOf(0),
+					this.statusPoller.getTaskExecution(executionId).getExitCode());
+		}
+	}
+
+	@Test
+	@DirtiesContext
+	public void testReplicaPolledWithinLagTolerance() {
+		EmbeddedDatabase replicaDataSource = new EmbeddedDatabaseBuilder()
+				.generateUniqueName(true)
+				.addScript("classpath:org/springframework/cloud/task/schema-hsqldb.sql")
+				.build();
+		try {
+			TaskRepository replicaTaskRepository = new SimpleTaskRepository(
+					new TaskExecutionDaoFactoryBean(replicaDataSource));
+			long executionId = this.taskRepository.createTaskExecution().getExecutionId();
+			replicaTaskRepository.createTaskExecution();
+			this.statusPoller.setReplica(replicaDataSource, 60000);
+			this.statusPoller.register(executionId);
+			// the first query runs on the primary
+			this.statusPoller.poll();
+			this.taskRepository.completeTaskExecution(executionId, 0, new Date(), null);
+
+			this.statusPoller.poll();
+			assertNull(this.statusPoller.getTaskExecution(executionId));
+
+			replicaTaskRepository.completeTaskExecution(executionId, 0, new Date(), null);
+			this.statusPoller.poll();
+			assertNotNull(this.statusPoller.getTaskExecution(executionId));
+		}
+		finally {
+			replicaDataSource.shutdown();
+		}
+	}
+
+	private long createCompleteTaskExecution(int exitCode, String exitMessage) {
+		TaskExecution taskExecution = this.taskRepository.createTaskExecution();
+		this.taskRepository.completeTaskExecution(taskExecution.getExecutionId(),
+				exitCode, new Date(), exitMessage);
+		return taskExecution.getExecutionId();
+	}
+
+	@Configuration
+	public static class TestConfiguration {
+
+		@Bean
+		TaskRepositoryInitializer taskRepositoryInitializer() {
+			return new TaskRepositoryInitializer();
+		}
+
+	}
+}
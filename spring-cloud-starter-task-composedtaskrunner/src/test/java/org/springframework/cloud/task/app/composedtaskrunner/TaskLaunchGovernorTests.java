@@ -0,0 +1,199 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TaskLaunchGovernorTests {
+
+	private static final List<String> NO_GROUPS = Collections.emptyList();
+
+	private static final List<String> EXTRACT = Collections.singletonList("extract");
+
+	@Test
+	public void testWeight() {
+		assertEquals(1, TaskLaunchGovernor.getWeight(Collections.emptyMap()));
+		assertEquals(3, TaskLaunchGovernor.getWeight(
+				Collections.singletonMap(TaskLaunchGovernor.WEIGHT_PROPERTY, " 3")));
+		assertThrows(IllegalArgumentException.class, () -> TaskLaunchGovernor.getWeight(
+				Collections.singletonMap(TaskLaunchGovernor.WEIGHT_PROPERTY, "0")));
+		assertThrows(IllegalArgumentException.class, () -> TaskLaunchGovernor.getWeight(
+				Collections.singletonMap(TaskLaunchGovernor.WEIGHT_PROPERTY, "heavy")));
+	}
+
+	@Test
+	public void testGroupLimitsParsing() {
+		Map<String, Integer> groupLimits = TaskLaunchGovernor.parseGroupLimits("extract=4, BBB=1");
+		assertEquals(2, groupLimits.size());
+		assertEquals(Integer.valueOf(4), groupLimits.get("extract"));
+		assertEquals(Integer.valueOf(1), groupLimits.get("BBB"));
+		assertTrue(TaskLaunchGovernor.parseGroupLimits(null).isEmpty());
+		assertThrows(IllegalArgumentException.class,
+				() -> TaskLaunchGovernor.parseGroupLimits("extract=many"));
+		assertThrows(IllegalArgumentException.class, () -> new TaskLaunchGovernor(0,
+				Collections.singletonMap("extract", 0), Collections.emptyMap()));
+	}
+
+	@Test
+	public void testLaunchGroups() {
+		Map<String, Integer> groupLimits = new HashMap<>();
+		groupLimits.put("extract", 2);
+		groupLimits.put("AAA", 1);
+		groupLimits.put("split_1", 3);
+		Map<String, List<String>> stepSplits = new HashMap<>();
+		stepSplits.put("AAA_0", Arrays.asList("split_0", "split_1"));
+		stepSplits.put("BBB_0", Collections.singletonList("split_0"));
+		TaskLaunchGovernor launchGovernor = new TaskLaunchGovernor(0, groupLimits, stepSplits);
+		// the label and the splits of a task are groups of the task
+		assertEquals(Arrays.asList("AAA", "split_1"),
+				launchGovernor.getLaunchGroups("AAA_0", Collections.emptyMap()));
+		assertEquals(Arrays.asList("AAA", "extract", "split_1"),
+				launchGovernor.getLaunchGroups("AAA_0",
+						Collections.singletonMap(TaskLaunchGovernor.GROUP_PROPERTY, "extract ")));
+		assertEquals(Collections.singletonList("AAA"),
+				launchGovernor.getLaunchGroups("AAA_1", Collections.emptyMap()));
+		assertEquals(Collections.emptyList(),
+				launchGovernor.getLaunchGroups("BBB_0", Collections.emptyMap()));
+		assertFalse(launchGovernor.isLimited(Collections.emptyList()));
+	}
+
+	@Test
+	public void testWeightCappedAtLimit() throws Exception {
+		TaskLaunchGovernor launchGovernor = new TaskLaunchGovernor(2);
+		launchGovernor.acquire(NO_GROUPS, 5);
+		assertEquals(0, launchGovernor.getAvailablePermits());
+		launchGovernor.release(NO_GROUPS, 5);
+		assertEquals(2, launchGovernor.getAvailablePermits());
+	}
+
+	@Test
+	public void testGroupLimits() throws Exception {
+		TaskLaunchGovernor launchGovernor = new TaskLaunchGovernor(4,
+				Collections.singletonMap("extract", 1), Collections.emptyMap());
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		new ComposedTaskMetrics(meterRegistry).bindLaunchGovernor(launchGovernor);
+		assertTrue(launchGovernor.isLimited(NO_GROUPS));
+		launchGovernor.acquire(EXTRACT, 2);
+		assertEquals(0, launchGovernor.getAvailablePermits("extract"));
+		assertEquals(2, launchGovernor.getAvailablePermits());
+		CompletableFuture<Void> extract = CompletableFuture.runAsync(() -> {
+			try {
+				launchGovernor.acquire(EXTRACT, 1);
+			}
+			catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		waitForQueueLength(() -> launchGovernor.getQueueLength("extract"), 1);
+		// the tasks of other groups are only held by the limit on all the tasks
+		launchGovernor.acquire(NO_GROUPS, 1);
+		launchGovernor.acquire(NO_GROUPS, 1);
+		assertEquals(0, launchGovernor.getAvailablePermits());
+		assertEquals(1, meterRegistry.get(ComposedTaskMetrics.LAUNCH_GROUP_QUEUED)
+				.tags("group", "extract").gauge().value(), 0.001);
+		assertEquals(0, meterRegistry.get(ComposedTaskMetrics.LAUNCH_QUEUED).gauge().value(), 0.001);
+		launchGovernor.release(NO_GROUPS, 1);
+		launchGovernor.release(EXTRACT, 2);
+		extract.get(10, TimeUnit.SECONDS);
+		assertEquals(0, launchGovernor.getAvailablePermits("extract"));
+		assertEquals(2, launchGovernor.getAvailablePermits());
+	}
+
+	@Test
+	public void testGroupLimitsWithoutLimitOnAllTasks() throws Exception {
+		TaskLaunchGovernor launchGovernor = new TaskLaunchGovernor(0,
+				Collections.singletonMap("extract", 2), Collections.emptyMap());
+		assertTrue(launchGovernor.isLimited(EXTRACT));
+		assertFalse(launchGovernor.isLimited(NO_GROUPS));
+		launchGovernor.acquire(NO_GROUPS, 5);
+		launchGovernor.acquire(EXTRACT, 1);
+		assertEquals(1, launchGovernor.getAvailablePermits("extract"));
+		launchGovernor.release(EXTRACT, 1);
+		assertEquals(2, launchGovernor.getAvailablePermits("extract"));
+	}
+
+	@Test
+	public void testStepsLaunchInOrder() throws Exception {
+		TaskLaunchGovernor launchGovernor = new TaskLaunchGovernor(2);
+		List<String> launched = Collections.synchronizedList(new ArrayList<>());
+		List<CompletableFuture<Void>> steps = new ArrayList<>();
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			launchSteps(launchGovernor, launched, steps, executor);
+		}
+		finally {
+			executor.shutdown();
+		}
+		assertEquals("AAA", launched.get(0));
+		assertEquals(3, launched.size());
+		assertEquals(2, launchGovernor.getAvailablePermits());
+	}
+
+	private void launchSteps(TaskLaunchGovernor launchGovernor, List<String> launched,
+			List<CompletableFuture<Void>> steps, ExecutorService executor) throws Exception {
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		new ComposedTaskMetrics(meterRegistry).bindLaunchGovernor(launchGovernor);
+		launchGovernor.acquire(NO_GROUPS, 2);
+		// a heavy task ready first is not overtaken by the light tasks behind it
+		for (String taskName : new String[] {"AAA", "BBB", "CCC"}) {
+			int weight = "AAA".equals(taskName) ? 2 : 1;
+			steps.add(CompletableFuture.runAsync(() -> {
+				try {
+					launchGovernor.acquire(NO_GROUPS, weight);
+					launched.add(taskName);
+					Thread.sleep(20);
+					launchGovernor.release(NO_GROUPS, weight);
+				}
+				catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+			}, executor));
+			waitForQueueLength(launchGovernor::getQueueLength, steps.size());
+		}
+		assertEquals(3, meterRegistry.get(ComposedTaskMetrics.LAUNCH_QUEUED).gauge().value(), 0.001);
+		assertEquals(0, meterRegistry.get(ComposedTaskMetrics.LAUNCH_PERMITS).gauge().value(), 0.001);
+		launchGovernor.release(NO_GROUPS, 2);
+		CompletableFuture.allOf(steps.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+	}
+
+	private static void waitForQueueLength(IntSupplier queue, int queueLength)
+			throws InterruptedException {
+		for (int i = 0; i < 500 && queue.getAsInt() < queueLength; i++) {
+			Thread.sleep(10);
+		}
+		assertFalse(queue.getAsInt() < queueLength);
+	}
+
+}
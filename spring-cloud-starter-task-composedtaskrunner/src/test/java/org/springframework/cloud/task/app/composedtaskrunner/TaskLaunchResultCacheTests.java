@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.cloud.task.repository.TaskExecution;
+import org.springframework.cloud.task.repository.TaskExplorer;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TaskLaunchResultCacheTests {
+
+	private static final String TASK_NAME = "ctr-AAA";
+
+	private static final long TIME_TO_LIVE = 60000;
+
+	private TaskExplorer taskExplorer;
+
+	private TaskLaunchResultCache resultCache;
+
+	@Before
+	public void setup() {
+		this.taskExplorer = mock(TaskExplorer.class);
+		this.resultCache = new TaskLaunchResultCache(this.taskExplorer, TIME_TO_LIVE);
+	}
+
+	@Test
+	public void testFingerprintIgnoresParentExecutionIdAndPropertyOrder() {
+		Map<String, String> properties = new LinkedHashMap<>();
+		properties.put("foo", "bar");
+		properties.put("baz", "qux");
+		Map<String, String> reorderedProperties = new LinkedHashMap<>();
+		reorderedProperties.put("baz", "qux");
+		reorderedProperties.put("foo", "bar");
+		reorderedProperties.put(TaskLaunchResultCache.ENABLED_PROPERTY, "true");
+		assertEquals(TaskLaunchResultCache.fingerprint(TASK_NAME, properties,
+				Arrays.asList("--a=b", "--spring.cloud.task.parent-execution-id=1")),
+				TaskLaunchResultCache.fingerprint(TASK_NAME, reorderedProperties,
+						Arrays.asList("--a=b", "--spring.cloud.task.parent-execution-id=2")));
+	}
+
+	@Test
+	public void testFingerprintOfDifferentRequests() {
+		String fingerprint = TaskLaunchResultCache.fingerprint(TASK_NAME,
+				Collections.singletonMap("foo", "bar"), Collections.singletonList("--a=b"));
+		assertNotEquals(fingerprint, TaskLaunchResultCache.fingerprint(TASK_NAME,
+				Collections.singletonMap("foo", "baz"), Collections.singletonList("--a=b")));
+		assertNotEquals(fingerprint, TaskLaunchResultCache.fingerprint(TASK_NAME,
+				Collections.singletonMap("foo", "bar"), Collections.singletonList("--a=c")));
+		assertNotEquals(fingerprint, TaskLaunchResultCache.fingerprint("ctr-BBB",
+				Collections.singletonMap("foo", "bar"), Collections.singletonList("--a=b")));
+	}
+
+	@Test
+	public void testFindSuccessfulExecution() {
+		String fingerprint = TaskLaunchResultCache.fingerprint(TASK_NAME,
+				new HashMap<>(), Collections.emptyList());
+		TaskExecution failed = taskExecution(3L, 1, fingerprint, 1000);
+		TaskExecution otherRequest = taskExecution(2L, 0, "other", 2000);
+		TaskExecution successful = taskExecution(1L, 0, fingerprint, 3000);
+		mockTaskExecutions(failed, otherRequest, successful);
+		assertEquals(successful, this.resultCache.find(TASK_NAME, fingerprint));
+	}
+
+	@Test
+	public void testExpiredExecutionIgnored() {
+		String fingerprint = TaskLaunchResultCache.fingerprint(TASK_NAME,
+				new HashMap<>(), Collections.emptyList());
+		mockTaskExecutions(taskExecution(1L, 0, fingerprint, TIME_TO_LIVE + 1000));
+		assertNull(this.resultCache.find(TASK_NAME, fingerprint));
+	}
+
+	@Test
+	public void testPendingExecutionSkipped() {
+		String fingerprint = TaskLaunchResultCache.fingerprint(TASK_NAME,
+				new HashMap<>(), Collections.emptyList());
+		TaskExecution pending = taskExecution(2L, 0, fingerprint, 0);
+		pending.setStartTime(null);
+		pending.setEndTime(null);
+		pending.setExitCode(null);
+		TaskExecution successful = taskExecution(1L, 0, fingerprint, 1000);
+		mockTaskExecutions(pending, successful);
+		assertEquals(successful, this.resultCache.find(TASK_NAME, fingerprint));
+	}
+
+	private void mockTaskExecutions(TaskExecution... taskExecutions) {
+		when(this.taskExplorer.findTaskExecutionsByName(eq(TASK_NAME), any(Pageable.class)))
+				.thenReturn(new PageImpl<>(Arrays.asList(taskExecutions)));
+	}
+
+	private TaskExecution taskExecution(long executionId, int exitCode, String fingerprint,
+			long age) {
+		TaskExecution taskExecution = new TaskExecution();
+		taskExecution.setExecutionId(executionId);
+		taskExecution.setTaskName(TASK_NAME);
+		taskExecution.setStartTime(new Date(System.currentTimeMillis() - age));
+		taskExecution.setEndTime(new Date());
+		taskExecution.setExitCode(exitCode);
+		taskExecution.setArguments(Collections.singletonList(
+				TaskLaunchResultCache.FINGERPRINT_ARGUMENT + fingerprint));
+		return taskExecution;
+	}
+
+}
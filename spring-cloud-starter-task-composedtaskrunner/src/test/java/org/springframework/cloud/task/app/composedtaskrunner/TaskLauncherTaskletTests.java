@@ -16,10 +16,23 @@
 
 package org.springframework.cloud.task.app.composedtaskrunner;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import javax.sql.DataSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
 import org.assertj.core.api.Assertions;
 import org.junit.Before;
 import org.junit.Test;
@@ -27,14 +40,23 @@ import org.junit.runner.RunWith;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 
+import org.springframework.batch.core.BatchStatus;
 import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInterruptedException;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.Step;
 import org.springframework.batch.core.StepContribution;
 import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.UnexpectedJobExecutionException;
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.MapJobRepositoryFactoryBean;
 import org.springframework.batch.core.scope.context.ChunkContext;
 import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.item.ExecutionContext;
 import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.jdbc.EmbeddedDataSourceConfiguration;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -63,6 +85,7 @@ import org.springframework.web.client.ResourceAccessException;
 
 import static junit.framework.TestCase.assertNull;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.mock;
 
@@ -163,6 +186,322 @@ public class TaskLauncherTaskletTests {
 				.get("task-arguments")).get(0));
 	}
 
+	@Test
+	@DirtiesContext
+	public void testTaskLauncherTaskletWithComposedTaskArguments() throws Exception {
+		createCompleteTaskExecution(0);
+		TaskProperties taskProperties = new TaskProperties();
+		taskProperties.setExecutionid(88l);
+		TaskLauncherTasklet taskLauncherTasklet = getTaskExecutionTasklet(taskProperties);
+		taskLauncherTasklet.setArguments(new ArrayList<>(Arrays.asList("--foo=bar")));
+		ChunkContext chunkContext = chunkContext();
+		chunkContext.getStepContext().getStepExecution().getJobExecution()
+				.getExecutionContext().put(ComposedTaskArgumentsListener.COMPOSED_TASK_ARGUMENTS,
+						Arrays.asList("--foo=bar"));
+		mockReturnValForTaskExecution(1L);
+		execute(taskLauncherTasklet, null, chunkContext);
+		ExecutionContext executionContext = chunkContext.getStepContext()
+				.getStepExecution().getExecutionContext();
+		assertNull(executionContext.get("task-arguments"));
+		assertEquals(Arrays.asList("--spring.cloud.task.parent-execution-id=88"),
+				executionContext.get("task-argument-additions"));
+		Mockito.verify(this.taskOperations).launch(ArgumentMatchers.anyString(),
+				ArgumentMatchers.any(),
+				ArgumentMatchers.eq(Arrays.asList("--foo=bar",
+						"--spring.cloud.task.parent-execution-id=88")),
+				ArgumentMatchers.any());
+	}
+
+	@Test
+	@DirtiesContext
+	public void testTaskLauncherTaskletWithCompletionNotifier() throws Exception {
+		this.composedTaskProperties.setIntervalTimeBetweenChecks(60000);
+		createCompleteTaskExecution(0);
+		TaskExecutionCompletionNotifier completionNotifier = new TaskExecutionCompletionNotifier();
+		TaskLauncherTasklet taskLauncherTasklet = getTaskExecutionTasklet();
+		taskLauncherTasklet.setCompletionNotifier(completionNotifier);
+		ChunkContext chunkContext = chunkContext();
+		mockReturnValForTaskExecution(1L);
+		assertEquals(RepeatStatus.CONTINUABLE, taskLauncherTasklet.execute(null, chunkContext));
+		completionNotifier.notifyCompletion(1L);
+		assertEquals(RepeatStatus.FINISHED, taskLauncherTasklet.execute(null, chunkContext));
+	}
+
+	@Test
+	@DirtiesContext
+	public void testTaskLauncherTaskletWithMetrics() throws Exception {
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		createCompleteTaskExecution(0);
+		TaskLauncherTasklet taskLauncherTasklet = getTaskExecutionTasklet();
+		taskLauncherTasklet.setMetrics(new ComposedTaskMetrics(meterRegistry));
+		ChunkContext chunkContext = chunkContext();
+		mockReturnValForTaskExecution(1L);
+		execute(taskLauncherTasklet, null, chunkContext);
+		assertEquals(1, meterRegistry.get(ComposedTaskMetrics.LAUNCH)
+				.tags("task", "testTask1", "label", TASK_NAME).timer().count());
+		assertEquals(1, meterRegistry.get(ComposedTaskMetrics.START_DELAY).timer().count());
+		assertEquals(1, meterRegistry.get(ComposedTaskMetrics.DETECTION_DELAY).timer().count());
+		assertTrue(meterRegistry.get(ComposedTaskMetrics.POLLS).counter().count() >= 1);
+		assertTrue(meterRegistry.get(ComposedTaskMetrics.REPOSITORY_READS).counter().count() >= 1);
+	}
+
+	@Test
+	@DirtiesContext
+	public void testTaskLauncherTaskletWithLaunchGovernor() throws Exception {
+		this.composedTaskProperties.setIntervalTimeBetweenChecks(100);
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		TaskLaunchGovernor launchGovernor = new TaskLaunchGovernor(1);
+		TaskLauncherTasklet first = getTaskExecutionTasklet();
+		first.setLaunchGovernor(launchGovernor);
+		first.setMetrics(new ComposedTaskMetrics(meterRegistry));
+		TaskLauncherTasklet second = getTaskExecutionTasklet();
+		second.setLaunchGovernor(launchGovernor);
+		second.setMetrics(new ComposedTaskMetrics(meterRegistry));
+		ChunkContext chunkContext = chunkContext();
+		mockReturnValForTaskExecution(1L);
+		assertEquals(RepeatStatus.CONTINUABLE, first.execute(null, chunkContext));
+		CompletableFuture<Void> waiting = CompletableFuture.runAsync(second::waitForTaskExecution);
+		for (int i = 0; i < 500 && launchGovernor.getQueueLength() == 0; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(1, launchGovernor.getQueueLength());
+		createCompleteTaskExecution(0);
+		assertEquals(RepeatStatus.FINISHED, first.execute(null, chunkContext));
+		waiting.get(10, TimeUnit.SECONDS);
+		assertEquals(0, launchGovernor.getAvailablePermits());
+		assertEquals(2, meterRegistry.get(ComposedTaskMetrics.LAUNCH_WAIT).timer().count());
+		assertEquals(RepeatStatus.FINISHED, execute(second, null, chunkContext()));
+		assertEquals(1, launchGovernor.getAvailablePermits());
+	}
+
+	@Test
+	@DirtiesContext
+	public void testTaskLauncherTaskletFailureReleasesLaunchPermits() {
+		TaskLaunchGovernor launchGovernor = new TaskLaunchGovernor(2);
+		TaskLauncherTasklet taskLauncherTasklet = getTaskExecutionTasklet();
+		taskLauncherTasklet.setLaunchGovernor(launchGovernor);
+		taskLauncherTasklet.setLaunchWeight(2);
+		ChunkContext chunkContext = chunkContext();
+		mockReturnValForTaskExecution(1L);
+		createCompleteTaskExecution(1);
+		assertThrows(UnexpectedJobExecutionException.class,
+				() -> execute(taskLauncherTasklet, null, chunkContext));
+		assertEquals(2, launchGovernor.getAvailablePermits());
+	}
+
+	@Test
+	@DirtiesContext
+	public void testStoppedStepReleasesLaunchPermits() throws Exception {
+		this.composedTaskProperties.setIntervalTimeBetweenChecks(50);
+		TaskLaunchGovernor launchGovernor = new TaskLaunchGovernor(2);
+		TaskLauncherTasklet taskLauncherTasklet = getTaskExecutionTasklet();
+		taskLauncherTasklet.setLaunchGovernor(launchGovernor);
+		taskLauncherTasklet.setLaunchWeight(2);
+		mockReturnValForTaskExecution(1L);
+		JobRepository jobRepository = new MapJobRepositoryFactoryBean().getObject();
+		Step step = new StepBuilderFactory(jobRepository, new ResourcelessTransactionManager())
+				.get(TASK_NAME).tasklet(taskLauncherTasklet).build();
+		JobExecution jobExecution = jobRepository.createJobExecution("job", new JobParameters());
+		StepExecution stepExecution = jobExecution.createStepExecution(TASK_NAME);
+		jobRepository.add(stepExecution);
+		// the launched task never completes, so the step waits until it is stopped
+		CompletableFuture<Void> execution = CompletableFuture.runAsync(() -> {
+			try {
+				step.execute(stepExecution);
+			}
+			catch (JobInterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		for (int i = 0; i < 500 && launchGovernor.getAvailablePermits() > 0; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, launchGovernor.getAvailablePermits());
+		stepExecution.setTerminateOnly();
+		execution.get(10, TimeUnit.SECONDS);
+		assertEquals(BatchStatus.STOPPED, stepExecution.getStatus());
+		assertEquals(2, launchGovernor.getAvailablePermits());
+	}
+
+	@Test
+	@DirtiesContext
+	public void testTaskLauncherTaskletWithTracing() throws Exception {
+		InMemorySpanExporter spanExporter = InMemorySpanExporter.create();
+		ComposedTaskTracing tracing = new ComposedTaskTracing(OpenTelemetrySdk.builder()
+				.setTracerProvider(SdkTracerProvider.builder()
+						.addSpanProcessor(SimpleSpanProcessor.create(spanExporter)).build())
+				.setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+				.build(), null);
+		createCompleteTaskExecution(0);
+		TaskLauncherTasklet taskLauncherTasklet = getTaskExecutionTasklet();
+		taskLauncherTasklet.setTracing(tracing);
+		ChunkContext chunkContext = chunkContext();
+		mockReturnValForTaskExecution(1L);
+		execute(taskLauncherTasklet, null, chunkContext);
+		List<SpanData> spans = spanExporter.getFinishedSpanItems();
+		assertEquals("launch testTask1", spans.get(0).getName());
+		assertEquals("status testTask1", spans.get(1).getName());
+		List<String> arguments = (List<String>) chunkContext.getStepContext()
+				.getStepExecution().getExecutionContext().get("task-arguments");
+		assertTrue(arguments.contains(String.format("--traceparent=00-%s-%s-01",
+				spans.get(0).getTraceId(), spans.get(0).getSpanId())));
+	}
+
+	@Test
+	@DirtiesContext
+	public void testTaskLauncherTaskletWithAdaptivePolling() throws Exception {
+		this.composedTaskProperties.setIntervalTimeBetweenChecks(60000);
+		this.composedTaskProperties.setAdaptivePollingEnabled(true);
+		this.composedTaskProperties.setAdaptivePollingInitialInterval(100);
+		this.composedTaskProperties.setAdaptivePollingMaxInterval(1000);
+		createCompleteTaskExecution(0);
+		TaskLauncherTasklet taskLauncherTasklet = getTaskExecutionTasklet();
+		ChunkContext chunkContext = chunkContext();
+		mockReturnValForTaskExecution(1L);
+		long start = System.currentTimeMillis();
+		assertEquals(RepeatStatus.FINISHED, execute(taskLauncherTasklet, null, chunkContext));
+		Assertions.assertThat(System.currentTimeMillis() - start).isLessThan(60000);
+	}
+
+	@Test
+	@DirtiesContext
+	public void testTaskLauncherTaskletWaitForTaskExecution() throws Exception {
+		this.composedTaskProperties.setIntervalTimeBetweenChecks(100);
+		createCompleteTaskExecution(0);
+		TaskLauncherTasklet taskLauncherTasklet = getTaskExecutionTasklet();
+		ChunkContext chunkContext = chunkContext();
+		mockReturnValForTaskExecution(1L);
+		taskLauncherTasklet.waitForTaskExecution();
+		assertEquals(RepeatStatus.CONTINUABLE, taskLauncherTasklet.execute(null, chunkContext));
+		taskLauncherTasklet.waitForTaskExecution();
+		assertEquals(RepeatStatus.FINISHED, taskLauncherTasklet.execute(null, chunkContext));
+	}
+
+	@Test
+	@DirtiesContext
+	public void testTaskLauncherTaskletWaitForTaskExecutionHeartbeat() throws Exception {
+		this.composedTaskProperties.setIntervalTimeBetweenChecks(100);
+		this.composedTaskProperties.setHeartbeatInterval(300);
+		TaskLauncherTasklet taskLauncherTasklet = getTaskExecutionTasklet();
+		ChunkContext chunkContext = chunkContext();
+		mockReturnValForTaskExecution(1L);
+		assertEquals(RepeatStatus.CONTINUABLE, taskLauncherTasklet.execute(null, chunkContext));
+		TaskExecution taskExecution = this.taskRepository.createTaskExecution();
+		taskLauncherTasklet.waitForTaskExecution();
+		assertEquals(RepeatStatus.CONTINUABLE, taskLauncherTasklet.execute(null, chunkContext));
+		this.taskRepository.completeTaskExecution(taskExecution.getExecutionId(),
+				0, new Date(), "");
+		taskLauncherTasklet.waitForTaskExecution();
+		assertEquals(RepeatStatus.FINISHED, taskLauncherTasklet.execute(null, chunkContext));
+	}
+
+	@Test
+	@DirtiesContext
+	public void testTaskLauncherTaskletWaitForTaskExecutionStopped() throws Exception {
+		this.composedTaskProperties.setIntervalTimeBetweenChecks(100);
+		this.composedTaskProperties.setHeartbeatInterval(60000);
+		TaskLauncherTasklet taskLauncherTasklet = getTaskExecutionTasklet();
+		ChunkContext chunkContext = chunkContext();
+		StepExecution stepExecution = chunkContext.getStepContext().getStepExecution();
+		taskLauncherTasklet.beforeStep(stepExecution);
+		mockReturnValForTaskExecution(1L);
+		assertEquals(RepeatStatus.CONTINUABLE, taskLauncherTasklet.execute(null, chunkContext));
+		this.taskRepository.createTaskExecution();
+		stepExecution.setTerminateOnly();
+		long start = System.currentTimeMillis();
+		// a step asked to stop does not wait for the heartbeat
+		taskLauncherTasklet.waitForTaskExecution();
+		Assertions.assertThat(System.currentTimeMillis() - start).isLessThan(10000);
+		assertEquals(RepeatStatus.CONTINUABLE, taskLauncherTasklet.execute(null, chunkContext));
+	}
+
+	@Test
+	@DirtiesContext
+	public void testTaskLauncherRepeatTemplate() throws Exception {
+		this.composedTaskProperties.setIntervalTimeBetweenChecks(100);
+		createCompleteTaskExecution(0);
+		TaskLauncherTasklet taskLauncherTasklet = getTaskExecutionTasklet();
+		ChunkContext chunkContext = chunkContext();
+		mockReturnValForTaskExecution(1L);
+		List<RepeatStatus> results = new ArrayList<>();
+		new TaskLauncherRepeatTemplate(taskLauncherTasklet).iterate(context -> {
+			RepeatStatus result = taskLauncherTasklet.execute(null, chunkContext);
+			results.add(result);
+			return result;
+		});
+		assertEquals(Arrays.asList(RepeatStatus.CONTINUABLE, RepeatStatus.FINISHED), results);
+	}
+
+	@Test
+	@DirtiesContext
+	public void testTaskLauncherTaskletReattachToRunningTask() throws Exception {
+		this.composedTaskProperties.setReattachOnRestartEnabled(true);
+		this.composedTaskProperties.setIntervalTimeBetweenChecks(100);
+		TaskExecution taskExecution = this.taskRepository.createTaskExecution();
+		TaskLauncherTasklet taskLauncherTasklet = getTaskExecutionTasklet();
+		ChunkContext chunkContext = chunkContext();
+		chunkContext.getStepContext().getStepExecution().getExecutionContext()
+				.put("task-execution-id", taskExecution.getExecutionId());
+		assertEquals(RepeatStatus.CONTINUABLE, taskLauncherTasklet.execute(null, chunkContext));
+		this.taskRepository.completeTaskExecution(taskExecution.getExecutionId(),
+				0, new Date(), "");
+		assertEquals(RepeatStatus.FINISHED, taskLauncherTasklet.execute(null, chunkContext));
+		Mockito.verify(this.taskOperations, Mockito.never()).launch(ArgumentMatchers.anyString(),
+				ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any());
+	}
+
+	@Test
+	@DirtiesContext
+	public void testTaskLauncherTaskletReattachToCompletedTask() throws Exception {
+		this.composedTaskProperties.setReattachOnRestartEnabled(true);
+		createCompleteTaskExecution(0);
+		TaskLauncherTasklet taskLauncherTasklet = getTaskExecutionTasklet();
+		ChunkContext chunkContext = chunkContext();
+		chunkContext.getStepContext().getStepExecution().getExecutionContext()
+				.put("task-execution-id", 1L);
+		assertEquals(RepeatStatus.FINISHED, taskLauncherTasklet.execute(null, chunkContext));
+		Mockito.verify(this.taskOperations, Mockito.never()).launch(ArgumentMatchers.anyString(),
+				ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any());
+	}
+
+	@Test
+	@DirtiesContext
+	public void testTaskLauncherTaskletRelaunchFailedTaskOnRestart() throws Exception {
+		this.composedTaskProperties.setReattachOnRestartEnabled(true);
+		createCompleteTaskExecution(1);
+		createCompleteTaskExecution(0);
+		TaskLauncherTasklet taskLauncherTasklet = getTaskExecutionTasklet();
+		ChunkContext chunkContext = chunkContext();
+		chunkContext.getStepContext().getStepExecution().getExecutionContext()
+				.put("task-execution-id", 1L);
+		mockReturnValForTaskExecution(2L);
+		assertEquals(RepeatStatus.FINISHED, execute(taskLauncherTasklet, null, chunkContext));
+		assertEquals(2L, chunkContext.getStepContext()
+				.getStepExecution().getExecutionContext()
+				.get("task-execution-id"));
+	}
+
+	@Test
+	@DirtiesContext
+	public void testTaskLauncherTaskletWithResultCache() throws Exception {
+		TaskLaunchResultCache resultCache = Mockito.mock(TaskLaunchResultCache.class);
+		TaskExecution cachedTaskExecution = new TaskExecution();
+		cachedTaskExecution.setExecutionId(5L);
+		Mockito.doReturn(cachedTaskExecution).when(resultCache)
+				.find(ArgumentMatchers.anyString(), ArgumentMatchers.anyString());
+		TaskLauncherTasklet taskLauncherTasklet = getTaskExecutionTasklet();
+		taskLauncherTasklet.setArguments(null);
+		taskLauncherTasklet.setProperties(null);
+		taskLauncherTasklet.setResultCache(resultCache);
+		ChunkContext chunkContext = chunkContext();
+		assertEquals(RepeatStatus.FINISHED, taskLauncherTasklet.execute(null, chunkContext));
+		assertEquals(5L, chunkContext.getStepContext()
+				.getStepExecution().getExecutionContext()
+				.get("task-execution-id"));
+		Mockito.verify(this.taskOperations, Mockito.never()).launch(ArgumentMatchers.anyString(),
+				ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any());
+	}
+
 	@Test
 	@DirtiesContext
 	public void testTaskLauncherTaskletTimeout() {
@@ -29,8 +29,11 @@ import org.springframework.batch.repeat.RepeatStatus;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.task.app.composedtaskrunner.ComposedRunnerJobFactory;
-import org.springframework.cloud.task.app.composedtaskrunner.ComposedRunnerVisitor;
+import org.springframework.cloud.task.app.composedtaskrunner.ComposedTaskPlanCompiler;
 import org.springframework.cloud.task.app.composedtaskrunner.properties.ComposedTaskProperties;
+import org.springframework.cloud.task.app.composedtaskrunner.support.SplitFlowCallerRunsPolicy;
+import org.springframework.cloud.task.app.composedtaskrunner.support.VirtualThreadTaskExecutor;
+import org.springframework.cloud.task.app.composedtaskrunner.support.WorkStealingTaskExecutor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.task.TaskExecutor;
@@ -59,20 +62,40 @@ public class ComposedRunnerVisitorConfiguration {
 		return new ComposedRunnerJobFactory(this.composedTaskProperties);
 	}
 
-	@Bean
-	public ComposedRunnerVisitor composedRunnerStack() {
-		return new ComposedRunnerVisitor();
-	}
-
 	@Bean
 	public TaskExecutor taskExecutor() {
+		int corePoolSize = this.composedTaskProperties.getSplitThreadCorePoolSize();
+		int maxPoolSize = this.composedTaskProperties.getSplitThreadMaxPoolSize();
+		boolean callerRuns = this.composedTaskProperties.isSplitThreadCallerRunsEnabled();
+		if (this.composedTaskProperties.isSplitThreadAutoSizeEnabled()) {
+			int maxParallelFlows = ComposedTaskPlanCompiler.compile(this.composedTaskProperties)
+					.getMaxParallelFlows();
+			maxPoolSize = Math.max(1, Math.min(maxParallelFlows, maxPoolSize));
+			corePoolSize = maxPoolSize;
+			callerRuns |= maxPoolSize < maxParallelFlows;
+		}
+		if (this.composedTaskProperties.isSplitThreadWorkStealingEnabled()) {
+			return new WorkStealingTaskExecutor(corePoolSize);
+		}
+		if (this.composedTaskProperties.isSplitThreadVirtualThreadsEnabled()) {
+			return new VirtualThreadTaskExecutor(maxPoolSize, callerRuns);
+		}
+		if (callerRuns && maxPoolSize == ComposedTaskProperties.SPLIT_THREAD_MAX_POOL_SIZE_DEFAULT) {
+			maxPoolSize = corePoolSize;
+		}
 		ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
-		taskExecutor.setCorePoolSize(this.composedTaskProperties.getSplitThreadCorePoolSize());
-		taskExecutor.setMaxPoolSize(this.composedTaskProperties.getSplitThreadMaxPoolSize());
+		taskExecutor.setCorePoolSize(corePoolSize);
+		taskExecutor.setMaxPoolSize(maxPoolSize);
 		taskExecutor.setKeepAliveSeconds(this.composedTaskProperties.getSplitThreadKeepAliveSeconds());
 		taskExecutor.setAllowCoreThreadTimeOut(
 				this.composedTaskProperties.isSplitThreadAllowCoreThreadTimeout());
-		taskExecutor.setQueueCapacity(this.composedTaskProperties.getSplitThreadQueueCapacity());
+		if (callerRuns) {
+			taskExecutor.setQueueCapacity(0);
+			taskExecutor.setRejectedExecutionHandler(new SplitFlowCallerRunsPolicy());
+		}
+		else {
+			taskExecutor.setQueueCapacity(this.composedTaskProperties.getSplitThreadQueueCapacity());
+		}
 		taskExecutor.setWaitForTasksToCompleteOnShutdown(
 				this.composedTaskProperties.isSplitThreadWaitForTasksToCompleteOnShutdown());
 		return taskExecutor;
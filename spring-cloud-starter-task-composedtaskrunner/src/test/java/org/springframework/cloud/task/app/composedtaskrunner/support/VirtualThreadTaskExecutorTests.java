@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.task.app.composedtaskrunner.support;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class VirtualThreadTaskExecutorTests {
+
+	@Test
+	public void testConcurrencyLimit() throws Exception {
+		assumeTrue(VirtualThreadTaskExecutor.isSupported());
+		VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor(2, false);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		CountDownLatch completed = new CountDownLatch(10);
+		for (int i = 0; i < 10; i++) {
+			executor.execute(() -> {
+				maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				try {
+					Thread.sleep(10);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				running.decrementAndGet();
+				completed.countDown();
+			});
+		}
+		assertTrue(completed.await(10, TimeUnit.SECONDS));
+		assertTrue(maxRunning.get() <= 2);
+	}
+
+	@Test
+	public void testCallerRunsWhenLimitReached() throws Exception {
+		assumeTrue(VirtualThreadTaskExecutor.isSupported());
+		VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor(1, true);
+		CountDownLatch release = new CountDownLatch(1);
+		executor.execute(() -> {
+			try {
+				release.await();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		Thread[] runner = new Thread[1];
+		executor.execute(() -> runner[0] = Thread.currentThread());
+		release.countDown();
+		assertSame(Thread.currentThread(), runner[0]);
+	}
+
+	@Test
+	public void testUnsupported() {
+		assumeFalse(VirtualThreadTaskExecutor.isSupported());
+		Throwable exception = assertThrows(IllegalStateException.class,
+				() -> new VirtualThreadTaskExecutor(1, false));
+		assertEquals("Virtual threads require Java 21 or later.", exception.getMessage());
+	}
+
+}
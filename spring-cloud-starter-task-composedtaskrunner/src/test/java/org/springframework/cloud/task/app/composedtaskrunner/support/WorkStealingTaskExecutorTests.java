@@ -0,0 +1,148 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class WorkStealingTaskExecutorTests {
+
+	private WorkStealingTaskExecutor executor;
+
+	@After
+	public void tearDown() {
+		if (this.executor != null) {
+			this.executor.destroy();
+		}
+	}
+
+	@Test
+	public void testResultsInOrderOfFlows() throws Exception {
+		this.executor = new WorkStealingTaskExecutor(2);
+		List<Callable<String>> flows = new ArrayList<>();
+		for (String name : Arrays.asList("AAA", "BBB", "CCC")) {
+			flows.add(() -> {
+				Thread.sleep(5);
+				return name;
+			});
+		}
+		assertEquals(Arrays.asList("AAA", "BBB", "CCC"), this.executor.invokeAll(flows));
+	}
+
+	@Test
+	public void testExceptionOfFirstFailedFlow() {
+		this.executor = new WorkStealingTaskExecutor(2);
+		AtomicInteger completed = new AtomicInteger();
+		List<Callable<Object>> flows = Arrays.asList(
+				() -> completed.incrementAndGet(),
+				() -> {
+					throw new IllegalStateException("BBB failed");
+				},
+				() -> completed.incrementAndGet());
+		Throwable exception = assertThrows(IllegalStateException.class,
+				() -> this.executor.invokeAll(flows));
+		assertEquals("BBB failed", exception.getMessage());
+		// the other flows of the split still run
+		assertEquals(2, completed.get());
+	}
+
+	@Test
+	public void testDeeplyNestedSplitsOnSingleThread() throws Exception {
+		this.executor = new WorkStealingTaskExecutor(1);
+		AtomicInteger steps = new AtomicInteger();
+		CompletableFuture<Integer> result = CompletableFuture.supplyAsync(() -> {
+			try {
+				return split(8, 2, steps);
+			}
+			catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		// 2^8 leaf flows of a binary split nested 8 times
+		assertEquals(Integer.valueOf(256), result.get(30, TimeUnit.SECONDS));
+		assertEquals(256, steps.get());
+	}
+
+	@Test
+	public void testSplitWiderThanParallelism() throws Exception {
+		this.executor = new WorkStealingTaskExecutor(2);
+		int width = 8;
+		CountDownLatch started = new CountDownLatch(width);
+		List<Callable<Boolean>> flows = new ArrayList<>();
+		for (int i = 0; i < width; i++) {
+			flows.add(() -> WorkStealingTaskExecutor.block(() -> {
+				// each flow waits for its task until all the flows of the split are waiting
+				started.countDown();
+				return started.await(10, TimeUnit.SECONDS);
+			}));
+		}
+		assertEquals(Collections.nCopies(width, true), this.executor.invokeAll(flows));
+	}
+
+	@Test
+	public void testNestedSplitsStress() throws Exception {
+		int parallelism = Math.max(2, Runtime.getRuntime().availableProcessors());
+		this.executor = new WorkStealingTaskExecutor(parallelism);
+		for (int depth = 5; depth <= 7; depth++) {
+			AtomicInteger steps = new AtomicInteger();
+			List<Callable<Integer>> flows = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				int nestedDepth = depth;
+				flows.add(() -> split(nestedDepth, 3, steps));
+			}
+			int leaves = (int) Math.pow(3, depth);
+			assertEquals(Arrays.asList(leaves, leaves, leaves, leaves), this.executor.invokeAll(flows));
+			assertEquals(4 * leaves, steps.get());
+		}
+	}
+
+	/**
+	 * Runs a split of the given width whose flows are themselves splits, down
+	 * to the given depth, each leaf flow running a step that waits for its task.
+	 * @return the number of steps run.
+	 */
+	private int split(int depth, int width, AtomicInteger steps) throws Exception {
+		if (depth == 0) {
+			Thread.sleep(0, 100_000);
+			steps.incrementAndGet();
+			return 1;
+		}
+		List<Callable<Integer>> flows = new ArrayList<>();
+		for (int i = 0; i < width; i++) {
+			flows.add(() -> split(depth - 1, width, steps));
+		}
+		int total = 0;
+		for (Integer result : this.executor.invokeAll(flows)) {
+			total += result;
+		}
+		return total;
+	}
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.task.app.composedtaskrunner;
+
+import java.io.File;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.cloud.task.app.composedtaskrunner.properties.ComposedTaskProperties;
+import org.springframework.cloud.task.repository.TaskExecution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class ComposedTaskFlightRecorderTests {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private Recording recording;
+
+	@Before
+	public void setup() {
+		assumeTrue(ComposedTaskFlightRecorder.isSupported());
+		this.recording = new Recording();
+		for (String name : new String[] {"GraphCompile", "StepRegistration", "TaskLaunch",
+				"StatusPoll", "SplitFlow"}) {
+			this.recording.enable(ComposedTaskEvents.NAME_PREFIX + name);
+		}
+		this.recording.start();
+	}
+
+	@After
+	public void tearDown() {
+		if (this.recording != null) {
+			this.recording.close();
+		}
+	}
+
+	@Test
+	public void testGraphCompileAndStepRegistration() throws Exception {
+		ComposedTaskProperties properties = new ComposedTaskProperties();
+		properties.setGraph("AAA && BBB");
+		assertNotNull(ComposedTaskPlanCompiler.compile(properties));
+		ComposedTaskFlightRecorder.recordStepRegistration("AAA", "AAA_0", () -> { });
+
+		List<RecordedEvent> events = events("GraphCompile");
+		assertEquals(1, events.size());
+		assertEquals("AAA && BBB", events.get(0).getString("graph"));
+		events = events("StepRegistration");
+		assertEquals(1, events.size());
+		assertEquals("AAA", events.get(0).getString("taskName"));
+		assertEquals("AAA_0", events.get(0).getString("stepName"));
+	}
+
+	@Test
+	public void testTaskLaunchAndStatusPoll() throws Exception {
+		assertEquals(Long.valueOf(7), ComposedTaskFlightRecorder.recordTaskLaunch("AAA", "AAA_0",
+				() -> sleep(7L)));
+		TaskExecution taskExecution = new TaskExecution();
+		taskExecution.setEndTime(new Date());
+		ComposedTaskFlightRecorder.recordStatusPoll("AAA", 7L, () -> null);
+		ComposedTaskFlightRecorder.recordStatusPoll("AAA", 7L, () -> taskExecution);
+
+		List<RecordedEvent> events = events("TaskLaunch");
+		assertEquals(1, events.size());
+		assertEquals("AAA", events.get(0).getString("taskName"));
+		assertEquals(7L, events.get(0).getLong("taskExecutionId"));
+		assertTrue(events.get(0).getDuration().toMillis() >= 5);
+		events = events("StatusPoll");
+		assertEquals(2, events.size());
+		assertEquals(7L, events.get(0).getLong("taskExecutionId"));
+		assertFalse(events.get(0).getBoolean("completed"));
+		assertTrue(events.get(1).getBoolean("completed"));
+	}
+
+	@Test
+	public void testNestedSplitFlows() throws Exception {
+		JobExecution jobExecution = new JobExecution(new JobInstance(1L, "job"), 3L,
+				new JobParameters(), null);
+		ComposedTaskFlightRecorder.recordSplitFlow(() -> {
+			ComposedTaskFlightRecorder.recordSplitFlowStep(jobExecution.createStepExecution("AAA_0"));
+			// a flow of a nested split run by the thread of its parent flow
+			ComposedTaskFlightRecorder.recordSplitFlow(() -> ComposedTaskFlightRecorder
+					.recordSplitFlowStep(jobExecution.createStepExecution("BBB_0"))).run();
+			ComposedTaskFlightRecorder.recordSplitFlowStep(jobExecution.createStepExecution("CCC_0"));
+		}).run();
+		// steps outside of a split flow are not recorded
+		ComposedTaskFlightRecorder.recordSplitFlowStep(jobExecution.createStepExecution("DDD_0"));
+
+		List<String> stepNames = events("SplitFlow").stream()
+				.map(event -> event.getString("stepNames")).collect(Collectors.toList());
+		assertEquals(2, stepNames.size());
+		assertTrue(stepNames.contains("BBB_0"));
+		assertTrue(stepNames.contains("AAA_0,CCC_0"));
+		assertEquals(3L, events("SplitFlow").get(0).getLong("jobExecutionId"));
+	}
+
+	private List<RecordedEvent> events(String name) throws Exception {
+		File file = new File(this.temporaryFolder.getRoot(), name + ".jfr");
+		this.recording.dump(file.toPath());
+		return RecordingFile.readAllEvents(file.toPath()).stream()
+				.filter(event -> event.getEventType().getName()
+						.equals(ComposedTaskEvents.NAME_PREFIX + name))
+				.sorted((first, second) -> first.getStartTime().compareTo(second.getStartTime()))
+				.collect(Collectors.toList());
+	}
+
+	private static Long sleep(Long result) {
+		try {
+			Thread.sleep(result);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return result;
+	}
+
+}